@@ -22,6 +22,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.InvalidObjectException;
+import java.net.URL;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
@@ -638,6 +639,28 @@ public interface ElytronMessages extends BasicLogger {
     @Message(id = 1161, value = "No keys for Kerberos principal [%s] was found in KeyTab [%s].")
     IOException noKeysForPrincipalInKeyTab(String principal, String keyTab);
 
+    @Message(id = 1162, value = "Timed out after %d milliseconds waiting for the authorization realm identity")
+    RealmUnavailableException aggregateRealmAuthorizationTimeout(long timeout);
+
+    @Message(id = 1163, value = "Failed to obtain the authorization realm identity")
+    RealmUnavailableException aggregateRealmAuthorizationFailed(@Cause Throwable cause);
+
+    @Message(id = 1164, value = "Query \"%s\" did not complete within %d milliseconds")
+    RuntimeException couldNotExecuteQueryInTime(String sql, long timeout);
+
+    @Message(id = 1165, value = "Timed out after %d milliseconds waiting for a pooled LDAP context")
+    NamingException ldapContextPoolExhausted(long maxWait);
+
+    @Message(id = 1166, value = "Minimum LDAP context pool size %d exceeds maximum pool size %d")
+    IllegalArgumentException ldapContextPoolInvalidSize(int minSize, int maxSize);
+
+    @LogMessage(level = WARN)
+    @Message(id = 1167, value = "Unable to load JSON Web Key set from [%s]")
+    void tokenRealmJwkSetLoadFailed(URL url, @Cause Throwable cause);
+
+    @Message(id = 1168, value = "Timed out after %d milliseconds waiting to introspect token")
+    RealmUnavailableException tokenRealmOAuth2TokenIntrospectionTimeout(long timeout);
+
     /* keystore package */
 
     @Message(id = 2001, value = "Invalid key store entry password for alias \"%s\"")
@@ -1726,6 +1749,10 @@ public interface ElytronMessages extends BasicLogger {
         + "the Policy.implies() method for authorization checking.")
     void getPermissionsNotSupported();
 
+    @LogMessage(level = WARN)
+    @Message(id = 8510, value = "Invalid value \"%s\" of system property \"%s\", expected an integer of at least 1; using %d instead")
+    void invalidRolesMaterializeDepth(String value, String property, int defaultValue);
+
     /* credential package */
 
     @Message(id = 9000, value = "Public and private key parameters are mismatched")
@@ -18,9 +18,20 @@
 
 package org.wildfly.security.auth.realm;
 
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+import static org.wildfly.security._private.ElytronMessages.log;
+
 import java.security.Principal;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.wildfly.common.function.ExceptionSupplier;
 import org.wildfly.security.auth.server.event.RealmAuthenticationEvent;
 import org.wildfly.security.auth.server.event.RealmAuthorizationEvent;
 import org.wildfly.security.auth.server.event.RealmEvent;
@@ -37,11 +48,20 @@ import org.wildfly.security.evidence.Evidence;
  * not provide any authorization information.  Likewise the authorization realm need not provide any authentication
  * credential acquisition or verification capabilities.
  *
+ * By default the authentication identity and the authorization identity are obtained one after the other. Optionally
+ * the authorization identity can be obtained on an {@link Executor} while the authentication identity is obtained, or
+ * it can be obtained lazily the first time the authorization identity is requested. An identity obtained for
+ * {@link Evidence} is always obtained from both realms one after the other, as the evidence may be destroyed once it
+ * was verified and can not be shared between threads.
+ *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public final class AggregateSecurityRealm implements SecurityRealm {
     private final SecurityRealm authenticationRealm;
     private final SecurityRealm authorizationRealm;
+    private final boolean lazyAuthorization;
+    private final Executor executor;
+    private final long timeout;
 
     /**
      * Construct a new instance.
@@ -50,15 +70,73 @@ public final class AggregateSecurityRealm implements SecurityRealm {
      * @param authorizationRealm the realm to use for authorization
      */
     public AggregateSecurityRealm(final SecurityRealm authenticationRealm, final SecurityRealm authorizationRealm) {
+        this(authenticationRealm, authorizationRealm, false);
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param authenticationRealm the realm to use for authentication
+     * @param authorizationRealm the realm to use for authorization
+     * @param lazyAuthorization {@code true} to only obtain the identity from the authorization realm the first time
+     *                          its authorization identity is requested, {@code false} to obtain it immediately
+     *                          (identities obtained for {@link Evidence} are never obtained lazily)
+     */
+    public AggregateSecurityRealm(final SecurityRealm authenticationRealm, final SecurityRealm authorizationRealm, final boolean lazyAuthorization) {
         this.authenticationRealm = authenticationRealm;
         this.authorizationRealm = authorizationRealm;
+        this.lazyAuthorization = lazyAuthorization;
+        this.executor = null;
+        this.timeout = -1;
+    }
+
+    /**
+     * Construct a new instance which obtains the identity from the authorization realm using the given executor while
+     * the identity from the authentication realm is obtained. Identities obtained for {@link Evidence} are obtained
+     * from both realms one after the other. Parallel authorization can not be combined with lazy authorization.
+     *
+     * @param authenticationRealm the realm to use for authentication
+     * @param authorizationRealm the realm to use for authorization
+     * @param executor the executor used to obtain identities from the authorization realm (must not be {@code null})
+     * @param timeout the time in milliseconds to wait for the identity from the authorization realm once the identity
+     *                from the authentication realm was obtained
+     */
+    public AggregateSecurityRealm(final SecurityRealm authenticationRealm, final SecurityRealm authorizationRealm, final Executor executor, final long timeout) {
+        checkNotNullParam("executor", executor);
+        checkMinimumParameter("timeout", 1, timeout);
+        this.authenticationRealm = authenticationRealm;
+        this.authorizationRealm = authorizationRealm;
+        this.lazyAuthorization = false;
+        this.executor = executor;
+        this.timeout = timeout;
     }
 
     public RealmIdentity getRealmIdentity(final Evidence evidence) throws RealmUnavailableException {
+        // the evidence may be destroyed once verified and is not thread safe, so it is never used lazily nor in parallel
+        return getRealmIdentitySequentially(() -> authenticationRealm.getRealmIdentity(evidence), () -> authorizationRealm.getRealmIdentity(evidence));
+    }
+
+    public RealmIdentity getRealmIdentity(final Principal principal) throws RealmUnavailableException {
+        return getRealmIdentity(() -> authenticationRealm.getRealmIdentity(principal), () -> authorizationRealm.getRealmIdentity(principal));
+    }
+
+    private RealmIdentity getRealmIdentity(final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authenticationLookup,
+                                           final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authorizationLookup) throws RealmUnavailableException {
+        if (lazyAuthorization) {
+            return new Identity(authenticationLookup.get(), authorizationLookup);
+        }
+        if (executor != null) {
+            return getRealmIdentityInParallel(authenticationLookup, authorizationLookup);
+        }
+        return getRealmIdentitySequentially(authenticationLookup, authorizationLookup);
+    }
+
+    private RealmIdentity getRealmIdentitySequentially(final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authenticationLookup,
+                                                       final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authorizationLookup) throws RealmUnavailableException {
         boolean ok = false;
-        final RealmIdentity authenticationIdentity = authenticationRealm.getRealmIdentity(evidence);
+        final RealmIdentity authenticationIdentity = authenticationLookup.get();
         try {
-            final RealmIdentity authorizationIdentity = authorizationRealm.getRealmIdentity(evidence);
+            final RealmIdentity authorizationIdentity = authorizationLookup.get();
             try {
                 final Identity identity = new Identity(authenticationIdentity, authorizationIdentity);
                 ok = true;
@@ -71,20 +149,56 @@ public final class AggregateSecurityRealm implements SecurityRealm {
         }
     }
 
-    public RealmIdentity getRealmIdentity(final Principal principal) throws RealmUnavailableException {
-        boolean ok = false;
-        final RealmIdentity authenticationIdentity = authenticationRealm.getRealmIdentity(principal);
-        try {
-            final RealmIdentity authorizationIdentity = authorizationRealm.getRealmIdentity(principal);
+    private RealmIdentity getRealmIdentityInParallel(final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authenticationLookup,
+                                                     final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authorizationLookup) throws RealmUnavailableException {
+        final CompletableFuture<RealmIdentity> authorizationFuture = new CompletableFuture<>();
+        final Runnable authorizationTask = () -> {
             try {
-                final Identity identity = new Identity(authenticationIdentity, authorizationIdentity);
-                ok = true;
-                return identity;
-            } finally {
-                if (! ok) authorizationIdentity.dispose();
+                authorizationFuture.complete(authorizationLookup.get());
+            } catch (Throwable t) {
+                authorizationFuture.completeExceptionally(t);
             }
+        };
+        try {
+            executor.execute(authorizationTask);
+        } catch (RejectedExecutionException e) {
+            authorizationTask.run();
+        }
+
+        boolean ok = false;
+        RealmIdentity authenticationIdentity = null;
+        try {
+            authenticationIdentity = authenticationLookup.get();
+            final Identity identity = new Identity(authenticationIdentity, awaitAuthorizationIdentity(authorizationFuture));
+            ok = true;
+            return identity;
         } finally {
-            if (! ok) authenticationIdentity.dispose();
+            if (! ok) {
+                if (authenticationIdentity != null) authenticationIdentity.dispose();
+                // the authorization identity may only become available after we gave up waiting for it
+                authorizationFuture.thenAccept(RealmIdentity::dispose);
+            }
+        }
+    }
+
+    private RealmIdentity awaitAuthorizationIdentity(final CompletableFuture<RealmIdentity> authorizationFuture) throws RealmUnavailableException {
+        try {
+            return authorizationFuture.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw log.aggregateRealmAuthorizationTimeout(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw log.aggregateRealmAuthorizationFailed(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RealmUnavailableException) {
+                throw (RealmUnavailableException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw log.aggregateRealmAuthorizationFailed(cause);
         }
     }
 
@@ -113,13 +227,21 @@ public final class AggregateSecurityRealm implements SecurityRealm {
     static final class Identity implements RealmIdentity {
 
         private final RealmIdentity authenticationIdentity;
-        private final RealmIdentity authorizationIdentity;
+        private final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authorizationLookup;
+        private volatile RealmIdentity authorizationIdentity;
+        private boolean disposed;
 
         Identity(final RealmIdentity authenticationIdentity, final RealmIdentity authorizationIdentity) {
             this.authenticationIdentity = authenticationIdentity;
+            this.authorizationLookup = null;
             this.authorizationIdentity = authorizationIdentity;
         }
 
+        Identity(final RealmIdentity authenticationIdentity, final ExceptionSupplier<RealmIdentity, RealmUnavailableException> authorizationLookup) {
+            this.authenticationIdentity = authenticationIdentity;
+            this.authorizationLookup = authorizationLookup;
+        }
+
         @Override
         public Principal getRealmIdentityPrincipal() {
             return authenticationIdentity.getRealmIdentityPrincipal();
@@ -160,12 +282,30 @@ public final class AggregateSecurityRealm implements SecurityRealm {
         }
 
         public AuthorizationIdentity getAuthorizationIdentity() throws RealmUnavailableException {
+            RealmIdentity authorizationIdentity = this.authorizationIdentity;
+            if (authorizationIdentity == null) {
+                synchronized (this) {
+                    authorizationIdentity = this.authorizationIdentity;
+                    if (authorizationIdentity == null) {
+                        if (disposed) {
+                            return AuthorizationIdentity.EMPTY;
+                        }
+                        authorizationIdentity = authorizationLookup.get();
+                        this.authorizationIdentity = authorizationIdentity;
+                    }
+                }
+            }
             return authorizationIdentity.getAuthorizationIdentity();
         }
 
         public void dispose() {
             authenticationIdentity.dispose();
-            authorizationIdentity.dispose();
+            final RealmIdentity authorizationIdentity;
+            synchronized (this) {
+                disposed = true;
+                authorizationIdentity = this.authorizationIdentity;
+            }
+            if (authorizationIdentity != null) authorizationIdentity.dispose();
         }
     }
 }
@@ -54,6 +54,32 @@ public class CachingModifiableSecurityRealm extends CachingSecurityRealm impleme
         super(realm, cache);
     }
 
+    /**
+     * Creates a new instance.
+     *
+     * @param realm the {@link SecurityRealm} whose {@link RealmIdentity} should be cached..
+     * @param cache the {@link RealmIdentityCache} instance
+     * @param coalesceLoads {@code true} if concurrent cache misses for the same {@link Principal} should wait for a single
+     *                      lookup against the underlying realm instead of each performing its own lookup
+     */
+    public CachingModifiableSecurityRealm(CacheableSecurityRealm realm, RealmIdentityCache cache, boolean coalesceLoads) {
+        super(realm, cache, coalesceLoads);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param realm the {@link SecurityRealm} whose {@link RealmIdentity} should be cached..
+     * @param cache the {@link RealmIdentityCache} instance
+     * @param coalesceLoads {@code true} if concurrent cache misses for the same {@link Principal} should wait for a single
+     *                      lookup against the underlying realm instead of each performing its own lookup
+     * @param negativeCache the {@link RealmIdentityCache} instance holding lookups of identities that do not exist, or
+     *                      {@code null} if those lookups should not be cached
+     */
+    public CachingModifiableSecurityRealm(CacheableSecurityRealm realm, RealmIdentityCache cache, boolean coalesceLoads, RealmIdentityCache negativeCache) {
+        super(realm, cache, coalesceLoads, negativeCache);
+    }
+
     @Override
     public ModifiableRealmIdentity getRealmIdentityForUpdate(Principal principal) throws RealmUnavailableException {
         return wrap(getModifiableSecurityRealm().getRealmIdentityForUpdate(principal));
@@ -84,7 +110,7 @@ public class CachingModifiableSecurityRealm extends CachingSecurityRealm impleme
 
             @Override
             public void create() throws RealmUnavailableException {
-                modifiable.create();
+                executeAndInvalidate(modifiable -> { modifiable.create(); });
             }
 
             @Override
@@ -22,6 +22,11 @@ import static org.wildfly.common.Assert.checkNotNullParam;
 
 import java.security.Principal;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.wildfly.security._private.ElytronMessages;
 import org.wildfly.security.auth.SupportLevel;
@@ -43,12 +48,19 @@ import org.wildfly.security.password.interfaces.ClearPassword;
 /**
  * <p>A wrapper class that provides caching capabilities for a {@link SecurityRealm} and its identities.
  *
+ * <p>Optionally, lookups of identities that do not exist can be cached in a separate negative cache, usually configured with
+ * a smaller size and a shorter maximum age than the cache of existing identities.
+ *
  * @author <a href="mailto:psilva@redhat.com">Pedro Igor</a>
  */
 public class CachingSecurityRealm implements SecurityRealm {
 
     private final CacheableSecurityRealm realm;
     private final RealmIdentityCache cache;
+    private final RealmIdentityCache negativeCache;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final ConcurrentHashMap<Principal, CompletableFuture<RealmIdentity>> pendingLoads;
+    private final LongAdder coalescedLoads = new LongAdder();
 
     /**
      * Creates a new instance.
@@ -57,8 +69,36 @@ public class CachingSecurityRealm implements SecurityRealm {
      * @param cache the {@link RealmIdentityCache} instance
      */
     public CachingSecurityRealm(CacheableSecurityRealm realm, RealmIdentityCache cache) {
+        this(realm, cache, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param realm the {@link SecurityRealm} whose {@link RealmIdentity} should be cached..
+     * @param cache the {@link RealmIdentityCache} instance
+     * @param coalesceLoads {@code true} if concurrent cache misses for the same {@link Principal} should wait for a single
+     *                      lookup against the underlying realm instead of each performing its own lookup
+     */
+    public CachingSecurityRealm(CacheableSecurityRealm realm, RealmIdentityCache cache, boolean coalesceLoads) {
+        this(realm, cache, coalesceLoads, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param realm the {@link SecurityRealm} whose {@link RealmIdentity} should be cached..
+     * @param cache the {@link RealmIdentityCache} instance
+     * @param coalesceLoads {@code true} if concurrent cache misses for the same {@link Principal} should wait for a single
+     *                      lookup against the underlying realm instead of each performing its own lookup
+     * @param negativeCache the {@link RealmIdentityCache} instance holding lookups of identities that do not exist, or
+     *                      {@code null} if those lookups should not be cached
+     */
+    public CachingSecurityRealm(CacheableSecurityRealm realm, RealmIdentityCache cache, boolean coalesceLoads, RealmIdentityCache negativeCache) {
         this.realm = checkNotNullParam("realm", realm);
         this.cache = checkNotNullParam("cache", cache);
+        this.negativeCache = negativeCache;
+        this.pendingLoads = coalesceLoads ? new ConcurrentHashMap<>() : null;
 
         if (realm instanceof CacheableSecurityRealm) {
             CacheableSecurityRealm cacheable = CacheableSecurityRealm.class.cast(realm);
@@ -76,12 +116,83 @@ public class CachingSecurityRealm implements SecurityRealm {
             return cached;
         }
 
+        if (negativeCache != null && negativeCache.get(principal) != null) {
+            return RealmIdentity.NON_EXISTENT;
+        }
+
+        if (pendingLoads == null) {
+            return loadRealmIdentity(principal);
+        }
+
+        CompletableFuture<RealmIdentity> load = new CompletableFuture<>();
+        CompletableFuture<RealmIdentity> pending = pendingLoads.putIfAbsent(principal, load);
+
+        if (pending != null) {
+            coalescedLoads.increment();
+            return awaitLoad(pending);
+        }
+
+        try {
+            // the identity may have been cached by a load that completed after our first lookup
+            RealmIdentity realmIdentity = cache.get(principal);
+            if (realmIdentity == null) {
+                long invalidationCount = invalidations.get();
+                realmIdentity = getCacheableRealm().getRealmIdentity(principal);
+                if (! realmIdentity.exists()) {
+                    cacheNonExistent(principal, invalidationCount);
+                    // only cached identities are safe to share, the loading thread owns any other identity
+                    load.complete(RealmIdentity.NON_EXISTENT);
+                    return realmIdentity;
+                }
+                realmIdentity = cacheRealmIdentity(principal, realmIdentity);
+            }
+            load.complete(realmIdentity);
+            return realmIdentity;
+        } catch (RealmUnavailableException | RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingLoads.remove(principal, load);
+        }
+    }
+
+    private RealmIdentity awaitLoad(CompletableFuture<RealmIdentity> pending) throws RealmUnavailableException {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RealmUnavailableException) {
+                throw (RealmUnavailableException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private RealmIdentity loadRealmIdentity(Principal principal) throws RealmUnavailableException {
+        long invalidationCount = invalidations.get();
         RealmIdentity realmIdentity = getCacheableRealm().getRealmIdentity(principal);
 
         if (!realmIdentity.exists()) {
+            cacheNonExistent(principal, invalidationCount);
             return realmIdentity;
         }
 
+        return cacheRealmIdentity(principal, realmIdentity);
+    }
+
+    private void cacheNonExistent(Principal principal, long invalidationCount) {
+        if (negativeCache != null) {
+            negativeCache.put(principal, RealmIdentity.NON_EXISTENT);
+            // an identity may have been created while it was being looked up
+            if (invalidations.get() != invalidationCount) {
+                negativeCache.remove(principal);
+            }
+        }
+    }
+
+    private RealmIdentity cacheRealmIdentity(Principal principal, RealmIdentity realmIdentity) {
         RealmIdentity cachedIdentity = new RealmIdentity() {
             final RealmIdentity identity = realmIdentity;
 
@@ -245,14 +356,33 @@ public class CachingSecurityRealm implements SecurityRealm {
      * @param principal the {@link Principal} that references a previously cached realm identity
      */
     public void removeFromCache(Principal principal) {
+        invalidations.incrementAndGet();
         cache.remove(principal);
+        if (negativeCache != null) {
+            // the negative cache is keyed on the looked up principal, which can differ from the realm principal
+            negativeCache.clear();
+        }
     }
 
     /**
      * Removes all cached identities from the cache.
      */
     public void removeAllFromCache() {
+        invalidations.incrementAndGet();
         cache.clear();
+        if (negativeCache != null) {
+            negativeCache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that waited for an in-flight lookup of the same {@link Principal} instead of querying
+     * the underlying realm. This is always {@code 0} unless coalescing of loads is enabled.
+     *
+     * @return the number of coalesced lookups
+     */
+    public long getCoalescedLoadCount() {
+        return coalescedLoads.sum();
     }
 
     protected CacheableSecurityRealm getCacheableRealm() {
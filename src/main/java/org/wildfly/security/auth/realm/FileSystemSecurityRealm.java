@@ -37,6 +37,8 @@ import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.security.AccessController;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
@@ -59,6 +61,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
@@ -104,6 +107,10 @@ import org.wildfly.security.util.CodePointIterator;
 /**
  * A simple filesystem-backed security realm.
  *
+ * Each identity file is parsed at most once for each {@link RealmIdentity} handle. Optionally the parsed identities can
+ * also be cached by the realm across handles, in which case a cached identity is used for as long as the last modified
+ * time, size and file key of its file are unchanged.
+ *
  * @author <a href="mailto:david.lloyd@redhat.com">David M. Lloyd</a>
  */
 public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRealm {
@@ -111,12 +118,15 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
     static final String ELYTRON_1_0 = "urn:elytron:1.0";
     static final ElytronPermission CREATE_SECURITY_REALM = ElytronPermission.forName("createSecurityRealm");
 
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
     private final Path root;
     private final NameRewriter nameRewriter;
     private final int levels;
     private final boolean encoded;
 
-    private final ConcurrentHashMap<String, IdentitySharedExclusiveLock> realmIdentityLocks = new ConcurrentHashMap<>();
+    private final IdentitySharedExclusiveLockTable realmIdentityLocks = new IdentitySharedExclusiveLockTable();
+    private final ConcurrentHashMap<String, CachedIdentity> identityCache;
 
     /**
      * Construct a new instance.
@@ -125,8 +135,9 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
      * @param nameRewriter the name rewriter to apply to looked up names
      * @param levels the number of levels of directory hashing to apply
      * @param encoded whether identity names should by BASE32 encoded before using as filename
+     * @param cacheIdentities whether parsed identities should be cached until their file is modified
      */
-    public FileSystemSecurityRealm(final Path root, final NameRewriter nameRewriter, final int levels, final boolean encoded) {
+    public FileSystemSecurityRealm(final Path root, final NameRewriter nameRewriter, final int levels, final boolean encoded, final boolean cacheIdentities) {
         final SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
             sm.checkPermission(CREATE_SECURITY_REALM);
@@ -135,6 +146,19 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         this.nameRewriter = nameRewriter;
         this.levels = levels;
         this.encoded = encoded;
+        this.identityCache = cacheIdentities ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param root the root path of the identity store
+     * @param nameRewriter the name rewriter to apply to looked up names
+     * @param levels the number of levels of directory hashing to apply
+     * @param encoded whether identity names should by BASE32 encoded before using as filename
+     */
+    public FileSystemSecurityRealm(final Path root, final NameRewriter nameRewriter, final int levels, final boolean encoded) {
+        this(root, nameRewriter, levels, encoded, false);
     }
 
     /**
@@ -167,6 +191,15 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         this(root, NameRewriter.IDENTITY_REWRITER, 2, true);
     }
 
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return inputFactory;
+    }
+
     private Path pathFor(String name) {
         assert name.codePointCount(0, name.length()) > 0;
         String normalizedName = name;
@@ -230,12 +263,11 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         }
 
         // Acquire the appropriate lock for the realm identity
-        IdentitySharedExclusiveLock realmIdentityLock = getRealmIdentityLockForName(finalName);
         IdentityLock lock;
         if (exclusive) {
-            lock = realmIdentityLock.lockExclusive();
+            lock = realmIdentityLocks.lockExclusive(finalName);
         } else {
-            lock = realmIdentityLock.lockShared();
+            lock = realmIdentityLocks.lockShared(finalName);
         }
         return new Identity(finalName, pathFor(finalName), lock);
     }
@@ -347,18 +379,6 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         return SupportLevel.POSSIBLY_SUPPORTED;
     }
 
-    private IdentitySharedExclusiveLock getRealmIdentityLockForName(final String name) {
-        IdentitySharedExclusiveLock realmIdentityLock = realmIdentityLocks.get(name);
-        if (realmIdentityLock == null) {
-            final IdentitySharedExclusiveLock newRealmIdentityLock = new IdentitySharedExclusiveLock();
-            realmIdentityLock = realmIdentityLocks.putIfAbsent(name, newRealmIdentityLock);
-            if (realmIdentityLock == null) {
-                realmIdentityLock = newRealmIdentityLock;
-            }
-        }
-        return realmIdentityLock;
-    }
-
     @FunctionalInterface
     interface CredentialParseFunction {
         void parseCredential(String algorithm, String format, String body) throws RealmUnavailableException, XMLStreamException;
@@ -373,6 +393,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         private final String name;
         private final Path path;
         private IdentityLock lock;
+        private volatile LoadedIdentity loadedIdentity;
 
         Identity(final String name, final Path path, final IdentityLock lock) {
             this.name = name;
@@ -431,7 +452,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
             Assert.checkNotNullParam("evidence", evidence);
 
             if (ElytronMessages.log.isTraceEnabled()) {
-                final LoadedIdentity loadedIdentity = loadIdentity(false, true);
+                final LoadedIdentity loadedIdentity = loadIdentity();
                 ElytronMessages.log.tracef("Trying to authenticate identity %s using FileSystemSecurityRealm",
                         (loadedIdentity != null) ? loadedIdentity.getName() : "null");
             }
@@ -450,7 +471,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         }
 
         private List<Credential> loadCredentials() throws RealmUnavailableException {
-            final LoadedIdentity loadedIdentity = loadIdentity(false, true);
+            final LoadedIdentity loadedIdentity = loadIdentity();
             return loadedIdentity == null ? Collections.emptyList() : loadedIdentity.getCredentials();
         }
 
@@ -477,6 +498,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         }
 
         private Void deletePrivileged() throws RealmUnavailableException {
+            invalidate();
             try {
                 Files.delete(path);
                 return null;
@@ -526,6 +548,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         }
 
         private Void createPrivileged() throws RealmUnavailableException {
+            invalidate();
             for (;;) {
                 final Path tempPath = tempPath();
                 final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newFactory();
@@ -571,7 +594,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
 
         public void setCredentials(final Collection<? extends Credential> credentials) throws RealmUnavailableException {
             Assert.checkNotNullParam("credential", credentials);
-            final LoadedIdentity loadedIdentity = loadIdentity(false, false);
+            final LoadedIdentity loadedIdentity = loadIdentity();
             if (loadedIdentity == null) {
                 throw ElytronMessages.log.fileSystemRealmNotFound(name);
             }
@@ -582,7 +605,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
 
         public void setAttributes(final Attributes attributes) throws RealmUnavailableException {
             Assert.checkNotNullParam("attributes", attributes);
-            final LoadedIdentity loadedIdentity = loadIdentity(false, true);
+            final LoadedIdentity loadedIdentity = loadIdentity();
             if (loadedIdentity == null) {
                 throw ElytronMessages.log.fileSystemRealmNotFound(name);
             }
@@ -592,7 +615,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
 
         @Override
         public Attributes getAttributes() throws RealmUnavailableException {
-            final LoadedIdentity loadedIdentity = loadIdentity(true, false);
+            final LoadedIdentity loadedIdentity = loadIdentity();
             if (loadedIdentity == null) {
                 throw ElytronMessages.log.fileSystemRealmNotFound(name);
             }
@@ -615,6 +638,7 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         }
 
         private Void replaceIdentityPrivileged(final LoadedIdentity newIdentity) throws RealmUnavailableException {
+            invalidate();
             for (;;) {
                 final Path tempPath = tempPath();
                 try {
@@ -737,6 +761,13 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
             streamWriter.writeEndDocument();
         }
 
+        private void invalidate() {
+            loadedIdentity = null;
+            if (identityCache != null) {
+                identityCache.remove(name);
+            }
+        }
+
         public void dispose() {
             // Release the lock for this realm identity
             IdentityLock identityLock = lock;
@@ -747,16 +778,24 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         }
 
         public AuthorizationIdentity getAuthorizationIdentity() throws RealmUnavailableException {
-            final LoadedIdentity loadedIdentity = loadIdentity(true, false);
-            return loadedIdentity == null ? AuthorizationIdentity.EMPTY : AuthorizationIdentity.basicIdentity(loadedIdentity.getAttributes());
+            final LoadedIdentity loadedIdentity = loadIdentity();
+            if (loadedIdentity == null) {
+                return AuthorizationIdentity.EMPTY;
+            }
+            // a cached identity is shared, so callers get their own modifiable copy of its attributes
+            return AuthorizationIdentity.basicIdentity(identityCache != null ? new MapAttributes(loadedIdentity.getAttributes()) : loadedIdentity.getAttributes());
         }
 
-        private LoadedIdentity loadIdentity(final boolean skipCredentials, final boolean skipAttributes) throws RealmUnavailableException {
+        private LoadedIdentity loadIdentity() throws RealmUnavailableException {
+            final LoadedIdentity loadedIdentity = this.loadedIdentity;
+            if (loadedIdentity != null) {
+                return loadedIdentity;
+            }
             if (System.getSecurityManager() == null) {
-                return loadIdentityPrivileged(skipCredentials, skipAttributes);
+                return loadIdentityPrivileged();
             }
             try {
-                return AccessController.doPrivileged((PrivilegedExceptionAction<LoadedIdentity>) () -> loadIdentityPrivileged(skipCredentials, skipAttributes));
+                return AccessController.doPrivileged((PrivilegedExceptionAction<LoadedIdentity>) this::loadIdentityPrivileged);
             } catch (PrivilegedActionException e) {
                 if (e.getException() instanceof RealmUnavailableException) {
                     throw (RealmUnavailableException) e.getException();
@@ -765,16 +804,37 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
             }
         }
 
-        private LoadedIdentity loadIdentityPrivileged(final boolean skipCredentials, final boolean skipAttributes) throws RealmUnavailableException {
+        private LoadedIdentity loadIdentityPrivileged() throws RealmUnavailableException {
+            if (identityCache == null) {
+                return loadedIdentity = readIdentity();
+            }
+            final BasicFileAttributes fileAttributes;
+            try {
+                fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException ignored) {
+                identityCache.remove(name);
+                return null;
+            } catch (IOException e) {
+                throw ElytronMessages.log.fileSystemRealmFailedToOpen(path, name, e);
+            }
+            final CachedIdentity cachedIdentity = identityCache.get(name);
+            if (cachedIdentity != null && cachedIdentity.isCurrent(fileAttributes)) {
+                return loadedIdentity = cachedIdentity.getIdentity();
+            }
+            LoadedIdentity readIdentity = readIdentity();
+            if (readIdentity != null) {
+                readIdentity = new LoadedIdentity(readIdentity.getName(), Collections.unmodifiableList(readIdentity.getCredentials()), readIdentity.getAttributes().asReadOnly());
+                // the file attributes were read before the file, so a concurrent external change is detected on the next load
+                identityCache.put(name, new CachedIdentity(readIdentity, fileAttributes));
+            }
+            return loadedIdentity = readIdentity;
+        }
+
+        private LoadedIdentity readIdentity() throws RealmUnavailableException {
             try (InputStream inputStream = Files.newInputStream(path, READ)) {
-                final XMLInputFactory inputFactory = XMLInputFactory.newFactory();
-                inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
-                inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
-                inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
-                inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
-                try (final AutoCloseableXMLStreamReaderHolder holder = new AutoCloseableXMLStreamReaderHolder(inputFactory.createXMLStreamReader(inputStream, "UTF-8"))) {
+                try (final AutoCloseableXMLStreamReaderHolder holder = new AutoCloseableXMLStreamReaderHolder(INPUT_FACTORY.createXMLStreamReader(inputStream, "UTF-8"))) {
                     final XMLStreamReader streamReader = holder.getXmlStreamReader();
-                    return parseIdentity(streamReader, skipCredentials, skipAttributes);
+                    return parseIdentity(streamReader, false, false);
                 } catch (XMLStreamException e) {
                     throw ElytronMessages.log.fileSystemRealmFailedToRead(path, name, e);
                 }
@@ -1080,6 +1140,28 @@ public final class FileSystemSecurityRealm implements ModifiableSecurityRealm, C
         }
     }
 
+    static final class CachedIdentity {
+        private final LoadedIdentity identity;
+        private final FileTime lastModifiedTime;
+        private final long size;
+        private final Object fileKey;
+
+        CachedIdentity(final LoadedIdentity identity, final BasicFileAttributes fileAttributes) {
+            this.identity = identity;
+            this.lastModifiedTime = fileAttributes.lastModifiedTime();
+            this.size = fileAttributes.size();
+            this.fileKey = fileAttributes.fileKey();
+        }
+
+        LoadedIdentity getIdentity() {
+            return identity;
+        }
+
+        boolean isCurrent(final BasicFileAttributes fileAttributes) {
+            return lastModifiedTime.equals(fileAttributes.lastModifiedTime()) && size == fileAttributes.size() && Objects.equals(fileKey, fileAttributes.fileKey());
+        }
+    }
+
     static class AutoCloseableXMLStreamReaderHolder implements AutoCloseable {
         private final XMLStreamReader xmlStreamReader;
 
@@ -18,42 +18,47 @@
 
 package org.wildfly.security.auth.realm;
 
+import java.util.concurrent.locks.StampedLock;
+
 /**
  * A simple shared/exclusive lock for a realm identity.
  *
+ * The lock is not reentrant and a lock object may be released by a different thread than the one which acquired it.
+ * The lock has no fairness policy: waiting exclusive lock requests are usually granted before new shared lock requests,
+ * but neither kind of request is guaranteed to be preferred over the other.
+ *
  * @author <a href="mailto:fjuma@redhat.com">Farah Juma</a>
  */
 public class IdentitySharedExclusiveLock {
 
-    private int sharedHoldCount;
-    private boolean isExclusiveLocked;
-    private int exclusiveRequests;
+    private final StampedLock lock = new StampedLock();
+    private final IdentitySharedExclusiveLockTable table;
+    private final String name;
+
+    /**
+     * The number of holders and waiters of this lock, guarded by the table mapping of this lock.
+     */
+    int references;
+
+    /**
+     * Construct a new instance.
+     */
+    public IdentitySharedExclusiveLock() {
+        this(null, null);
+    }
+
+    IdentitySharedExclusiveLock(final IdentitySharedExclusiveLockTable table, final String name) {
+        this.table = table;
+        this.name = name;
+    }
 
     /**
      * Acquire the exclusive lock. An invocation of this method will block until the lock can be acquired.
      *
      * @return a lock object representing the newly acquired lock
      */
-    public synchronized IdentityLock lockExclusive() {
-        boolean interrupted = false;
-        try {
-            exclusiveRequests++;
-            while ((sharedHoldCount > 0) || isExclusiveLocked) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    interrupted = true;
-                }
-            }
-            isExclusiveLocked = true;
-            exclusiveRequests--;
-            return new IdentityLock(true);
-        } finally {
-            if (interrupted) {
-                Thread.currentThread().interrupt();
-            }
-        }
-
+    public IdentityLock lockExclusive() {
+        return new IdentityLock(true, lock.writeLock());
     }
 
     /**
@@ -61,35 +66,23 @@ public class IdentitySharedExclusiveLock {
      *
      * @return a lock object representing the newly acquired lock
      */
-    public synchronized IdentityLock lockShared() {
-        boolean interrupted = false;
-        try {
-            while (isExclusiveLocked || (exclusiveRequests > 0)) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    interrupted = true;
-                }
-            }
-            sharedHoldCount++;
-            return new IdentityLock(false);
-        } finally {
-            if (interrupted) {
-                Thread.currentThread().interrupt();
-            }
-        }
+    public IdentityLock lockShared() {
+        return new IdentityLock(false, lock.readLock());
     }
 
-    private synchronized void release(IdentityLock identityLock) {
-        if (identityLock.isExclusive()) {
-            isExclusiveLocked = false;
-            notifyAll();
-        } else {
-            if (--sharedHoldCount == 0) {
-                notifyAll();
-            }
-        }
+    String getName() {
+        return name;
+    }
 
+    private void release(IdentityLock identityLock) {
+        // a lock object constructed directly was not acquired, so it neither holds the lock nor references it in the table
+        if (identityLock.stamp == 0L) {
+            return;
+        }
+        lock.unlock(identityLock.stamp);
+        if (table != null) {
+            table.dereference(this);
+        }
     }
 
     /**
@@ -100,6 +93,7 @@ public class IdentitySharedExclusiveLock {
     public class IdentityLock implements AutoCloseable {
 
         private final boolean exclusive;
+        private final long stamp;
         private volatile boolean valid = true;
 
         /**
@@ -108,7 +102,12 @@ public class IdentitySharedExclusiveLock {
          * @param exclusive {@code true} if this lock is exclusive, {@code false} if this lock is shared
          */
         public IdentityLock(final boolean exclusive) {
+            this(exclusive, 0L);
+        }
+
+        IdentityLock(final boolean exclusive, final long stamp) {
             this.exclusive = exclusive;
+            this.stamp = stamp;
         }
 
         /**
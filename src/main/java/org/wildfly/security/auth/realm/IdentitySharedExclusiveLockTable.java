@@ -0,0 +1,87 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm;
+
+import static org.wildfly.common.Assert.checkNotNullParam;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.wildfly.security.auth.realm.IdentitySharedExclusiveLock.IdentityLock;
+
+/**
+ * A table of {@link IdentitySharedExclusiveLock} instances keyed by identity name.
+ *
+ * A lock only stays in the table while it is held or waited for, so the size of the table is bounded by the number of
+ * identities currently in use rather than by the number of names ever looked up.
+ */
+public final class IdentitySharedExclusiveLockTable {
+
+    private final ConcurrentHashMap<String, IdentitySharedExclusiveLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Acquire the exclusive lock for the given identity name. An invocation of this method will block until the lock
+     * can be acquired.
+     *
+     * @param name the identity name (must not be {@code null})
+     * @return a lock object representing the newly acquired lock
+     */
+    public IdentityLock lockExclusive(final String name) {
+        return reference(name).lockExclusive();
+    }
+
+    /**
+     * Acquire a shared lock for the given identity name. An invocation of this method will block until the lock can be
+     * acquired.
+     *
+     * @param name the identity name (must not be {@code null})
+     * @return a lock object representing the newly acquired lock
+     */
+    public IdentityLock lockShared(final String name) {
+        return reference(name).lockShared();
+    }
+
+    /**
+     * Get the number of identity names with a lock which is currently held or waited for.
+     *
+     * @return the number of identity names with a lock in use
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    private IdentitySharedExclusiveLock reference(final String name) {
+        checkNotNullParam("name", name);
+        return locks.compute(name, (key, lock) -> {
+            if (lock == null) {
+                lock = new IdentitySharedExclusiveLock(this, key);
+            }
+            lock.references++;
+            return lock;
+        });
+    }
+
+    void dereference(final IdentitySharedExclusiveLock lock) {
+        locks.computeIfPresent(lock.getName(), (key, current) -> {
+            if (current != lock) {
+                return current;
+            }
+            return --current.references == 0 ? null : current;
+        });
+    }
+}
@@ -39,8 +39,18 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -56,14 +66,23 @@ public class JdbcSecurityRealm implements CacheableSecurityRealm {
 
     private final Supplier<Provider[]> providers;
     private final List<QueryConfiguration> queryConfiguration;
+    private final boolean bufferQueryResults;
+    private final Executor executor;
+    private final long queryTimeout;
+    private final boolean cacheStatements;
 
     public static JdbcSecurityRealmBuilder builder() {
         return new JdbcSecurityRealmBuilder();
     }
 
-    JdbcSecurityRealm(List<QueryConfiguration> queryConfiguration, Supplier<Provider[]> providers) {
+    JdbcSecurityRealm(List<QueryConfiguration> queryConfiguration, Supplier<Provider[]> providers, boolean bufferQueryResults, Executor executor, long queryTimeout,
+                      boolean cacheStatements) {
         this.queryConfiguration = queryConfiguration;
         this.providers = providers;
+        this.bufferQueryResults = bufferQueryResults;
+        this.executor = executor;
+        this.queryTimeout = queryTimeout;
+        this.cacheStatements = cacheStatements;
     }
 
     @Override
@@ -113,9 +132,16 @@ public class JdbcSecurityRealm implements CacheableSecurityRealm {
 
         private final String name;
         private JdbcIdentity identity;
+        private final Map<QueryConfiguration, QueryResultBuffer> bufferedResults;
+        private final Set<Statement> runningStatements;
+        private final PreparedStatementCache statementCache;
 
         public JdbcRealmIdentity(String name) {
             this.name = name;
+            // the queries of an identity may be executed concurrently
+            this.bufferedResults = bufferQueryResults ? new ConcurrentHashMap<>() : null;
+            this.runningStatements = isParallel() ? ConcurrentHashMap.newKeySet() : null;
+            this.statementCache = cacheStatements ? new PreparedStatementCache(this::getConnection) : null;
         }
 
         public Principal getRealmIdentityPrincipal() {
@@ -217,56 +243,154 @@ public class JdbcSecurityRealm implements CacheableSecurityRealm {
             return AuthorizationIdentity.basicIdentity(this.identity.attributes);
         }
 
+        @Override
+        public void dispose() {
+            if (statementCache != null) {
+                statementCache.close();
+            }
+        }
+
         private JdbcIdentity getIdentity() {
             if (this.identity == null) {
-                this.identity = JdbcSecurityRealm.this.queryConfiguration.stream().map(queryConfiguration -> executePrincipalQuery(queryConfiguration, resultSet -> {
-                    if (resultSet.next()) {
-                        MapAttributes attributes = new MapAttributes();
-
-                        do {
-                            queryConfiguration.getColumnMappers(AttributeMapper.class).forEach(attributeMapper -> {
-                                try {
-                                    Object value = attributeMapper.map(resultSet, providers);
-
-                                    if (value != null) {
-                                        attributes.addFirst(attributeMapper.getName(), value.toString());
-                                    }
-                                } catch (SQLException cause) {
-                                    throw log.ldapRealmFailedObtainAttributes(this.name, cause);
+                if (isParallel()) {
+                    this.identity = getIdentityInParallel();
+                } else {
+                    this.identity = JdbcSecurityRealm.this.queryConfiguration.stream()
+                            .map(this::getAttributes)
+                            .collect(Collectors.reducing(this::mergeAttributes))
+                            .map(attributes -> {
+                                List<Credential> credentials = new ArrayList<>();
+
+                                for (QueryConfiguration configuration : queryConfiguration) {
+                                    credentials.addAll(getCredentials(configuration));
                                 }
-                            });
-                        } while (resultSet.next());
 
-                        return attributes;
-                    }
+                                return new JdbcIdentity(attributes, credentials);
+                            }).orElse(null);
+                }
+            }
 
-                    return null;
-                })).collect(Collectors.reducing((lAttribute, rAttribute) -> {
-                    if (rAttribute == null) {
-                        return lAttribute;
-                    }
+            return this.identity;
+        }
 
-                    MapAttributes attributes = new MapAttributes(lAttribute);
+        private JdbcIdentity getIdentityInParallel() {
+            final List<CompletableFuture<QueryResult>> futures = new ArrayList<>(queryConfiguration.size());
+            boolean ok = false;
 
-                    for (Attributes.Entry rEntry : rAttribute.entries()) {
-                        attributes.get(rEntry.getKey()).addAll(rEntry);
-                    }
+            try {
+                for (QueryConfiguration configuration : queryConfiguration) {
+                    futures.add(executeAsync(() -> new QueryResult(getAttributes(configuration), getCredentials(configuration))));
+                }
+
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeout);
+                MapAttributes attributes = null;
+                List<Credential> credentials = new ArrayList<>();
+
+                // results are merged in the order of the queries, whatever the order they complete in
+                for (int i = 0; i < futures.size(); i++) {
+                    final QueryResult result = awaitQueryResult(futures.get(i), queryConfiguration.get(i).getSql(), deadline);
+                    attributes = mergeAttributes(attributes, result.attributes);
+                    credentials.addAll(result.credentials);
+                }
+
+                ok = true;
+                return attributes == null ? null : new JdbcIdentity(attributes, credentials);
+            } finally {
+                if (! ok) {
+                    futures.forEach(future -> future.cancel(false));
+                    // the queries still running are cancelled, so that their connections are released
+                    runningStatements.forEach(this::cancelStatement);
+                }
+            }
+        }
+
+        private CompletableFuture<QueryResult> executeAsync(Supplier<QueryResult> task) {
+            try {
+                return CompletableFuture.supplyAsync(task, executor);
+            } catch (RejectedExecutionException e) {
+                return CompletableFuture.completedFuture(task.get());
+            }
+        }
+
+        private QueryResult awaitQueryResult(CompletableFuture<QueryResult> future, String sql, long deadline) {
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw log.couldNotExecuteQueryInTime(sql, queryTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw log.couldNotExecuteQuery(sql, e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw log.unexpectedErrorWhenProcessingAuthenticationQuery(sql, cause);
+            }
+        }
+
+        private void cancelStatement(Statement statement) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                log.tracef(e, "Cancelling principalQuery with value %s failed", name);
+            }
+        }
+
+        private MapAttributes getAttributes(QueryConfiguration queryConfiguration) {
+            return executePrincipalQuery(queryConfiguration, resultSet -> {
+                if (resultSet.next()) {
+                    MapAttributes attributes = new MapAttributes();
+
+                    do {
+                        queryConfiguration.getColumnMappers(AttributeMapper.class).forEach(attributeMapper -> {
+                            try {
+                                Object value = attributeMapper.map(resultSet, providers);
+
+                                if (value != null) {
+                                    attributes.addFirst(attributeMapper.getName(), value.toString());
+                                }
+                            } catch (SQLException cause) {
+                                throw log.ldapRealmFailedObtainAttributes(this.name, cause);
+                            }
+                        });
+                    } while (resultSet.next());
 
                     return attributes;
-                })).map(attributes -> {
-                    List<Credential> credentials = new ArrayList<>();
+                }
 
-                    for (QueryConfiguration configuration : queryConfiguration) {
-                        for (KeyMapper keyMapper : configuration.getColumnMappers(KeyMapper.class)) {
-                            credentials.add(executePrincipalQuery(configuration, r -> keyMapper.map(r, providers)));
-                        }
-                    }
+                return null;
+            });
+        }
 
-                    return new JdbcIdentity(attributes, credentials);
-                }).orElse(null);
+        private MapAttributes mergeAttributes(MapAttributes lAttribute, MapAttributes rAttribute) {
+            if (rAttribute == null) {
+                return lAttribute;
             }
 
-            return this.identity;
+            if (lAttribute == null) {
+                return rAttribute;
+            }
+
+            MapAttributes attributes = new MapAttributes(lAttribute);
+
+            for (Attributes.Entry rEntry : rAttribute.entries()) {
+                attributes.get(rEntry.getKey()).addAll(rEntry);
+            }
+
+            return attributes;
+        }
+
+        private List<Credential> getCredentials(QueryConfiguration configuration) {
+            List<Credential> credentials = new ArrayList<>();
+
+            for (KeyMapper keyMapper : configuration.getColumnMappers(KeyMapper.class)) {
+                credentials.add(executePrincipalQuery(configuration, r -> keyMapper.map(r, providers)));
+            }
+
+            return credentials;
         }
 
         private Connection getConnection(QueryConfiguration configuration) {
@@ -279,25 +403,91 @@ public class JdbcSecurityRealm implements CacheableSecurityRealm {
         }
 
         private <E> E executePrincipalQuery(QueryConfiguration configuration, ResultSetCallback<E> resultSetCallback) {
+            if (! bufferQueryResults) {
+                return executeQuery(configuration, resultSetCallback);
+            }
+
+            QueryResultBuffer rows = getBufferedResults(configuration);
+            String sql = configuration.getSql();
+
+            try (
+                    ResultSet resultSet = rows.newResultSet()
+            ) {
+                return resultSetCallback.handle(resultSet);
+            } catch (SQLException e) {
+                throw log.couldNotExecuteQuery(sql, e);
+            } catch (Exception e) {
+                throw log.unexpectedErrorWhenProcessingAuthenticationQuery(sql, e);
+            }
+        }
+
+        private QueryResultBuffer getBufferedResults(QueryConfiguration configuration) {
+            return this.bufferedResults.computeIfAbsent(configuration, c -> executeQuery(c, QueryResultBuffer::read));
+        }
+
+        private <E> E executeQuery(QueryConfiguration configuration, ResultSetCallback<E> resultSetCallback) {
             String sql = configuration.getSql();
 
             log.tracef("Executing principalQuery %s with value %s", sql, name);
 
+            if (statementCache != null) {
+                try {
+                    return statementCache.executeQuery(configuration, preparedStatement -> executeQuery(preparedStatement, resultSetCallback));
+                } catch (SQLException e) {
+                    throw log.couldNotExecuteQuery(sql, e);
+                } catch (Exception e) {
+                    throw log.unexpectedErrorWhenProcessingAuthenticationQuery(sql, e);
+                }
+            }
+
             try (
                     Connection connection = getConnection(configuration);
-                    PreparedStatement preparedStatement = connection.prepareStatement(sql)
+                    PreparedStatement preparedStatement = configuration.prepareStatement(connection)
             ) {
-                preparedStatement.setString(1, name);
+                return executeQuery(preparedStatement, resultSetCallback);
+            } catch (SQLException e) {
+                throw log.couldNotExecuteQuery(sql, e);
+            } catch (Exception e) {
+                throw log.unexpectedErrorWhenProcessingAuthenticationQuery(sql, e);
+            }
+        }
+
+        private <E> E executeQuery(PreparedStatement preparedStatement, ResultSetCallback<E> resultSetCallback) throws SQLException {
+            preparedStatement.setString(1, name);
 
+            if (runningStatements == null) {
                 try (
                         ResultSet resultSet = preparedStatement.executeQuery()
                 ) {
                     return resultSetCallback.handle(resultSet);
                 }
-            } catch (SQLException e) {
-                throw log.couldNotExecuteQuery(sql, e);
-            } catch (Exception e) {
-                throw log.unexpectedErrorWhenProcessingAuthenticationQuery(sql, e);
+            }
+
+            // a query executed in parallel does not outlive the time the identity waits for it
+            final int timeoutSeconds = (int) Math.min(Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toSeconds(queryTimeout + 999));
+            final int queryTimeoutSeconds = preparedStatement.getQueryTimeout();
+            if (queryTimeoutSeconds == 0 || queryTimeoutSeconds > timeoutSeconds) {
+                preparedStatement.setQueryTimeout(timeoutSeconds);
+            }
+
+            runningStatements.add(preparedStatement);
+            try (
+                    ResultSet resultSet = preparedStatement.executeQuery()
+            ) {
+                return resultSetCallback.handle(resultSet);
+            } finally {
+                runningStatements.remove(preparedStatement);
+            }
+        }
+
+        private class QueryResult {
+
+            private final MapAttributes attributes;
+            private final List<Credential> credentials;
+
+            QueryResult(MapAttributes attributes, List<Credential> credentials) {
+                this.attributes = attributes;
+                this.credentials = credentials;
             }
         }
 
@@ -313,6 +503,10 @@ public class JdbcSecurityRealm implements CacheableSecurityRealm {
         }
     }
 
+    private boolean isParallel() {
+        return executor != null && queryConfiguration.size() > 1;
+    }
+
     private interface ResultSetCallback<E> {
         E handle(ResultSet resultSet) throws SQLException;
     }
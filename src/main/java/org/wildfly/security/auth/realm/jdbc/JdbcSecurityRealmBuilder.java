@@ -21,8 +21,10 @@ import java.security.Provider;
 import java.security.Security;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
+import org.wildfly.common.Assert;
 import org.wildfly.security.auth.server.RealmIdentity;
 
 /**
@@ -34,6 +36,10 @@ public class JdbcSecurityRealmBuilder {
 
     private Supplier<Provider[]> providers = Security::getProviders;
     private List<QueryBuilder> queries = new ArrayList<>();
+    private boolean bufferQueryResults;
+    private Executor executor;
+    private long queryTimeout;
+    private boolean cacheStatements;
 
     JdbcSecurityRealmBuilder() {
     }
@@ -50,7 +56,7 @@ public class JdbcSecurityRealmBuilder {
             configuration.add(query.buildQuery());
         }
 
-        return new JdbcSecurityRealm(configuration, providers);
+        return new JdbcSecurityRealm(configuration, providers, bufferQueryResults, executor, queryTimeout, cacheStatements);
     }
 
     /**
@@ -65,6 +71,68 @@ public class JdbcSecurityRealmBuilder {
         return this;
     }
 
+    /**
+     * Set whether each principal query should be executed at most once per {@link RealmIdentity}.
+     *
+     * <p>When enabled, the rows returned by a query are buffered in memory by the realm identity the first time the query is
+     * needed, and all the mappers of the query read from that buffer instead of executing the query again. This avoids
+     * executing the same query several times during a single authentication, but changes to the underlying database are
+     * not visible to a realm identity once its rows are buffered.
+     *
+     * <p>The mappers then read the rows from a read only, scrollable result set of the buffered column values, which
+     * supports the getters of {@link java.sql.ResultSet} but is not bound to any statement. Large objects are copied
+     * into memory, and binary values read as strings are encoded in hexadecimal.
+     *
+     * @param bufferQueryResults {@code true} to execute each query at most once per realm identity, {@code false} otherwise
+     * @return this builder.
+     */
+    public JdbcSecurityRealmBuilder setBufferQueryResults(boolean bufferQueryResults) {
+        this.bufferQueryResults = bufferQueryResults;
+
+        return this;
+    }
+
+    /**
+     * Set the executor used to execute the principal queries of an identity in parallel.
+     *
+     * <p>When the realm is configured with more than one principal query, for example to obtain the credentials and the
+     * attributes of an identity from different databases, the queries are executed concurrently, each one using its own
+     * connection. The results are always merged in the order the queries were defined. If a query does not complete
+     * within the given timeout, obtaining the identity fails and the queries still running are cancelled. The timeout,
+     * rounded up to seconds, is also used as the query timeout of the statements, unless a shorter one is set on the query.
+     *
+     * @param executor the executor used to execute the queries, typically bounded (must not be {@code null})
+     * @param queryTimeout the maximum time in milliseconds to wait for each query to complete
+     * @return this builder.
+     */
+    public JdbcSecurityRealmBuilder setParallelQueries(Executor executor, long queryTimeout) {
+        Assert.checkNotNullParam("executor", executor);
+        Assert.checkMinimumParameter("queryTimeout", 1, queryTimeout);
+        this.executor = executor;
+        this.queryTimeout = queryTimeout;
+
+        return this;
+    }
+
+    /**
+     * Set whether the statements of the principal queries should be prepared once per {@link RealmIdentity}, for data
+     * sources which do not cache statements themselves.
+     *
+     * <p>When enabled, a realm identity obtains one connection per data source the first time one of its queries is
+     * executed, and prepares each query once on that connection however many times the query is executed, for example
+     * to check the support of a credential and then to verify the evidence. The connections and their statements are
+     * held until the realm identity is {@linkplain RealmIdentity#dispose() disposed}.
+     *
+     * @param cacheStatements {@code true} to prepare each query once per realm identity, {@code false} to prepare the
+     *                        query each time it is executed
+     * @return this builder.
+     */
+    public JdbcSecurityRealmBuilder setCacheStatements(boolean cacheStatements) {
+        this.cacheStatements = cacheStatements;
+
+        return this;
+    }
+
     /**
      * <p>A SQL SELECT statement that will be used to return data from a database based on the principal's name.
      *
@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.security.auth.realm.jdbc;
+
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+/**
+ * The statements prepared for a single identity of a {@link JdbcSecurityRealm}, keyed by connection and query, so that
+ * each query is prepared once for the identity however many times it is executed.
+ *
+ * <p>A connection is obtained from a data source the first time one of its queries is executed, and is held with its
+ * statements until the cache is closed. The queries of a connection are executed by one thread at a time, so that the
+ * queries of different data sources can still be executed in parallel.
+ */
+final class PreparedStatementCache implements AutoCloseable {
+
+    private final Function<QueryConfiguration, Connection> connectionFactory;
+    // guarded by this
+    private final Map<DataSource, CachedConnection> connections = new HashMap<>();
+
+    PreparedStatementCache(Function<QueryConfiguration, Connection> connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Execute the given query with its statement, preparing it if it was not prepared yet on the connection of its data source.
+     *
+     * @param configuration the query to execute
+     * @param callback the callback executing the statement
+     * @return the result of the callback
+     * @throws SQLException if preparing or executing the statement failed, in which case the statement is not reused
+     */
+    <E> E executeQuery(QueryConfiguration configuration, StatementCallback<E> callback) throws SQLException {
+        final CachedConnection connection = getConnection(configuration);
+
+        synchronized (connection) {
+            PreparedStatement statement = connection.statements.get(configuration);
+            if (statement == null) {
+                statement = configuration.prepareStatement(connection.connection);
+                connection.statements.put(configuration, statement);
+            }
+
+            try {
+                return callback.handle(statement);
+            } catch (SQLException | RuntimeException e) {
+                connection.statements.remove(configuration);
+                close(statement);
+                throw e;
+            }
+        }
+    }
+
+    private synchronized CachedConnection getConnection(QueryConfiguration configuration) {
+        CachedConnection connection = connections.get(configuration.getDataSource());
+        if (connection == null) {
+            connection = new CachedConnection(connectionFactory.apply(configuration));
+            connections.put(configuration.getDataSource(), connection);
+        }
+        return connection;
+    }
+
+    /**
+     * Close all the statements and release all the connections held by this cache.
+     */
+    @Override
+    public void close() {
+        final List<CachedConnection> connections;
+        synchronized (this) {
+            connections = new ArrayList<>(this.connections.values());
+            this.connections.clear();
+        }
+
+        for (CachedConnection connection : connections) {
+            synchronized (connection) {
+                connection.statements.values().forEach(PreparedStatementCache::close);
+                connection.statements.clear();
+                close(connection.connection);
+            }
+        }
+    }
+
+    private static void close(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            log.tracef(e, "Closing %s failed", closeable);
+        }
+    }
+
+    interface StatementCallback<E> {
+        E handle(PreparedStatement statement) throws SQLException;
+    }
+
+    private static final class CachedConnection {
+
+        private final Connection connection;
+        // guarded by this
+        private final Map<QueryConfiguration, PreparedStatement> statements = new HashMap<>();
+
+        CachedConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+}
@@ -17,10 +17,13 @@
  */
 package org.wildfly.security.auth.realm.jdbc;
 
+import org.wildfly.common.Assert;
+
 import javax.sql.DataSource;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * A builder class with different configuration options to configure queries.
@@ -33,6 +36,8 @@ public class QueryBuilder extends JdbcSecurityRealmBuilder {
     private final JdbcSecurityRealmBuilder parent;
     private List<ColumnMapper> mappers = new ArrayList<>();
     private DataSource dataSource;
+    private int fetchSize;
+    private int queryTimeout;
 
     QueryBuilder(String sql, JdbcSecurityRealmBuilder parent) {
         this.sql = sql;
@@ -61,19 +66,59 @@ public class QueryBuilder extends JdbcSecurityRealmBuilder {
         return this;
     }
 
+    /**
+     * Defines the number of rows that should be fetched from the database at once when more rows are needed, passed to
+     * {@link java.sql.Statement#setFetchSize(int)}.
+     *
+     * @param fetchSize the number of rows to fetch at once, or {@code 0} to use the driver default
+     * @return this builder
+     */
+    public QueryBuilder setFetchSize(int fetchSize) {
+        Assert.checkMinimumParameter("fetchSize", 0, fetchSize);
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Defines the number of seconds the driver will wait for the query to execute, passed to
+     * {@link java.sql.Statement#setQueryTimeout(int)}.
+     *
+     * @param queryTimeout the query timeout in seconds, or {@code 0} for no limit
+     * @return this builder
+     */
+    public QueryBuilder setQueryTimeout(int queryTimeout) {
+        Assert.checkMinimumParameter("queryTimeout", 0, queryTimeout);
+        this.queryTimeout = queryTimeout;
+        return this;
+    }
 
     @Override
     public QueryBuilder principalQuery(String sql) {
         return this.parent.principalQuery(sql);
     }
 
+    @Override
+    public JdbcSecurityRealmBuilder setBufferQueryResults(boolean bufferQueryResults) {
+        return this.parent.setBufferQueryResults(bufferQueryResults);
+    }
+
+    @Override
+    public JdbcSecurityRealmBuilder setParallelQueries(Executor executor, long queryTimeout) {
+        return this.parent.setParallelQueries(executor, queryTimeout);
+    }
+
+    @Override
+    public JdbcSecurityRealmBuilder setCacheStatements(boolean cacheStatements) {
+        return this.parent.setCacheStatements(cacheStatements);
+    }
+
     @Override
     public JdbcSecurityRealm build() {
         return this.parent.build();
     }
 
     QueryConfiguration buildQuery() {
-        return new QueryConfiguration(this.sql, this.dataSource, this.mappers);
+        return new QueryConfiguration(this.sql, this.dataSource, this.mappers, this.fetchSize, this.queryTimeout);
     }
 
 }
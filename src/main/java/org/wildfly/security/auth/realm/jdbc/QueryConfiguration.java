@@ -20,6 +20,9 @@ package org.wildfly.security.auth.realm.jdbc;
 import org.wildfly.common.Assert;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -34,14 +37,22 @@ public class QueryConfiguration {
     private final DataSource dataSource;
     private String sql;
     private List<ColumnMapper> columnMappers = new ArrayList<>();
+    private final int fetchSize;
+    private final int queryTimeout;
 
     QueryConfiguration(String sql, DataSource dataSource, List<ColumnMapper> columnMappers) {
+        this(sql, dataSource, columnMappers, 0, 0);
+    }
+
+    QueryConfiguration(String sql, DataSource dataSource, List<ColumnMapper> columnMappers, int fetchSize, int queryTimeout) {
         Assert.checkNotNullParam("sql", sql);
         Assert.checkNotNullParam("dataSource", dataSource);
         Assert.checkNotNullParam("columnMappers", columnMappers);
         this.sql = sql;
         this.dataSource = dataSource;
         this.columnMappers = columnMappers;
+        this.fetchSize = fetchSize;
+        this.queryTimeout = queryTimeout;
     }
 
     /**
@@ -71,6 +82,32 @@ public class QueryConfiguration {
         return Collections.unmodifiableList(this.columnMappers);
     }
 
+    /**
+     * Prepares the statement of this query on the given connection, applying the fetch size and query timeout of this query.
+     *
+     * @param connection the connection to prepare the statement on
+     * @return the prepared statement
+     * @throws SQLException if the statement could not be prepared
+     */
+    PreparedStatement prepareStatement(Connection connection) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(this.sql);
+
+        try {
+            if (this.fetchSize > 0) {
+                preparedStatement.setFetchSize(this.fetchSize);
+            }
+
+            if (this.queryTimeout > 0) {
+                preparedStatement.setQueryTimeout(this.queryTimeout);
+            }
+        } catch (SQLException e) {
+            preparedStatement.close();
+            throw e;
+        }
+
+        return preparedStatement;
+    }
+
     <T extends ColumnMapper> List<T> getColumnMappers(Class<T> mapperType) {
         List<T> attributeMappers = new ArrayList<>();
 
@@ -0,0 +1,312 @@
+/*
+ * JBoss, Home of Professional Open Source
+ *
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.security.auth.realm.jdbc;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * The rows returned by a query, read into memory so that they can be read again by several mappers once the connection
+ * of the query is released.
+ *
+ * <p>The column values are buffered as returned by {@link ResultSet#getObject(int)}, except for binary and character
+ * large objects which are copied into serializable {@link Blob} and {@link Clob} instances, as the large objects of a
+ * driver may not be readable once the result set is closed.
+ */
+final class QueryResultBuffer {
+
+    private final MetaData metaData;
+    private final List<Object[]> rows;
+
+    private QueryResultBuffer(MetaData metaData, List<Object[]> rows) {
+        this.metaData = metaData;
+        this.rows = rows;
+    }
+
+    /**
+     * Read all the remaining rows of the given result set.
+     *
+     * @param resultSet the result set to read
+     * @return the buffered rows
+     * @throws SQLException if reading the result set failed
+     */
+    static QueryResultBuffer read(ResultSet resultSet) throws SQLException {
+        final MetaData metaData = new MetaData(resultSet.getMetaData());
+        final int columnCount = metaData.getColumnCount();
+        final List<Object[]> rows = new ArrayList<>();
+
+        while (resultSet.next()) {
+            final Object[] row = new Object[columnCount];
+
+            for (int i = 0; i < columnCount; i++) {
+                switch (metaData.columnTypes[i]) {
+                    case Types.BLOB: {
+                        final Blob blob = resultSet.getBlob(i + 1);
+                        row[i] = blob == null ? null : new SerialBlob(blob.getBytes(1, (int) blob.length()));
+                        break;
+                    }
+                    case Types.CLOB:
+                    case Types.NCLOB: {
+                        final Clob clob = resultSet.getClob(i + 1);
+                        row[i] = clob == null ? null : new SerialClob(clob.getSubString(1, (int) clob.length()).toCharArray());
+                        break;
+                    }
+                    default:
+                        row[i] = resultSet.getObject(i + 1);
+                }
+            }
+
+            rows.add(row);
+        }
+
+        return new QueryResultBuffer(metaData, rows);
+    }
+
+    /**
+     * Create a new read only result set positioned before the first buffered row.
+     *
+     * @return the new result set
+     */
+    ResultSet newResultSet() {
+        return new BufferedResultSet(metaData, rows);
+    }
+
+    /**
+     * The description of the columns of a query, copied from the metadata of its result set.
+     */
+    static final class MetaData implements ResultSetMetaData {
+
+        private final String[] columnLabels;
+        private final String[] columnNames;
+        private final int[] columnTypes;
+        private final String[] columnTypeNames;
+        private final String[] columnClassNames;
+        private final int[] precisions;
+        private final int[] scales;
+        private final int[] displaySizes;
+        private final int[] nullables;
+        private final boolean[] signed;
+        private final boolean[] autoIncrement;
+        private final boolean[] caseSensitive;
+        private final boolean[] searchable;
+        private final boolean[] currency;
+        private final String[] catalogNames;
+        private final String[] schemaNames;
+        private final String[] tableNames;
+
+        MetaData(ResultSetMetaData metaData) throws SQLException {
+            final int columnCount = metaData.getColumnCount();
+            columnLabels = new String[columnCount];
+            columnNames = new String[columnCount];
+            columnTypes = new int[columnCount];
+            columnTypeNames = new String[columnCount];
+            columnClassNames = new String[columnCount];
+            precisions = new int[columnCount];
+            scales = new int[columnCount];
+            displaySizes = new int[columnCount];
+            nullables = new int[columnCount];
+            signed = new boolean[columnCount];
+            autoIncrement = new boolean[columnCount];
+            caseSensitive = new boolean[columnCount];
+            searchable = new boolean[columnCount];
+            currency = new boolean[columnCount];
+            catalogNames = new String[columnCount];
+            schemaNames = new String[columnCount];
+            tableNames = new String[columnCount];
+
+            for (int i = 0; i < columnCount; i++) {
+                final int column = i + 1;
+                columnLabels[i] = metaData.getColumnLabel(column);
+                columnNames[i] = metaData.getColumnName(column);
+                columnTypes[i] = metaData.getColumnType(column);
+                columnTypeNames[i] = metaData.getColumnTypeName(column);
+                columnClassNames[i] = metaData.getColumnClassName(column);
+                precisions[i] = metaData.getPrecision(column);
+                scales[i] = metaData.getScale(column);
+                displaySizes[i] = metaData.getColumnDisplaySize(column);
+                nullables[i] = metaData.isNullable(column);
+                signed[i] = metaData.isSigned(column);
+                autoIncrement[i] = metaData.isAutoIncrement(column);
+                caseSensitive[i] = metaData.isCaseSensitive(column);
+                searchable[i] = metaData.isSearchable(column);
+                currency[i] = metaData.isCurrency(column);
+                catalogNames[i] = metaData.getCatalogName(column);
+                schemaNames[i] = metaData.getSchemaName(column);
+                tableNames[i] = metaData.getTableName(column);
+            }
+        }
+
+        /**
+         * Get the index of the column with the given label, or else with the given name, ignoring case.
+         *
+         * @param columnLabel the label of the column
+         * @return the index of the column, starting at 1
+         * @throws SQLException if there is no such column
+         */
+        int findColumn(String columnLabel) throws SQLException {
+            for (int i = 0; i < columnLabels.length; i++) {
+                if (columnLabels[i].equalsIgnoreCase(columnLabel)) {
+                    return i + 1;
+                }
+            }
+            for (int i = 0; i < columnNames.length; i++) {
+                if (columnNames[i].equalsIgnoreCase(columnLabel)) {
+                    return i + 1;
+                }
+            }
+            throw new SQLException("Invalid column label " + columnLabel);
+        }
+
+        int checkColumn(int column) throws SQLException {
+            if (column < 1 || column > columnTypes.length) {
+                throw new SQLException("Invalid column index " + column);
+            }
+            return column - 1;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnTypes.length;
+        }
+
+        @Override
+        public boolean isAutoIncrement(int column) throws SQLException {
+            return autoIncrement[checkColumn(column)];
+        }
+
+        @Override
+        public boolean isCaseSensitive(int column) throws SQLException {
+            return caseSensitive[checkColumn(column)];
+        }
+
+        @Override
+        public boolean isSearchable(int column) throws SQLException {
+            return searchable[checkColumn(column)];
+        }
+
+        @Override
+        public boolean isCurrency(int column) throws SQLException {
+            return currency[checkColumn(column)];
+        }
+
+        @Override
+        public int isNullable(int column) throws SQLException {
+            return nullables[checkColumn(column)];
+        }
+
+        @Override
+        public boolean isSigned(int column) throws SQLException {
+            return signed[checkColumn(column)];
+        }
+
+        @Override
+        public int getColumnDisplaySize(int column) throws SQLException {
+            return displaySizes[checkColumn(column)];
+        }
+
+        @Override
+        public String getColumnLabel(int column) throws SQLException {
+            return columnLabels[checkColumn(column)];
+        }
+
+        @Override
+        public String getColumnName(int column) throws SQLException {
+            return columnNames[checkColumn(column)];
+        }
+
+        @Override
+        public String getSchemaName(int column) throws SQLException {
+            return schemaNames[checkColumn(column)];
+        }
+
+        @Override
+        public int getPrecision(int column) throws SQLException {
+            return precisions[checkColumn(column)];
+        }
+
+        @Override
+        public int getScale(int column) throws SQLException {
+            return scales[checkColumn(column)];
+        }
+
+        @Override
+        public String getTableName(int column) throws SQLException {
+            return tableNames[checkColumn(column)];
+        }
+
+        @Override
+        public String getCatalogName(int column) throws SQLException {
+            return catalogNames[checkColumn(column)];
+        }
+
+        @Override
+        public int getColumnType(int column) throws SQLException {
+            return columnTypes[checkColumn(column)];
+        }
+
+        @Override
+        public String getColumnTypeName(int column) throws SQLException {
+            return columnTypeNames[checkColumn(column)];
+        }
+
+        @Override
+        public boolean isReadOnly(int column) throws SQLException {
+            checkColumn(column);
+            return true;
+        }
+
+        @Override
+        public boolean isWritable(int column) throws SQLException {
+            checkColumn(column);
+            return false;
+        }
+
+        @Override
+        public boolean isDefinitelyWritable(int column) throws SQLException {
+            checkColumn(column);
+            return false;
+        }
+
+        @Override
+        public String getColumnClassName(int column) throws SQLException {
+            return columnClassNames[checkColumn(column)];
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            if (iface.isInstance(this)) {
+                return iface.cast(this);
+            }
+            throw new SQLException("Not a wrapper for " + iface.getName());
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return iface.isInstance(this);
+        }
+    }
+}
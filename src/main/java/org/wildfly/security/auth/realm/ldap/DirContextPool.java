@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.ldap;
+
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import java.util.EnumMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.naming.InterruptedNamingException;
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
+
+import org.wildfly.security.auth.realm.ldap.DirContextFactory.ReferralMode;
+
+/**
+ * A pool of {@link DirContext} instances connected and bound as the same account, kept separately for each referral mode.
+ *
+ * The number of contexts created by the pool, both idle and in use, is limited by the maximum pool size. Idle contexts
+ * are reused most recently used first, so that contexts which are not needed any more stay idle and are closed once they
+ * were idle for longer than the idle timeout, unless only the minimum number of contexts is left.
+ *
+ * The environment of each context is recorded when the context is created, and any change made to it while the context was
+ * in use is reverted when the context is released, so that the next user of the context does not see it.
+ */
+class DirContextPool {
+
+    private final ContextHandler handler;
+    private final int minSize;
+    private final long idleTimeoutNanos;
+    private final long maxWait;
+    private final boolean validate;
+
+    private final Semaphore permits;
+    private final Map<ReferralMode, ConcurrentLinkedDeque<IdleContext>> idleContexts = new EnumMap<>(ReferralMode.class);
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Map<DirContext, Hashtable<?, ?>> environments = new ConcurrentHashMap<>();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquisitionTimeouts = new LongAdder();
+    private final LongAdder acquisitionWaitNanos = new LongAdder();
+    private final AtomicLong maxAcquisitionWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param handler the handler used to create, validate and close the contexts
+     * @param minSize the number of idle contexts which are never closed because of the idle timeout
+     * @param maxSize the maximum number of contexts created by the pool, both idle and in use
+     * @param idleTimeout the time in milliseconds after which an idle context is closed, or {@code 0} to never close idle contexts
+     * @param maxWait the maximum time in milliseconds to wait for a context when all the contexts of the pool are in use
+     * @param validate {@code true} to validate an idle context before it is reused, {@code false} otherwise
+     */
+    DirContextPool(final ContextHandler handler, final int minSize, final int maxSize, final long idleTimeout, final long maxWait, final boolean validate) {
+        this.handler = handler;
+        this.minSize = minSize;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.maxWait = maxWait;
+        this.validate = validate;
+        this.permits = new Semaphore(maxSize, true);
+        for (ReferralMode mode : ReferralMode.values()) {
+            idleContexts.put(mode, new ConcurrentLinkedDeque<>());
+        }
+    }
+
+    /**
+     * Obtain a context from the pool, creating a new one if no valid idle context is available.
+     *
+     * @param mode the referral mode of the context (must not be {@code null})
+     * @return the context, to be passed back to {@link #release(ReferralMode, DirContext)} or {@link #discard(DirContext)}
+     * @throws NamingException if no context could be obtained within the maximum wait time or a new context could not be created
+     */
+    DirContext borrow(final ReferralMode mode) throws NamingException {
+        acquire();
+        boolean ok = false;
+        try {
+            final ConcurrentLinkedDeque<IdleContext> idle = idleContexts.get(mode);
+            if (idleTimeoutNanos > 0) {
+                evictIdleContexts(idle);
+            }
+            IdleContext idleContext;
+            while ((idleContext = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (! validate || handler.isValid(idleContext.context)) {
+                    ok = true;
+                    return idleContext.context;
+                }
+                log.debugf("Pooled context [%s] is not valid any more and was discarded.", idleContext.context);
+                close(idleContext.context);
+            }
+
+            final DirContext context = handler.create(mode);
+            size.incrementAndGet();
+            try {
+                environments.put(context, new Hashtable<>(context.getEnvironment()));
+            } catch (NamingException | RuntimeException e) {
+                close(context);
+                throw e;
+            }
+            ok = true;
+            return context;
+        } finally {
+            if (! ok) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Return a context obtained from this pool so it can be reused, once its request controls and its environment are reset.
+     * A context which can not be reset is closed instead.
+     *
+     * @param mode the referral mode the context was obtained for
+     * @param context the context
+     */
+    void release(final ReferralMode mode, final DirContext context) {
+        if (closed) {
+            close(context);
+            permits.release();
+            return;
+        }
+        try {
+            if (context instanceof LdapContext) {
+                ((LdapContext) context).setRequestControls(null);
+            }
+            restoreEnvironment(context);
+        } catch (NamingException | RuntimeException e) {
+            log.debugf(e, "Pooled context [%s] could not be reset and was discarded.", context);
+            close(context);
+            permits.release();
+            return;
+        }
+
+        final ConcurrentLinkedDeque<IdleContext> idle = idleContexts.get(mode);
+        idle.offerFirst(new IdleContext(context, System.nanoTime()));
+        idleCount.incrementAndGet();
+        permits.release();
+
+        if (idleTimeoutNanos > 0) {
+            evictIdleContexts(idle);
+        }
+    }
+
+    /**
+     * Close a context obtained from this pool instead of returning it to the pool.
+     *
+     * @param context the context
+     */
+    void discard(final DirContext context) {
+        close(context);
+        permits.release();
+    }
+
+    /**
+     * Close all idle contexts of this pool.  Contexts in use are closed as soon as they are released.
+     */
+    void close() {
+        closed = true;
+        for (ConcurrentLinkedDeque<IdleContext> idle : idleContexts.values()) {
+            IdleContext idleContext;
+            while ((idleContext = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                close(idleContext.context);
+            }
+        }
+    }
+
+    int getSize() {
+        return size.get();
+    }
+
+    int getIdleCount() {
+        return idleCount.get();
+    }
+
+    long getAcquisitionCount() {
+        return acquisitions.sum();
+    }
+
+    long getAcquisitionTimeoutCount() {
+        return acquisitionTimeouts.sum();
+    }
+
+    long getAcquisitionWaitTime(final TimeUnit unit) {
+        return unit.convert(acquisitionWaitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    long getMaxAcquisitionWaitTime(final TimeUnit unit) {
+        return unit.convert(maxAcquisitionWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    private void acquire() throws NamingException {
+        final long start = System.nanoTime();
+        final boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedNamingException();
+        }
+        final long wait = System.nanoTime() - start;
+        acquisitionWaitNanos.add(wait);
+        maxAcquisitionWaitNanos.accumulateAndGet(wait, Math::max);
+        if (! acquired) {
+            acquisitionTimeouts.increment();
+            throw log.ldapContextPoolExhausted(maxWait);
+        }
+        acquisitions.increment();
+    }
+
+    private void evictIdleContexts(final ConcurrentLinkedDeque<IdleContext> idle) {
+        final long now = System.nanoTime();
+        IdleContext oldest;
+        // the least recently used contexts are at the end of the deque
+        while (idleCount.get() > minSize && (oldest = idle.peekLast()) != null && now - oldest.idleSince > idleTimeoutNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                idleCount.decrementAndGet();
+                close(oldest.context);
+            }
+        }
+    }
+
+    private void restoreEnvironment(final DirContext context) throws NamingException {
+        final Hashtable<?, ?> initial = environments.get(context);
+        if (initial == null) {
+            return;
+        }
+        final Hashtable<?, ?> current = context.getEnvironment();
+        if (initial.equals(current)) {
+            return;
+        }
+        for (Object name : current.keySet()) {
+            if (! initial.containsKey(name)) {
+                context.removeFromEnvironment((String) name);
+            }
+        }
+        for (Map.Entry<?, ?> entry : initial.entrySet()) {
+            if (! Objects.equals(entry.getValue(), current.get(entry.getKey()))) {
+                context.addToEnvironment((String) entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void close(final DirContext context) {
+        environments.remove(context);
+        size.decrementAndGet();
+        handler.close(context);
+    }
+
+    interface ContextHandler {
+
+        /**
+         * Create a new context.
+         *
+         * @param mode the referral mode
+         * @return the new context
+         * @throws NamingException if the context could not be created
+         */
+        DirContext create(ReferralMode mode) throws NamingException;
+
+        /**
+         * Check whether a pooled context can still be used.
+         *
+         * @param context the context
+         * @return {@code true} if the context is valid, {@code false} otherwise
+         */
+        boolean isValid(DirContext context);
+
+        /**
+         * Close a context which is removed from the pool.
+         *
+         * @param context the context
+         */
+        void close(DirContext context);
+    }
+
+    static final class IdleContext {
+
+        final DirContext context;
+        final long idleSince;
+
+        IdleContext(final DirContext context, final long idleSince) {
+            this.context = context;
+            this.idleSince = idleSince;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.ldap;
+
+import static org.wildfly.common.Assert.checkMinimumParameter;
+
+import java.util.List;
+
+import javax.naming.directory.SearchResult;
+
+import org.wildfly.security.util._private.SegmentedLRUCache;
+
+/**
+ * A cache of the entries referenced by the identities of a realm, typically group entries, shared by all the identities
+ * of the realm.
+ *
+ * Entries are keyed on the attribute mapping they were loaded for, as each mapping requests its own attributes, and on
+ * the distinguished name of the entry. Entries expire once they were cached for longer than the maximum age.
+ *
+ * The least recently used entries are evicted when the cache is full, see {@link SegmentedLRUCache}, so that frequently
+ * used groups stay cached under churn.
+ */
+class GroupEntryCache {
+
+    private final long maxAge;
+    private final SegmentedLRUCache<EntryKey, CachedEntries> entries;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param maxEntries the maximum number of entries to cache
+     * @param maxAge the time in milliseconds that an entry can stay in the cache, {@code -1} if entries never expire
+     */
+    GroupEntryCache(final int maxEntries, final long maxAge) {
+        checkMinimumParameter("maxAge", -1, maxAge);
+        this.maxAge = maxAge;
+        this.entries = new SegmentedLRUCache<>(maxEntries);
+    }
+
+    /**
+     * Get the cached search results for the entry with the given distinguished name.
+     *
+     * @param mapping the attribute mapping the entry was loaded for
+     * @param distinguishedName the distinguished name of the entry
+     * @return the cached search results, empty if the entry does not exist, or {@code null} if not cached
+     */
+    List<SearchResult> get(final AttributeMapping mapping, final String distinguishedName) {
+        final CachedEntries cached = entries.get(new EntryKey(mapping, distinguishedName), c -> ! c.isExpired());
+        return cached == null ? null : cached.results;
+    }
+
+    /**
+     * Cache the search results for the entry with the given distinguished name.
+     *
+     * @param mapping the attribute mapping the entry was loaded for
+     * @param distinguishedName the distinguished name of the entry
+     * @param results the search results, empty if the entry does not exist
+     */
+    void put(final AttributeMapping mapping, final String distinguishedName, final List<SearchResult> results) {
+        entries.put(new EntryKey(mapping, distinguishedName), new CachedEntries(results, maxAge));
+    }
+
+    static final class EntryKey {
+
+        private final AttributeMapping mapping;
+        private final String distinguishedName;
+
+        EntryKey(final AttributeMapping mapping, final String distinguishedName) {
+            this.mapping = mapping;
+            this.distinguishedName = distinguishedName;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (! (obj instanceof EntryKey)) {
+                return false;
+            }
+            final EntryKey other = (EntryKey) obj;
+            return mapping == other.mapping && distinguishedName.equals(other.distinguishedName);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mapping) * 31 + distinguishedName.hashCode();
+        }
+    }
+
+    static final class CachedEntries {
+
+        final List<SearchResult> results;
+        final long expiration;
+
+        CachedEntries(final List<SearchResult> results, final long maxAge) {
+            this.results = results;
+            this.expiration = maxAge == -1 ? -1 : System.currentTimeMillis() + maxAge;
+        }
+
+        boolean isExpired() {
+            return expiration != -1 && System.currentTimeMillis() > expiration;
+        }
+    }
+}
@@ -35,10 +35,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -77,8 +78,8 @@ import org.wildfly.common.function.ExceptionSupplier;
 import org.wildfly.security._private.ElytronMessages;
 import org.wildfly.security.auth.principal.NamePrincipal;
 import org.wildfly.security.auth.realm.CacheableSecurityRealm;
-import org.wildfly.security.auth.realm.IdentitySharedExclusiveLock;
 import org.wildfly.security.auth.realm.IdentitySharedExclusiveLock.IdentityLock;
+import org.wildfly.security.auth.realm.IdentitySharedExclusiveLockTable;
 import org.wildfly.security.auth.server.ModifiableRealmIdentityIterator;
 import org.wildfly.security.auth.server.ModifiableRealmIdentity;
 import org.wildfly.security.auth.server.ModifiableSecurityRealm;
@@ -113,9 +114,18 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
     private final List<CredentialPersister> credentialPersisters;
     private final List<EvidenceVerifier> evidenceVerifiers;
 
-    private final ConcurrentHashMap<String, IdentitySharedExclusiveLock> realmIdentityLocks = new ConcurrentHashMap<>();
+    private final boolean identityEntryCaching;
+    private final Set<String> identityEntryAttributes;
+    private final Set<String> identityEntryBinaryAttributes;
+    private final int roleRecursionBatchSize;
+    private final GroupEntryCache groupEntryCache;
 
-    private Set<Consumer<Principal>> listenersPendingRegistration = new LinkedHashSet<Consumer<Principal>>();
+    private final IdentitySharedExclusiveLockTable realmIdentityLocks = new IdentitySharedExclusiveLockTable();
+
+    private final Set<Consumer<Principal>> listenersPendingRegistration = new LinkedHashSet<Consumer<Principal>>();
+    private final ReentrantLock listenerRegistrationLock = new ReentrantLock();
+    // only written while holding the listener registration lock, read without it when obtaining a context
+    private volatile boolean listenersPending;
 
     LdapSecurityRealm(final Supplier<Provider[]> providers,
                       final ExceptionSupplier<DirContext, NamingException> dirContextSupplier,
@@ -124,7 +134,10 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
                       final List<CredentialLoader> credentialLoaders,
                       final List<CredentialPersister> credentialPersisters,
                       final List<EvidenceVerifier> evidenceVerifiers,
-                      final int pageSize) {
+                      final int pageSize,
+                      final boolean identityEntryCaching,
+                      final int roleRecursionBatchSize,
+                      final GroupEntryCache groupEntryCache) {
 
         this.providers = providers;
         this.dirContextSupplier = dirContextSupplier;
@@ -135,6 +148,37 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
         this.credentialLoaders = credentialLoaders;
         this.credentialPersisters = credentialPersisters;
         this.evidenceVerifiers = evidenceVerifiers;
+
+        this.roleRecursionBatchSize = roleRecursionBatchSize;
+        this.groupEntryCache = groupEntryCache;
+
+        this.identityEntryCaching = identityEntryCaching;
+        if (identityEntryCaching) {
+            // the union of the attributes required by any operation on the identity, so a single search serves them all
+            Set<String> attributes = new HashSet<>();
+            Set<String> binaryAttributes = new HashSet<>();
+            for (CredentialLoader loader : credentialLoaders) {
+                loader.addRequiredIdentityAttributes(attributes);
+                loader.addBinaryIdentityAttributes(binaryAttributes);
+            }
+            for (CredentialPersister persister : credentialPersisters) {
+                persister.addRequiredIdentityAttributes(attributes);
+                persister.addBinaryIdentityAttributes(binaryAttributes);
+            }
+            for (EvidenceVerifier verifier : evidenceVerifiers) {
+                verifier.addRequiredIdentityAttributes(attributes);
+                verifier.addBinaryIdentityAttributes(binaryAttributes);
+            }
+            identityMapping.attributes.stream()
+                    .map(AttributeMapping::getIdentityLdapName)
+                    .filter(Objects::nonNull)
+                    .forEach(attributes::add);
+            this.identityEntryAttributes = Collections.unmodifiableSet(attributes);
+            this.identityEntryBinaryAttributes = Collections.unmodifiableSet(binaryAttributes);
+        } else {
+            this.identityEntryAttributes = null;
+            this.identityEntryBinaryAttributes = null;
+        }
     }
 
     @Override
@@ -149,7 +193,8 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
 
     @Override
     public void registerIdentityChangeListener(Consumer<Principal> listener) {
-        synchronized (this.listenersPendingRegistration) {
+        listenerRegistrationLock.lock();
+        try {
             DirContext dirContext = null;
             try {
                 dirContext = obtainContext();
@@ -158,6 +203,7 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
                 // either connection died or realm not available during boot
                 // we need to wait, lets store
                 listenersPendingRegistration.add(listener);
+                listenersPending = true;
 
                 log.ldapRealmDeferRegistration();
                 if (log.isDebugEnabled()) {
@@ -168,6 +214,37 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
                     closeContext(dirContext);
                 }
             }
+        } finally {
+            listenerRegistrationLock.unlock();
+        }
+    }
+
+    /**
+     * Register the listeners whose registration was deferred using the given context.  If another thread is already
+     * registering them, this method returns immediately, so obtaining a context never waits for the registration.
+     *
+     * @param dirContext the context to register the listeners with
+     */
+    private void registerPendingListeners(final DirContext dirContext) {
+        if (! listenerRegistrationLock.tryLock()) {
+            return;
+        }
+        try {
+            // we got ctx, this means connection is up
+            // add & remove in case we are ok, take into account network failure.
+            final Iterator<Consumer<Principal>> it = this.listenersPendingRegistration.iterator();
+            while(it.hasNext()) {
+                registerIdentityChangeListener(dirContext, it.next());
+                it.remove();
+            }
+            listenersPending = false;
+        } catch (NamingException e) {
+            // the remaining listeners are registered the next time a context is obtained
+            if (log.isDebugEnabled()) {
+                log.debug("Listener registration failure: ", e);
+            }
+        } finally {
+            listenerRegistrationLock.unlock();
         }
     }
 
@@ -187,12 +264,11 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
 
         // Acquire the appropriate lock for the realm identity
         log.debugf("Obtaining lock for identity [%s]...", name);
-        IdentitySharedExclusiveLock realmIdentityLock = getRealmIdentityLockForName(name);
         IdentityLock lock;
         if (exclusive) {
-            lock = realmIdentityLock.lockExclusive();
+            lock = realmIdentityLocks.lockExclusive(name);
         } else {
-            lock = realmIdentityLock.lockShared();
+            lock = realmIdentityLocks.lockShared(name);
         }
         log.debugf("Obtained lock for identity [%s].", name);
         return new LdapRealmIdentity(name, lock);
@@ -201,16 +277,10 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
     private DirContext obtainContext() throws RealmUnavailableException {
         try {
             DirContext ctx = dirContextSupplier.get();
-            synchronized (this.listenersPendingRegistration) {
-                // we got ctx, this means connection is up
-                // add & remove in case we are ok, take into account network failure.
-                final Iterator<Consumer<Principal>> it = this.listenersPendingRegistration.iterator();
-                while(it.hasNext()) {
-                    registerIdentityChangeListener(ctx, it.next());
-                    it.remove();
-                }
-                return ctx;
+            if (listenersPending) {
+                registerPendingListeners(ctx);
             }
+            return ctx;
         } catch (NamingException e) {
             throw log.ldapRealmFailedToObtainContext(e);
         }
@@ -303,22 +373,12 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
         return response;
     }
 
-    private IdentitySharedExclusiveLock getRealmIdentityLockForName(final String name) {
-        IdentitySharedExclusiveLock realmIdentityLock = realmIdentityLocks.get(name);
-        if (realmIdentityLock == null) {
-            final IdentitySharedExclusiveLock newRealmIdentityLock = new IdentitySharedExclusiveLock();
-            realmIdentityLock = realmIdentityLocks.putIfAbsent(name, newRealmIdentityLock);
-            if (realmIdentityLock == null) {
-                realmIdentityLock = newRealmIdentityLock;
-            }
-        }
-        return realmIdentityLock;
-    }
-
     private class LdapRealmIdentity implements ModifiableRealmIdentity {
 
         private final String name;
         private IdentityLock lock;
+        // null until the entry is searched, empty if the identity does not exist; only used with identity entry caching
+        private volatile Optional<LdapIdentity> cachedIdentity;
 
         LdapRealmIdentity(final String name, final IdentityLock lock) {
             this.name = name;
@@ -478,6 +538,7 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
                 }
 
             } finally {
+                invalidateCachedIdentity();
                 closeContext(dirContext);
             }
         }
@@ -670,6 +731,15 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
         }
 
         private LdapIdentity getIdentity(DirContext dirContext, Collection<String> returningAttributes, Collection<String> binaryAttributes) throws RealmUnavailableException {
+            if (identityEntryCaching) {
+                Optional<LdapIdentity> cached = cachedIdentity;
+                if (cached != null) {
+                    log.debugf("Using cached entry of identity for principal [%s].", name);
+                    return cached.map(identity -> identity.withDirContext(dirContext)).orElse(null);
+                }
+                returningAttributes = identityEntryAttributes;
+                binaryAttributes = identityEntryBinaryAttributes;
+            }
             log.debugf("Trying to create identity for principal [%s].", name);
             LdapSearch ldapSearch = createLdapSearchByDn();
             if (ldapSearch == null) { // name is not a valid DN, search by name
@@ -690,14 +760,25 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
                 if (result != null) {
                     LdapIdentity identity = new LdapIdentity(name, ldapSearchFinal.getContext(), result.getNameInNamespace(), result.isRelative() ? null : result.getName(), result);
                     log.debugf("Identity for principal [%s] found at [%s].", name, identity.getDistinguishedName());
+                    // an entry found by following a referral is only valid with the referral context, so it is not cached
+                    if (identityEntryCaching && ldapSearchFinal.getContext() == dirContext) {
+                        cachedIdentity = Optional.of(identity);
+                    }
                     return identity;
                 } else {
                     log.debugf("Identity for principal [%s] not found.", name);
+                    if (identityEntryCaching) {
+                        cachedIdentity = Optional.empty();
+                    }
                     return null;
                 }
             }
         }
 
+        private void invalidateCachedIdentity() {
+            cachedIdentity = null;
+        }
+
         private String extractRdn(AttributeMapping mapping, final String dn) {
             String valueRdn = mapping.getRdn();
             try {
@@ -760,13 +841,16 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
 
                 for (int depth = 0; depth <= mapping.getRoleRecursionDepth() && ! toSearch.isEmpty(); depth++) {
                     List<SearchResult> toSearchInNextLevel = new LinkedList<>();
+                    if (depth > 0 && mapping.getReference() == null && roleRecursionBatchSize > 1) { // roles of roles, batched
+                        extractFilteredAttributesBatched(toSearch, searchDn, mapping, context, identityContext, values, toSearchInNextLevel);
+                        toSearch = toSearchInNextLevel;
+                        continue;
+                    }
                     for(SearchResult entry : toSearch) {
                         final String entryDn = entry != null ? entry.getNameInNamespace() : null;
                         if (mapping.getReference() != null && entry != null) { // reference
-                            forEachAttributeValue(entry, mapping.getReference(), value -> {
-                                LdapSearch search = new LdapSearch(value);
-                                extractFilteredAttributesFromSearch(search, entry, mapping, context, identityContext, values, toSearchInNextLevel);
-                            });
+                            forEachAttributeValue(entry, mapping.getReference(), value ->
+                                    extractReferencedAttributes(value, entry, mapping, context, identityContext, values, toSearchInNextLevel));
                         } else if (mapping.getReference() == null) { // filter
                             if (depth == 0) { // roles of identity
                                 LdapSearch search = new LdapSearch(searchDn, mapping.getRecursiveSearch(), 0, mapping.getFilter(), name, entryDn);
@@ -785,25 +869,114 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
             });
         }
 
+        /**
+         * Search for the roles of the given roles combining the filter of the mapping for up to the batch size roles into
+         * a single search, so a level of the role recursion costs one search per batch instead of one search per role.
+         */
+        private void extractFilteredAttributesBatched(List<SearchResult> roleEntries, String searchDn, AttributeMapping mapping, DirContext context, DirContext identityContext, Collection<String> identityAttributeValues, Collection<SearchResult> toSearchInNextLevel) {
+            List<String> filterArgs = new ArrayList<>();
+            for (SearchResult entry : roleEntries) {
+                if (entry == null) continue;
+                final String entryDn = entry.getNameInNamespace();
+                forEachAttributeValue(entry, mapping.getRoleRecursionName(), roleName -> {
+                    filterArgs.add(roleName);
+                    filterArgs.add(entryDn);
+                });
+            }
+
+            for (int start = 0; start < filterArgs.size(); start += 2 * roleRecursionBatchSize) {
+                List<String> batchArgs = filterArgs.subList(start, Math.min(start + 2 * roleRecursionBatchSize, filterArgs.size()));
+                LdapSearch search;
+                if (batchArgs.size() == 2) {
+                    search = new LdapSearch(searchDn, mapping.getRecursiveSearch(), 0, mapping.getFilter(), batchArgs.toArray(new String[2]));
+                } else {
+                    StringBuilder filter = new StringBuilder("(|");
+                    for (int i = 0; i < batchArgs.size(); i += 2) {
+                        appendFilterTerm(filter, mapping.getFilter(), i);
+                    }
+                    filter.append(')');
+                    search = new LdapSearch(searchDn, mapping.getRecursiveSearch(), 0, filter.toString(), batchArgs.toArray(new String[batchArgs.size()]));
+                }
+                extractFilteredAttributesFromSearch(search, null, mapping, context, identityContext, identityAttributeValues, toSearchInNextLevel);
+            }
+        }
+
+        /**
+         * Append the given filter as a term of a combined filter, shifting its {@code {0}} and {@code {1}} arguments by the given offset.
+         */
+        private void appendFilterTerm(StringBuilder combinedFilter, String filter, int argumentOffset) {
+            boolean enclosed = filter.startsWith("(");
+            if (! enclosed) combinedFilter.append('(');
+            int last = 0;
+            int open;
+            while ((open = filter.indexOf('{', last)) != -1) {
+                int close = filter.indexOf('}', open);
+                if (close == -1) break;
+                combinedFilter.append(filter, last, open);
+                try {
+                    combinedFilter.append('{').append(Integer.parseInt(filter.substring(open + 1, close)) + argumentOffset).append('}');
+                } catch (NumberFormatException e) {
+                    combinedFilter.append(filter, open, close + 1);
+                }
+                last = close + 1;
+            }
+            combinedFilter.append(filter, last, filter.length());
+            if (! enclosed) combinedFilter.append(')');
+        }
+
+        /**
+         * Load the values of the referenced entry with the given DN, from the group entry cache of the realm if enabled.
+         * Entries referenced by an identity found behind a referral are not cached, as they are loaded using the referral context.
+         */
+        private void extractReferencedAttributes(String referencedDn, SearchResult referencingEntry, AttributeMapping mapping, DirContext context, DirContext identityContext, Collection<String> identityAttributeValues, Collection<SearchResult> toSearchInNextLevel) {
+            if (groupEntryCache == null || identityContext != context) {
+                extractFilteredAttributesFromSearch(new LdapSearch(referencedDn), referencingEntry, mapping, context, identityContext, identityAttributeValues, toSearchInNextLevel);
+                return;
+            }
+
+            List<SearchResult> entries = groupEntryCache.get(mapping, referencedDn);
+            if (entries == null) {
+                LdapSearch search = new LdapSearch(referencedDn);
+                search.setReturningAttributes(getFilteredReturningAttributes(mapping));
+                try (Stream<SearchResult> results = search.search(identityContext)) {
+                    entries = results.collect(Collectors.toList());
+                } catch (Exception cause) {
+                    throw ElytronMessages.log.ldapRealmFailedObtainAttributes(referencingEntry.getNameInNamespace(), cause);
+                }
+                groupEntryCache.put(mapping, referencedDn, entries);
+            } else {
+                log.tracef("Using cached entry [%s] referenced by [%s].", referencedDn, referencingEntry.getNameInNamespace());
+            }
+            for (SearchResult entry : entries) {
+                addFilteredAttributeValues(entry, referencingEntry.getNameInNamespace(), mapping, identityAttributeValues, toSearchInNextLevel);
+            }
+        }
+
         private void extractFilteredAttributesFromSearch(LdapSearch search, SearchResult referencedEntry, AttributeMapping mapping, DirContext context, DirContext identityContext, Collection<String> identityAttributeValues, Collection<SearchResult> toSearchInNextLevel) {
             String referencedDn = referencedEntry != null ? referencedEntry.getNameInNamespace() : null;
 
+            search.setReturningAttributes(getFilteredReturningAttributes(mapping));
+
+            try (Stream<SearchResult> entries = search.search(mapping.searchInIdentityContext() ? identityContext : context)) {
+                entries.forEach(entry -> addFilteredAttributeValues(entry, referencedDn, mapping, identityAttributeValues, toSearchInNextLevel));
+            } catch (Exception cause) {
+                throw ElytronMessages.log.ldapRealmFailedObtainAttributes(referencedDn, cause);
+            }
+        }
+
+        private Set<String> getFilteredReturningAttributes(AttributeMapping mapping) {
             Set<String> attributes = new HashSet<>();
             attributes.add(mapping.getLdapName());
             attributes.add(mapping.getReference());
             attributes.add(mapping.getRoleRecursionName());
-            search.setReturningAttributes(attributes);
+            return attributes;
+        }
 
-            try (Stream<SearchResult> entries = search.search(mapping.searchInIdentityContext() ? identityContext : context)) {
-                entries.forEach(entry -> {
-                    try {
-                        if (valuesFromAttribute(entry, mapping, identityAttributeValues)) {
-                            toSearchInNextLevel.add(entry);
-                        }
-                    } catch (Exception cause) {
-                        throw ElytronMessages.log.ldapRealmFailedObtainAttributes(referencedDn, cause);
-                    }
-                });
+        private void addFilteredAttributeValues(SearchResult entry, String referencedDn, AttributeMapping mapping, Collection<String> identityAttributeValues, Collection<SearchResult> toSearchInNextLevel) {
+            try {
+                if (valuesFromAttribute(entry, mapping, identityAttributeValues)) {
+                    toSearchInNextLevel.add(entry);
+                }
             } catch (Exception cause) {
                 throw ElytronMessages.log.ldapRealmFailedObtainAttributes(referencedDn, cause);
             }
@@ -865,6 +1038,7 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
             } catch (NamingException e) {
                 throw log.ldapRealmFailedDeleteIdentityFromServer(e);
             } finally {
+                invalidateCachedIdentity();
                 closeContext(context);
             }
         }
@@ -886,6 +1060,7 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
             } catch (NamingException e) {
                 throw log.ldapRealmFailedCreateIdentityOnServer(e);
             } finally {
+                invalidateCachedIdentity();
                 closeContext(context);
             }
         }
@@ -944,6 +1119,7 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
             } catch (Exception e) {
                 throw log.ldapRealmAttributesSettingFailed(name, e);
             } finally {
+                invalidateCachedIdentity();
                 closeContext(context);
             }
         }
@@ -983,6 +1159,10 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
             SearchResult getEntry() {
                 return this.entry;
             }
+
+            LdapIdentity withDirContext(DirContext dirContext) {
+                return dirContext == this.dirContext ? this : new LdapIdentity(name, dirContext, distinguishedName, url, entry);
+            }
         }
     }
 
@@ -1158,20 +1338,21 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
                 context.addToEnvironment(ENV_BINARY_ATTRIBUTES, String.join(" ", binaryAttributes));
             }
 
-            NamingEnumeration<SearchResult> results = context.search(new LdapName(searchDn), filter, filterArgs, createSearchControls());
-
-            // revert environment change
-            if (binaryAttributes != null && binaryAttributes.size() != 0) {
-                if (binaryAttributesBackup == null) {
-                    context.removeFromEnvironment(ENV_BINARY_ATTRIBUTES);
-                } else {
-                    context.addToEnvironment(ENV_BINARY_ATTRIBUTES, binaryAttributesBackup);
+            try {
+                return context.search(new LdapName(searchDn), filter, filterArgs, createSearchControls());
+            } finally {
+                // revert environment change
+                if (binaryAttributes != null && binaryAttributes.size() != 0) {
+                    if (binaryAttributesBackup == null) {
+                        context.removeFromEnvironment(ENV_BINARY_ATTRIBUTES);
+                    } else {
+                        context.addToEnvironment(ENV_BINARY_ATTRIBUTES, binaryAttributesBackup);
+                    }
+                }
+                if (pageSize != 0 && context instanceof LdapContext) {
+                    ((LdapContext)context).setRequestControls(controlsBackup);
                 }
             }
-            if (pageSize != 0 && context instanceof LdapContext) {
-                ((LdapContext)context).setRequestControls(controlsBackup);
-            }
-            return results;
         }
 
         private void setReturningAttributes(Collection<String> returningAttributes) {
@@ -1241,22 +1422,23 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
 
         @Override
         public void objectAdded(NamingEvent evt) {
-
+            // identities previously looked up as non-existent may be cached
+            invokeCacheUpdateListener(evt.getNewBinding());
         }
 
         @Override
         public void objectRemoved(NamingEvent evt) {
-            invokeCacheUpdateListener(evt);
+            invokeCacheUpdateListener(evt.getOldBinding());
         }
 
         @Override
         public void objectRenamed(NamingEvent evt) {
-            invokeCacheUpdateListener(evt);
+            invokeCacheUpdateListener(evt.getOldBinding());
         }
 
         @Override
         public void objectChanged(NamingEvent evt) {
-            invokeCacheUpdateListener(evt);
+            invokeCacheUpdateListener(evt.getOldBinding());
         }
 
         @Override
@@ -1264,13 +1446,12 @@ class LdapSecurityRealm implements ModifiableSecurityRealm, CacheableSecurityRea
 
         }
 
-        private void invokeCacheUpdateListener(NamingEvent evt) {
-            Binding oldBinding = evt.getOldBinding();
+        private void invokeCacheUpdateListener(Binding binding) {
             LdapName ldapName;
             try {
-                ldapName = new LdapName(oldBinding.getName());
+                ldapName = new LdapName(binding.getName());
             } catch (InvalidNameException e) {
-                throw log.ldapInvalidLdapName(oldBinding.getName(), e);
+                throw log.ldapInvalidLdapName(binding.getName(), e);
             }
             ldapName.getRdns().stream()
                     .filter(rdn -> rdn.getType().equals(identityMapping.rdnIdentifier))
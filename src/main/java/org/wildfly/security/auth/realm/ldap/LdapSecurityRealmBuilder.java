@@ -61,6 +61,10 @@ public class LdapSecurityRealmBuilder {
     private NameRewriter nameRewriter = NameRewriter.IDENTITY_REWRITER;
     private IdentityMapping identityMapping;
     private int pageSize = 50;
+    private boolean identityEntryCaching = false;
+    private int roleRecursionBatchSize = 1;
+    private int groupEntryCacheMaxEntries = 0;
+    private long groupEntryCacheMaxAge = -1;
 
     private List<CredentialLoader> credentialLoaders = new ArrayList<>();
     private List<CredentialPersister> credentialPersisters = new ArrayList<>();
@@ -132,6 +136,61 @@ public class LdapSecurityRealmBuilder {
         return this;
     }
 
+    /**
+     * Set whether the entry of an identity should be searched for once and reused for the lifetime of the
+     * {@link org.wildfly.security.auth.server.RealmIdentity}.  The single search requests the attributes required by all
+     * the credential loaders, credential persisters, evidence verifiers and attribute mappings of the realm, so an
+     * authentication followed by the loading of the authorization identity costs one directory round trip.  The cached
+     * entry is discarded when the identity is modified through the realm.
+     *
+     * @param identityEntryCaching {@code true} to reuse the entry of an identity, {@code false} to search for it on each operation
+     * @return this builder
+     */
+    public LdapSecurityRealmBuilder setIdentityEntryCaching(final boolean identityEntryCaching) {
+        assertNotBuilt();
+
+        this.identityEntryCaching = identityEntryCaching;
+
+        return this;
+    }
+
+    /**
+     * Set the maximum number of roles whose own roles are searched for using a single search when following the role
+     * recursion of filtered attribute mappings.  Each level of the recursion combines the filter of the mapping for up to
+     * this number of roles into a single OR filter.  The default of {@code 1} searches for the roles of each role separately.
+     *
+     * @param roleRecursionBatchSize the maximum number of roles per search (must be at least {@code 1})
+     * @return this builder
+     */
+    public LdapSecurityRealmBuilder setRoleRecursionBatchSize(final int roleRecursionBatchSize) {
+        Assert.checkMinimumParameter("roleRecursionBatchSize", 1, roleRecursionBatchSize);
+        assertNotBuilt();
+
+        this.roleRecursionBatchSize = roleRecursionBatchSize;
+
+        return this;
+    }
+
+    /**
+     * Enable a cache of the entries loaded by referencing attribute mappings, such as group entries referenced by the
+     * {@code memberOf} attribute, shared by all the identities of the realm.  Cached entries are reused until they expire,
+     * so changes of these entries may not be visible for up to the maximum age.
+     *
+     * @param maxEntries the maximum number of entries to cache (must be at least {@code 1})
+     * @param maxAge the time in milliseconds that an entry can stay in the cache, {@code -1} if entries never expire
+     * @return this builder
+     */
+    public LdapSecurityRealmBuilder setGroupEntryCache(final int maxEntries, final long maxAge) {
+        Assert.checkMinimumParameter("maxEntries", 1, maxEntries);
+        Assert.checkMinimumParameter("maxAge", -1, maxAge);
+        assertNotBuilt();
+
+        this.groupEntryCacheMaxEntries = maxEntries;
+        this.groupEntryCacheMaxAge = maxAge;
+
+        return this;
+    }
+
     public IdentityMappingBuilder identityMapping() {
         assertNotBuilt();
 
@@ -210,7 +269,8 @@ public class LdapSecurityRealmBuilder {
         }
 
         built = true;
-        return new LdapSecurityRealm(providers, dirContextSupplier, nameRewriter, identityMapping, credentialLoaders, credentialPersisters, evidenceVerifiers, pageSize);
+        return new LdapSecurityRealm(providers, dirContextSupplier, nameRewriter, identityMapping, credentialLoaders, credentialPersisters, evidenceVerifiers, pageSize, identityEntryCaching,
+                roleRecursionBatchSize, groupEntryCacheMaxEntries > 0 ? new GroupEntryCache(groupEntryCacheMaxEntries, groupEntryCacheMaxAge) : null);
     }
 
     private void assertNotBuilt() {
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.ldap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DirContextFactory} which keeps the contexts obtained by {@link #obtainDirContext(ReferralMode)} connected and
+ * bound in a pool, so that they can be reused once they are closed.
+ *
+ * Contexts obtained using the credentials of a {@link javax.security.auth.callback.CallbackHandler} are never pooled.
+ */
+public interface PooledDirContextFactory extends DirContextFactory {
+
+    /**
+     * Get the number of contexts currently held by the pool, both idle and in use.
+     *
+     * @return the number of contexts
+     */
+    int getPoolSize();
+
+    /**
+     * Get the number of idle contexts currently held by the pool.
+     *
+     * @return the number of idle contexts
+     */
+    int getIdleCount();
+
+    /**
+     * Get the number of contexts successfully obtained from the pool.
+     *
+     * @return the number of acquisitions
+     */
+    long getAcquisitionCount();
+
+    /**
+     * Get the number of times no context could be obtained because all the contexts of the pool were in use for longer than the
+     * maximum wait time.
+     *
+     * @return the number of acquisition timeouts
+     */
+    long getAcquisitionTimeoutCount();
+
+    /**
+     * Get the total time spent waiting for a context of the pool to become available.
+     *
+     * @param unit the unit of the returned time
+     * @return the total acquisition wait time
+     */
+    long getAcquisitionWaitTime(TimeUnit unit);
+
+    /**
+     * Get the longest time spent waiting for a context of the pool to become available.
+     *
+     * @param unit the unit of the returned time
+     * @return the maximum acquisition wait time
+     */
+    long getMaxAcquisitionWaitTime(TimeUnit unit);
+
+    /**
+     * Close the idle contexts of the pool.  Contexts in use are closed instead of being returned to the pool.
+     */
+    void close();
+}
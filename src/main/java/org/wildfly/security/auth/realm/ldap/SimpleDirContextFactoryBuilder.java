@@ -19,6 +19,7 @@
 package org.wildfly.security.auth.realm.ldap;
 
 import org.jboss.modules.Module;
+import org.wildfly.common.Assert;
 import org.wildfly.security.SecurityFactory;
 import org.wildfly.security.auth.callback.CredentialCallback;
 import org.wildfly.security.auth.client.AuthenticationConfiguration;
@@ -48,6 +49,8 @@ import javax.security.auth.callback.PasswordCallback;
 import java.net.URI;
 import java.util.Hashtable;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A simple builder for a {@link DirContextFactory} which creates new contexts on demand and disposes of them as soon as they
@@ -64,6 +67,9 @@ public class SimpleDirContextFactoryBuilder {
     private static final int DEFAULT_CONNECT_TIMEOUT = 5000; // ms
     private static final int DEFAULT_READ_TIMEOUT = 60000; // ms
     private static final String LDAPS_SCHEME = "ldaps";
+    private static final long DEFAULT_POOL_IDLE_TIMEOUT = 300000; // ms
+    private static final long DEFAULT_POOL_MAX_WAIT = 5000; // ms
+    private static final String[] NO_ATTRIBUTES = { "1.1" };
 
     private boolean built = false;
     private String initialContextFactory = "com.sun.jndi.ldap.LdapCtxFactory";
@@ -79,6 +85,11 @@ public class SimpleDirContextFactoryBuilder {
     private int readTimeout = DEFAULT_READ_TIMEOUT;
     private Module targetModule;
     private ClassLoader targetClassLoader;
+    private int poolMinSize = 0;
+    private int poolMaxSize = 0;
+    private long poolIdleTimeout = DEFAULT_POOL_IDLE_TIMEOUT;
+    private long poolMaxWait = DEFAULT_POOL_MAX_WAIT;
+    private boolean poolValidation = false;
 
     private static final AuthenticationContextConfigurationClient authClient = doPrivileged(AuthenticationContextConfigurationClient.ACTION);
 
@@ -263,6 +274,86 @@ public class SimpleDirContextFactoryBuilder {
         return this;
     }
 
+    /**
+     * Set the maximum number of contexts kept by the connection pool, both idle and in use.
+     *
+     * If set to a value greater than zero, the contexts obtained using the configured credentials stay connected and bound
+     * once they are closed, and are reused by later requests.  The built factory is then a {@link PooledDirContextFactory}.
+     * If not set, every context is created on demand and disposed of as soon as it is returned.
+     *
+     * @param poolMaxSize the maximum pool size, or {@code 0} to disable pooling
+     * @return this builder
+     */
+    public SimpleDirContextFactoryBuilder setPoolMaxSize(final int poolMaxSize) {
+        assertNotBuilt();
+        Assert.checkMinimumParameter("poolMaxSize", 0, poolMaxSize);
+        this.poolMaxSize = poolMaxSize;
+
+        return this;
+    }
+
+    /**
+     * Set the number of idle contexts of the connection pool which are kept even once they exceed the idle timeout.
+     * If not set, all idle contexts are subject to the idle timeout.
+     *
+     * @param poolMinSize the minimum pool size
+     * @return this builder
+     */
+    public SimpleDirContextFactoryBuilder setPoolMinSize(final int poolMinSize) {
+        assertNotBuilt();
+        Assert.checkMinimumParameter("poolMinSize", 0, poolMinSize);
+        this.poolMinSize = poolMinSize;
+
+        return this;
+    }
+
+    /**
+     * Set the time after which an idle context of the connection pool is closed.
+     * Set to 0 to keep idle contexts infinitely.
+     * If not set, {@value #DEFAULT_POOL_IDLE_TIMEOUT} ms will be used.
+     *
+     * @param poolIdleTimeout the idle timeout in milliseconds
+     * @return this builder
+     */
+    public SimpleDirContextFactoryBuilder setPoolIdleTimeout(final long poolIdleTimeout) {
+        assertNotBuilt();
+        Assert.checkMinimumParameter("poolIdleTimeout", 0L, poolIdleTimeout);
+        this.poolIdleTimeout = poolIdleTimeout;
+
+        return this;
+    }
+
+    /**
+     * Set the maximum time to wait for a context when all the contexts of the connection pool are in use.
+     * If not set, {@value #DEFAULT_POOL_MAX_WAIT} ms will be used.
+     *
+     * @param poolMaxWait the maximum wait time in milliseconds
+     * @return this builder
+     */
+    public SimpleDirContextFactoryBuilder setPoolMaxWait(final long poolMaxWait) {
+        assertNotBuilt();
+        Assert.checkMinimumParameter("poolMaxWait", 0L, poolMaxWait);
+        this.poolMaxWait = poolMaxWait;
+
+        return this;
+    }
+
+    /**
+     * Set whether an idle context of the connection pool should be validated with a lightweight read of its base entry
+     * before it is reused.  Contexts failing the validation are closed and replaced.
+     * Validation costs a round trip to the server for each reuse, so if not set, idle contexts are not validated and
+     * rely on the idle timeout to be replaced.
+     *
+     * @param poolValidation {@code true} to validate idle contexts, {@code false} otherwise
+     * @return this builder
+     */
+    public SimpleDirContextFactoryBuilder setPoolValidation(final boolean poolValidation) {
+        assertNotBuilt();
+        this.poolValidation = poolValidation;
+
+        return this;
+    }
+
     /**
      * Build this context factory.
      *
@@ -274,6 +365,9 @@ public class SimpleDirContextFactoryBuilder {
         if (providerUrl == null) {
             throw log.noProviderUrlSet();
         }
+        if (poolMaxSize > 0 && poolMinSize > poolMaxSize) {
+            throw log.ldapContextPoolInvalidSize(poolMinSize, poolMaxSize);
+        }
         if(this.targetModule != null){
             if(WildFlySecurityManager.isChecking()){
                 WildFlySecurityManager.doChecked(new GetModuleClassLoaderAction(this.targetModule));
@@ -288,7 +382,7 @@ public class SimpleDirContextFactoryBuilder {
             }
         }
         built = true;
-        return new SimpleDirContextFactory();
+        return poolMaxSize > 0 ? new PooledSimpleDirContextFactory() : new SimpleDirContextFactory();
     }
 
     private void assertNotBuilt() {
@@ -301,6 +395,14 @@ public class SimpleDirContextFactoryBuilder {
 
         @Override
         public DirContext obtainDirContext(ReferralMode mode) throws NamingException {
+            SocketFactory socketFactory = getSocketFactory();
+            return new DelegatingLdapContext(createServiceContext(mode, socketFactory), this::returnContext, socketFactory);
+        }
+
+        /**
+         * Create a new context bound using the configured credentials.
+         */
+        InitialLdapContext createServiceContext(ReferralMode mode, SocketFactory socketFactory) throws NamingException {
             String securityPrincipal = SimpleDirContextFactoryBuilder.this.securityPrincipal;
             char[] charPassword = null;
             if (securityCredential != null) { // password from String
@@ -352,7 +454,7 @@ public class SimpleDirContextFactoryBuilder {
                     }
                 }
             }
-            return createDirContext(securityPrincipal, charPassword, mode, getSocketFactory());
+            return createInitialContext(securityPrincipal, charPassword, mode, socketFactory);
         }
 
         @Override
@@ -378,10 +480,11 @@ public class SimpleDirContextFactoryBuilder {
                 throw log.couldNotObtainCredential();
             }
 
-            return createDirContext(securityPrincipal, securityCredential, mode, getSocketFactory());
+            SocketFactory socketFactory = getSocketFactory();
+            return new DelegatingLdapContext(createInitialContext(securityPrincipal, securityCredential, mode, socketFactory), this::returnContext, socketFactory);
         }
 
-        private SocketFactory getSocketFactory() throws NamingException {
+        SocketFactory getSocketFactory() throws NamingException {
             if (socketFactory == null && authenticationContext != null) {
                 try {
                     URI uri = new URI(providerUrl.split(" ")[0]); // only first URI used for AC resolution
@@ -397,7 +500,7 @@ public class SimpleDirContextFactoryBuilder {
             return socketFactory;
         }
 
-        private DirContext createDirContext(String securityPrincipal, char[] securityCredential, ReferralMode mode, SocketFactory socketFactory) throws NamingException {
+        private InitialLdapContext createInitialContext(String securityPrincipal, char[] securityCredential, ReferralMode mode, SocketFactory socketFactory) throws NamingException {
             final ClassLoader oldClassLoader = setClassLoaderTo(targetClassLoader);
             try{
                 Hashtable<String, Object> env = new Hashtable<>();
@@ -442,7 +545,7 @@ public class SimpleDirContextFactoryBuilder {
 
                 log.debugf("[%s] successfully created. Connection established to LDAP server.", initialContext);
 
-                return new DelegatingLdapContext(initialContext, this::returnContext, socketFactory);
+                return initialContext;
             } finally{
                 setClassLoaderTo(oldClassLoader);
             }
@@ -467,7 +570,7 @@ public class SimpleDirContextFactoryBuilder {
             }
         }
 
-        private ClassLoader setClassLoaderTo(final ClassLoader targetClassLoader){
+        ClassLoader setClassLoaderTo(final ClassLoader targetClassLoader){
             ClassLoader current = null;
             if(WildFlySecurityManager.isChecking()){
                 current = WildFlySecurityManager.getCurrentContextClassLoaderPrivileged();
@@ -480,4 +583,102 @@ public class SimpleDirContextFactoryBuilder {
         }
     }
 
+    private class PooledSimpleDirContextFactory extends SimpleDirContextFactory implements PooledDirContextFactory {
+
+        private final DirContextPool pool = new DirContextPool(new DirContextPool.ContextHandler() {
+            @Override
+            public DirContext create(ReferralMode mode) throws NamingException {
+                return createServiceContext(mode, getPoolSocketFactory());
+            }
+
+            @Override
+            public boolean isValid(DirContext context) {
+                return validateContext(context);
+            }
+
+            @Override
+            public void close(DirContext context) {
+                returnContext(context);
+            }
+        }, poolMinSize, poolMaxSize, poolIdleTimeout, poolMaxWait, poolValidation);
+
+        private volatile SocketFactory poolSocketFactory;
+        private volatile boolean poolSocketFactoryResolved;
+
+        @Override
+        public DirContext obtainDirContext(ReferralMode mode) throws NamingException {
+            final ReferralMode referralMode = mode == null ? ReferralMode.IGNORE : mode;
+            final DirContext context = pool.borrow(referralMode);
+            final AtomicBoolean released = new AtomicBoolean();
+            return new DelegatingLdapContext(context, c -> {
+                // closing the same context twice must not return it to the pool twice
+                if (released.compareAndSet(false, true)) {
+                    pool.release(referralMode, c);
+                }
+            }, getPoolSocketFactory());
+        }
+
+        /**
+         * All pooled contexts are created using the same socket factory, which is only resolved once.
+         */
+        private SocketFactory getPoolSocketFactory() throws NamingException {
+            if (! poolSocketFactoryResolved) {
+                poolSocketFactory = getSocketFactory();
+                poolSocketFactoryResolved = true;
+            }
+            return poolSocketFactory;
+        }
+
+        private boolean validateContext(DirContext context) {
+            final ClassLoader oldClassLoader = setClassLoaderTo(targetClassLoader);
+            final SocketFactory socketFactory = poolSocketFactory;
+            try {
+                if (socketFactory != null) ThreadLocalSSLSocketFactory.set(socketFactory);
+                context.getAttributes("", NO_ATTRIBUTES);
+                return true;
+            } catch (NamingException e) {
+                log.debugf(e, "Validation of pooled context [%s] failed.", context);
+                return false;
+            } finally {
+                if (socketFactory != null) ThreadLocalSSLSocketFactory.unset();
+                setClassLoaderTo(oldClassLoader);
+            }
+        }
+
+        @Override
+        public int getPoolSize() {
+            return pool.getSize();
+        }
+
+        @Override
+        public int getIdleCount() {
+            return pool.getIdleCount();
+        }
+
+        @Override
+        public long getAcquisitionCount() {
+            return pool.getAcquisitionCount();
+        }
+
+        @Override
+        public long getAcquisitionTimeoutCount() {
+            return pool.getAcquisitionTimeoutCount();
+        }
+
+        @Override
+        public long getAcquisitionWaitTime(TimeUnit unit) {
+            return pool.getAcquisitionWaitTime(unit);
+        }
+
+        @Override
+        public long getMaxAcquisitionWaitTime(TimeUnit unit) {
+            return pool.getMaxAcquisitionWaitTime(unit);
+        }
+
+        @Override
+        public void close() {
+            pool.close();
+        }
+    }
+
 }
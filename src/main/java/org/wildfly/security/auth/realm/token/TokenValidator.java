@@ -22,6 +22,9 @@ import org.wildfly.security.auth.server.RealmUnavailableException;
 import org.wildfly.security.authz.Attributes;
 import org.wildfly.security.evidence.BearerTokenEvidence;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * <p>A {@link TokenValidator} is responsible to validate a {@link BearerTokenEvidence} and support validation and transformation
  * of different types of security tokens.
@@ -40,4 +43,26 @@ public interface TokenValidator {
      * @throws RealmUnavailableException if any error occurs when validating the evidence
      */
     Attributes validate(BearerTokenEvidence evidence) throws RealmUnavailableException;
+
+    /**
+     * <p>Validates a {@link BearerTokenEvidence} asynchronously, without blocking the calling thread on remote calls.
+     *
+     * <p>The default implementation validates the evidence in the calling thread using {@link #validate(BearerTokenEvidence)}.
+     * Validators relying on remote calls should override this method.
+     *
+     * @param evidence a {@link BearerTokenEvidence} holding the security token to validate
+     * @return a {@link CompletionStage} completed with the result of {@link #validate(BearerTokenEvidence)}, or completed
+     * exceptionally with a {@link RealmUnavailableException} if any error occurs when validating the evidence
+     */
+    default CompletionStage<Attributes> validateAsync(BearerTokenEvidence evidence) {
+        CompletableFuture<Attributes> result = new CompletableFuture<>();
+
+        try {
+            result.complete(validate(evidence));
+        } catch (RealmUnavailableException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+
+        return result;
+    }
 }
@@ -0,0 +1,214 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.token.validator;
+
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.wildfly.security.auth.realm.token.TokenValidator;
+import org.wildfly.security.auth.server.RealmUnavailableException;
+import org.wildfly.security.authz.Attributes;
+import org.wildfly.security.evidence.BearerTokenEvidence;
+import org.wildfly.security.util._private.SegmentedLRUCache;
+
+/**
+ * A {@link TokenValidator} caching the tokens successfully validated by another {@link TokenValidator}, so that tokens used
+ * repeatedly are only verified, or introspected, once.
+ *
+ * <p>Tokens are cached by their SHA-256 digest, so that the cache does not hold the tokens themselves. A token is cached until
+ * the maximum age elapses or the token expires, as indicated by its <code>exp</code> claim, whichever comes first. Tokens
+ * which failed the validation are not cached. When the cache is full, the least recently used tokens are evicted, tracked
+ * separately by a few segments of the cache, so that tokens in active use stay cached while new tokens keep arriving.
+ *
+ * <p>As cached tokens are not validated again, the maximum age also bounds the time a token revoked by the Authorization
+ * Server is still accepted.
+ */
+public class CachingTokenValidator implements TokenValidator {
+
+    /**
+     * Returns a {@link Builder} instance that can be used to configure and create a {@link CachingTokenValidator}.
+     *
+     * @return a {@link Builder} instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final TokenValidator validator;
+    private final long maximumAge;
+    private final SegmentedLRUCache<String, CachedToken> tokens;
+
+    CachingTokenValidator(Builder configuration) {
+        this.validator = checkNotNullParam("validator", configuration.validator);
+        this.maximumAge = configuration.maximumAge;
+        this.tokens = new SegmentedLRUCache<>(configuration.maximumSize);
+    }
+
+    @Override
+    public Attributes validate(BearerTokenEvidence evidence) throws RealmUnavailableException {
+        checkNotNullParam("evidence", evidence);
+        String key = digest(evidence.getToken());
+
+        if (key == null) {
+            return validator.validate(evidence);
+        }
+
+        long currentTime = System.currentTimeMillis();
+        Attributes claims = get(key, currentTime);
+
+        if (claims == null) {
+            claims = validator.validate(evidence);
+            cache(key, claims, currentTime);
+        }
+
+        return claims;
+    }
+
+    @Override
+    public CompletionStage<Attributes> validateAsync(BearerTokenEvidence evidence) {
+        checkNotNullParam("evidence", evidence);
+        String key = digest(evidence.getToken());
+
+        if (key == null) {
+            return validator.validateAsync(evidence);
+        }
+
+        long currentTime = System.currentTimeMillis();
+        Attributes claims = get(key, currentTime);
+
+        if (claims != null) {
+            return CompletableFuture.completedFuture(claims);
+        }
+
+        return validator.validateAsync(evidence).thenApply(validated -> {
+            cache(key, validated, currentTime);
+            return validated;
+        });
+    }
+
+    private String digest(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            log.debug("Unable to compute token digest, validating token without cache", e);
+            return null;
+        }
+    }
+
+    private Attributes get(String key, long currentTime) {
+        CachedToken cached = tokens.get(key, token -> token.expiration > currentTime);
+        return cached == null ? null : cached.claims;
+    }
+
+    private void cache(String key, Attributes claims, long currentTime) {
+        if (claims == null) {
+            return;
+        }
+
+        long expiration = currentTime + maximumAge;
+        String exp = claims.getFirst("exp");
+
+        if (exp != null) {
+            try {
+                expiration = Math.min(expiration, TimeUnit.SECONDS.toMillis(Long.parseLong(exp)));
+            } catch (NumberFormatException e) {
+                log.debugf("Token has invalid expiration [%s], caching it for the maximum age", exp);
+            }
+        }
+
+        if (expiration > currentTime) {
+            tokens.put(key, new CachedToken(claims.asReadOnly(), expiration));
+        }
+    }
+
+    static final class CachedToken {
+
+        final Attributes claims;
+        final long expiration;
+
+        CachedToken(Attributes claims, long expiration) {
+            this.claims = claims;
+            this.expiration = expiration;
+        }
+    }
+
+    public static class Builder {
+
+        private TokenValidator validator;
+        private int maximumSize = 1000;
+        private long maximumAge = TimeUnit.MINUTES.toMillis(5);
+
+        private Builder() {
+        }
+
+        /**
+         * The {@link TokenValidator} validating the tokens which are not cached yet.
+         *
+         * @param validator the token validator, for example a {@link JwtValidator} or an {@link OAuth2IntrospectValidator}
+         * @return this instance
+         */
+        public Builder validator(TokenValidator validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        /**
+         * The maximum number of tokens to cache. Defaults to <code>1000</code>.
+         *
+         * @param maximumSize the maximum number of tokens to cache
+         * @return this instance
+         */
+        public Builder maximumSize(int maximumSize) {
+            checkMinimumParameter("maximumSize", 1, maximumSize);
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * The maximum time in milliseconds a token is cached, even if it expires later. Defaults to five minutes.
+         *
+         * @param maximumAge the maximum age of cached tokens in milliseconds
+         * @return this instance
+         */
+        public Builder maximumAge(long maximumAge) {
+            checkMinimumParameter("maximumAge", 0, maximumAge);
+            this.maximumAge = maximumAge;
+            return this;
+        }
+
+        /**
+         * Returns a {@link CachingTokenValidator} instance based on all the configuration provided with this builder.
+         *
+         * @return a new {@link CachingTokenValidator} instance with all the given configuration
+         */
+        public CachingTokenValidator build() {
+            return new CachingTokenValidator(this);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.token.validator;
+
+import static java.security.AccessController.doPrivileged;
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivilegedAction;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+
+import org.jboss.threads.JBossThreadFactory;
+
+/**
+ * A {@link JwtKeyResolver} resolving keys by their key identifier from a RFC-7517 (JSON Web Key) set, such as the one
+ * published by an OAuth2 Authorization Server.
+ *
+ * <p>The key set is loaded from an {@link URL}, either a remote <code>http</code> or <code>https</code> endpoint or a local
+ * <code>file</code>. The keys are kept in memory and the key set is reloaded in the background periodically, with a random
+ * jitter of up to a tenth of the refresh interval so that several servers do not reload the key set at the same time. When a
+ * token refers to an unknown key the key set is reloaded in the background as well, at most once per minimum refresh interval,
+ * so that keys rotated by the Authorization Server are picked up before the next periodic reload. Resolving a key never waits
+ * for the key set to be loaded.
+ */
+public class JwkSetKeyResolver implements JwtKeyResolver, AutoCloseable {
+
+    /**
+     * Returns a {@link Builder} instance that can be used to configure and create a {@link JwkSetKeyResolver}.
+     *
+     * @return a {@link Builder} instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static final int CONNECTION_TIMEOUT = 10000;
+
+    private final URL url;
+    private final SSLContext sslContext;
+    private final HostnameVerifier hostnameVerifier;
+    private final long refreshInterval;
+    private final long minimumRefreshInterval;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile KeySet keySet = new KeySet(Collections.emptyMap(), Collections.emptyList());
+    private volatile long lastRefresh;
+    private ScheduledFuture<?> scheduledRefresh;
+    private volatile boolean closed;
+
+    JwkSetKeyResolver(Builder configuration) {
+        this.url = checkNotNullParam("url", configuration.url);
+
+        if (url.getProtocol().equalsIgnoreCase("https")) {
+            checkNotNullParam("sslContext", configuration.sslContext);
+        }
+
+        this.sslContext = configuration.sslContext;
+        this.hostnameVerifier = configuration.hostnameVerifier;
+        this.refreshInterval = configuration.refreshInterval;
+        this.minimumRefreshInterval = configuration.minimumRefreshInterval;
+        this.executor = configuration.executor != null ? configuration.executor : DefaultExecutorHolder.executor;
+
+        refresh();
+    }
+
+    @Override
+    public PublicKey resolvePublicKey(String keyId, String algorithm) {
+        KeySet keySet = this.keySet;
+
+        if (keyId == null) {
+            // without a key identifier a key can only be picked if there is no other choice
+            return keySet.keys.size() == 1 ? keySet.keys.get(0) : null;
+        }
+
+        PublicKey publicKey = keySet.keysById.get(keyId);
+
+        if (publicKey == null) {
+            log.debugf("Unknown key [%s] in JSON Web Key set from [%s]", keyId, url);
+            requestRefresh();
+        }
+
+        return publicKey;
+    }
+
+    /**
+     * Stop the periodic reloading of the key set. Keys already loaded can still be resolved.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+    }
+
+    private void requestRefresh() {
+        if (! closed && System.currentTimeMillis() - lastRefresh >= minimumRefreshInterval && refreshing.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::refresh);
+            } catch (RuntimeException e) {
+                refreshing.set(false);
+                log.debugf(e, "Unable to schedule reload of JSON Web Key set from [%s]", url);
+            }
+        }
+    }
+
+    private void refresh() {
+        refreshing.set(true);
+        try {
+            lastRefresh = System.currentTimeMillis();
+            keySet = loadKeySet();
+            log.debugf("Loaded JSON Web Key set from [%s] with key identifiers %s", url, keySet.keysById.keySet());
+        } catch (Exception e) {
+            // keep the keys loaded previously, they are preferable to no keys at all
+            log.tokenRealmJwkSetLoadFailed(url, e);
+        } finally {
+            refreshing.set(false);
+            scheduleRefresh();
+        }
+    }
+
+    private synchronized void scheduleRefresh() {
+        if (closed) {
+            return;
+        }
+
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+
+        long jitter = refreshInterval / 10;
+        long delay = refreshInterval - jitter + (jitter > 0 ? ThreadLocalRandom.current().nextLong(2 * jitter + 1) : 0);
+
+        try {
+            this.scheduledRefresh = executor.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.debugf(e, "Unable to schedule reload of JSON Web Key set from [%s]", url);
+        }
+    }
+
+    private KeySet loadKeySet() throws IOException {
+        URLConnection connection = url.openConnection();
+
+        if (connection instanceof HttpsURLConnection) {
+            HttpsURLConnection https = (HttpsURLConnection) connection;
+
+            https.setSSLSocketFactory(sslContext.getSocketFactory());
+
+            if (hostnameVerifier != null) {
+                https.setHostnameVerifier(hostnameVerifier);
+            }
+        }
+
+        connection.setConnectTimeout(CONNECTION_TIMEOUT);
+        connection.setReadTimeout(CONNECTION_TIMEOUT);
+        connection.setUseCaches(false);
+
+        JsonObject jwkSet;
+
+        try (InputStream inputStream = new BufferedInputStream(connection.getInputStream())) {
+            jwkSet = Json.createReader(inputStream).readObject();
+        }
+
+        JsonArray jwks = jwkSet.getJsonArray("keys");
+
+        if (jwks == null) {
+            throw new IOException("Missing keys");
+        }
+
+        Map<String, PublicKey> keysById = new HashMap<>();
+        List<PublicKey> keys = new ArrayList<>();
+
+        for (JsonValue value : jwks) {
+            if (! JsonValue.ValueType.OBJECT.equals(value.getValueType())) {
+                continue;
+            }
+
+            JsonObject jwk = (JsonObject) value;
+            String keyId = jwk.getString("kid", null);
+            String use = jwk.getString("use", null);
+
+            if (use != null && ! use.equals("sig")) {
+                continue;
+            }
+
+            PublicKey publicKey;
+
+            try {
+                publicKey = toPublicKey(jwk);
+            } catch (Exception e) {
+                log.debugf(e, "Ignoring invalid key [%s] in JSON Web Key set from [%s]", keyId, url);
+                continue;
+            }
+
+            if (publicKey == null) {
+                log.debugf("Ignoring key [%s] of unsupported type in JSON Web Key set from [%s]", keyId, url);
+                continue;
+            }
+
+            if (keyId != null) {
+                keysById.put(keyId, publicKey);
+            }
+
+            keys.add(publicKey);
+        }
+
+        return new KeySet(keysById, keys);
+    }
+
+    private static PublicKey toPublicKey(JsonObject jwk) throws GeneralSecurityException {
+        String keyType = jwk.getString("kty", null);
+
+        if ("RSA".equals(keyType)) {
+            BigInteger modulus = decodeInteger(jwk.getString("n"));
+            BigInteger exponent = decodeInteger(jwk.getString("e"));
+
+            return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+        } else if ("EC".equals(keyType)) {
+            String curve;
+
+            switch (jwk.getString("crv")) {
+                case "P-256":
+                    curve = "secp256r1";
+                    break;
+                case "P-384":
+                    curve = "secp384r1";
+                    break;
+                case "P-521":
+                    curve = "secp521r1";
+                    break;
+                default:
+                    return null;
+            }
+
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(curve));
+            ECPoint point = new ECPoint(decodeInteger(jwk.getString("x")), decodeInteger(jwk.getString("y")));
+
+            return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+        }
+
+        return null;
+    }
+
+    private static BigInteger decodeInteger(String value) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+    }
+
+    private static final class KeySet {
+
+        final Map<String, PublicKey> keysById;
+        final List<PublicKey> keys;
+
+        KeySet(Map<String, PublicKey> keysById, List<PublicKey> keys) {
+            this.keysById = keysById;
+            this.keys = keys;
+        }
+    }
+
+    public static class Builder {
+
+        private URL url;
+        private SSLContext sslContext;
+        private HostnameVerifier hostnameVerifier;
+        private long refreshInterval = TimeUnit.MINUTES.toMillis(10);
+        private long minimumRefreshInterval = TimeUnit.SECONDS.toMillis(30);
+        private ScheduledExecutorService executor;
+
+        private Builder() {
+        }
+
+        /**
+         * An {@link URL} the JSON Web Key set is loaded from. Besides <code>http</code> and <code>https</code> endpoints,
+         * any {@link URL} supported by the JVM, such as a <code>file</code> {@link URL}, can be used.
+         *
+         * @param url the {@link URL} of the key set
+         * @return this instance
+         */
+        public Builder url(URL url) {
+            this.url = url;
+            return this;
+        }
+
+        /**
+         * <p>A predefined {@link SSLContext} that will be used to connect to the key set endpoint when using SSL/TLS.
+         * This configuration is mandatory if the given key set endpoint is using SSL/TLS.
+         *
+         * @param sslContext the SSL context
+         * @return this instance
+         */
+        public Builder useSslContext(SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        /**
+         * A {@link HostnameVerifier} that will be used to validate the hostname when using SSL/TLS. If not provided, the default
+         * hostname verification applies.
+         *
+         * @param hostnameVerifier the hostname verifier
+         * @return this instance
+         */
+        public Builder useSslHostnameVerifier(HostnameVerifier hostnameVerifier) {
+            this.hostnameVerifier = hostnameVerifier;
+            return this;
+        }
+
+        /**
+         * The time in milliseconds between two periodic reloads of the key set. Defaults to ten minutes.
+         *
+         * @param refreshInterval the refresh interval in milliseconds
+         * @return this instance
+         */
+        public Builder refreshInterval(long refreshInterval) {
+            checkMinimumParameter("refreshInterval", 1, refreshInterval);
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        /**
+         * The minimum time in milliseconds between two reloads of the key set triggered by tokens referring to unknown keys.
+         * Defaults to thirty seconds.
+         *
+         * @param minimumRefreshInterval the minimum refresh interval in milliseconds
+         * @return this instance
+         */
+        public Builder minimumRefreshInterval(long minimumRefreshInterval) {
+            checkMinimumParameter("minimumRefreshInterval", 0, minimumRefreshInterval);
+            this.minimumRefreshInterval = minimumRefreshInterval;
+            return this;
+        }
+
+        /**
+         * The executor the key set is reloaded by. Defaults to a single daemon thread shared by the resolvers without an
+         * executor, so that slow key set endpoints do not hold up other scheduled tasks.
+         *
+         * @param executor the executor
+         * @return this instance
+         */
+        public Builder executor(ScheduledExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Returns a {@link JwkSetKeyResolver} instance based on all the configuration provided with this builder. The key
+         * set is loaded once before this method returns.
+         *
+         * @return a new {@link JwkSetKeyResolver} instance with all the given configuration
+         */
+        public JwkSetKeyResolver build() {
+            return new JwkSetKeyResolver(this);
+        }
+    }
+
+    private static class DefaultExecutorHolder {
+        private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, doPrivileged((PrivilegedAction<JBossThreadFactory>) ()
+                -> new JBossThreadFactory(new ThreadGroup("JwkSetKeyResolver ThreadGroup"), Boolean.TRUE, null, "%G - %t", null, null)));
+
+        static {
+            executor.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.token.validator;
+
+import java.security.PublicKey;
+
+/**
+ * A resolver of the public keys used by a {@link JwtValidator} to verify the signature of tokens.
+ *
+ * <p>Keys are resolved once per validated token, so implementations must not block on network access when resolving a
+ * key. Implementations backed by a remote source of keys are expected to cache the keys and to refresh them in the background.
+ */
+@FunctionalInterface
+public interface JwtKeyResolver {
+
+    /**
+     * Resolve the public key to verify the signature of a token with.
+     *
+     * @param keyId the value of the <code>kid</code> header of the token, or {@code null} if the token has no such header
+     * @param algorithm the value of the <code>alg</code> header of the token
+     * @return the public key, or {@code null} if no key is known for the given key identifier
+     */
+    PublicKey resolvePublicKey(String keyId, String algorithm);
+}
@@ -24,7 +24,7 @@ import org.wildfly.security.authz.Attributes;
 import org.wildfly.security.evidence.BearerTokenEvidence;
 import org.wildfly.security.pem.Pem;
 import org.wildfly.security.pem.PemEntry;
-import org.wildfly.security.util.ByteIterator;
+import org.wildfly.security.util.ByteStringBuilder;
 import org.wildfly.security.util.CodePointIterator;
 
 import javax.json.Json;
@@ -34,12 +34,19 @@ import javax.json.JsonString;
 import javax.json.JsonValue;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidAlgorithmParameterException;
 import java.security.PublicKey;
 import java.security.Signature;
-import java.security.SignatureException;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static java.util.Arrays.asList;
@@ -70,12 +77,22 @@ public class JwtValidator implements TokenValidator {
     private final Set<String> issuers;
     private final Set<String> audiences;
 
-    private final PublicKey publicKey;
+    private final JwtKeyResolver keyResolver;
+
+    private static final ThreadLocal<Map<String, Verifier>> signatures = ThreadLocal.withInitial(HashMap::new);
 
     JwtValidator(Builder configuration) {
         this.issuers = checkNotNullParam("issuers", configuration.issuers);
         this.audiences = checkNotNullParam("audience", configuration.audience);
-        this.publicKey = configuration.publicKey;
+
+        if (configuration.keyResolver != null) {
+            this.keyResolver = configuration.keyResolver;
+        } else if (configuration.publicKey != null) {
+            PublicKey publicKey = configuration.publicKey;
+            this.keyResolver = (keyId, algorithm) -> publicKey;
+        } else {
+            this.keyResolver = null;
+        }
 
         if (issuers.isEmpty()) {
             log.tokenRealmJwtWarnNoIssuerIgnoringIssuerCheck();
@@ -85,7 +102,7 @@ public class JwtValidator implements TokenValidator {
             log.tokenRealmJwtWarnNoAudienceIgnoringAudienceCheck();
         }
 
-        if (publicKey == null) {
+        if (keyResolver == null) {
             log.tokenRealmJwtWarnNoPublicKeyIgnoringSignatureCheck();
         }
     }
@@ -94,19 +111,24 @@ public class JwtValidator implements TokenValidator {
     public Attributes validate(BearerTokenEvidence evidence) throws RealmUnavailableException {
         checkNotNullParam("evidence", evidence);
         String jwt = evidence.getToken();
-        String[] parts = jwt.split("\\.", -1);
+        // the parts of the compact serialization are located by offsets, instead of being copied out of the token
+        int headerEnd = jwt.indexOf('.');
+        int claimsEnd = headerEnd == -1 ? -1 : jwt.indexOf('.', headerEnd + 1);
 
-        if (parts.length < 3) {
+        if (claimsEnd == -1) {
             throw log.tokenRealmJwtInvalidFormat();
         }
 
-        String encodedHeader = parts[0];
-        String encodedClaims = parts[1];
-        String encodedSignature = parts[2];
+        int signatureEnd = jwt.indexOf('.', claimsEnd + 1);
+
+        if (signatureEnd == -1) {
+            signatureEnd = jwt.length();
+        }
 
-        JsonObject claims = extractClaims(encodedClaims);
+        byte[] token = jwt.getBytes(StandardCharsets.US_ASCII);
+        JsonObject claims = extractClaims(token, headerEnd + 1, claimsEnd);
 
-        if (verifySignature(encodedHeader, encodedClaims, encodedSignature)
+        if (verifySignature(token, headerEnd, claimsEnd, signatureEnd)
                 && hasValidIssuer(claims)
                 && hasValidAudience(claims)
                 && verifyTimeConstraints(claims)) {
@@ -137,26 +159,61 @@ public class JwtValidator implements TokenValidator {
         return true;
     }
 
-    private JsonObject extractClaims(String encodedClaims) throws RealmUnavailableException {
+    private JsonObject extractClaims(byte[] token, int start, int end) throws RealmUnavailableException {
         try {
-            Base64.Decoder urlDecoder = Base64.getUrlDecoder();
-            CodePointIterator decodedClaims = CodePointIterator.ofUtf8Bytes(urlDecoder.decode(encodedClaims));
-
-            return Json.createReader(decodedClaims.asUtf8().asInputStream()).readObject();
+            return readJson(token, start, end);
         } catch (Exception cause) {
             throw log.tokenRealmJwtParseFailed(cause);
         }
     }
 
-    private boolean verifySignature(String encodedHeader, String encodedClaims, String encodedSignature) throws RealmUnavailableException {
-        if (publicKey == null) {
+    private static JsonObject readJson(byte[] token, int start, int end) {
+        ByteBuffer decoded = Base64.getUrlDecoder().decode(ByteBuffer.wrap(token, start, end - start));
+
+        return Json.createReader(new ByteArrayInputStream(decoded.array(), decoded.position(), decoded.remaining())).readObject();
+    }
+
+    private boolean verifySignature(byte[] token, int headerEnd, int claimsEnd, int signatureEnd) throws RealmUnavailableException {
+        if (keyResolver == null) {
             return true;
         }
         try {
-            Base64.Decoder urlDecoder = Base64.getUrlDecoder();
-            byte[] decodedSignature = urlDecoder.decode(encodedSignature);
+            JsonObject headers = readJson(token, 0, headerEnd);
+            String algorithm = resolveAlgorithm(headers);
+            String keyId = headers.getString("kid", null);
+            PublicKey publicKey = keyResolver.resolvePublicKey(keyId, algorithm);
 
-            boolean verify = ByteIterator.ofBytes(decodedSignature).verify(createSignature(encodedHeader, encodedClaims));
+            if (publicKey == null) {
+                log.debugf("No public key found for key id [%s]", keyId);
+                return false;
+            }
+
+            if (! getKeyType(algorithm).equals(publicKey.getAlgorithm())) {
+                log.debugf("Public key of type [%s] found for key id [%s] can not verify algorithm [%s]", publicKey.getAlgorithm(), keyId, algorithm);
+                return false;
+            }
+
+            ByteBuffer decodedSignature = Base64.getUrlDecoder().decode(ByteBuffer.wrap(token, claimsEnd + 1, signatureEnd - claimsEnd - 1));
+            byte[] signatureBytes = decodedSignature.array();
+            int signatureOffset = decodedSignature.position();
+            int signatureLength = decodedSignature.remaining();
+
+            if (algorithm.startsWith("ES")) {
+                signatureBytes = toDerSignature(signatureBytes, signatureOffset, signatureLength, algorithm);
+
+                if (signatureBytes == null) {
+                    log.debug("Signature verification failed");
+                    return false;
+                }
+
+                signatureOffset = 0;
+                signatureLength = signatureBytes.length;
+            }
+
+            Signature signature = getSignature(algorithm, publicKey);
+            // the signing input is the encoded header and claims, including the separating dot
+            signature.update(token, 0, claimsEnd);
+            boolean verify = signature.verify(signatureBytes, signatureOffset, signatureLength);
 
             if (!verify) {
                 log.debug("Signature verification failed");
@@ -164,10 +221,35 @@ public class JwtValidator implements TokenValidator {
 
             return verify;
         } catch (Exception cause) {
+            // the state of a signature which failed is unknown, so it is not reused
+            signatures.remove();
             throw log.tokenRealmJwtSignatureCheckFailed(cause);
         }
     }
 
+    /**
+     * Get a {@link Signature} of the current thread for the given algorithm, initialized to verify with the given key. Once
+     * verified, a {@link Signature} is reset to the state it was after its initialization, so it can be used again as long
+     * as the key does not change.
+     */
+    private static Signature getSignature(String algorithm, PublicKey publicKey) throws NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException {
+        Map<String, Verifier> verifiers = signatures.get();
+        Verifier verifier = verifiers.get(algorithm);
+
+        if (verifier == null) {
+            verifier = new Verifier(createSignature(algorithm));
+            verifiers.put(algorithm, verifier);
+        }
+
+        if (verifier.publicKey != publicKey) {
+            verifier.publicKey = null;
+            verifier.signature.initVerify(publicKey);
+            verifier.publicKey = publicKey;
+        }
+
+        return verifier.signature;
+    }
+
     private boolean hasValidAudience(JsonObject claims) throws RealmUnavailableException {
         JsonValue audience = claims.get("aud");
 
@@ -176,14 +258,19 @@ public class JwtValidator implements TokenValidator {
             return false;
         }
 
-        JsonArray audClaimArray;
-
         if (JsonValue.ValueType.STRING.equals(audience.getValueType())) {
-            audClaimArray = Json.createArrayBuilder().add(audience).build();
-        } else {
-            audClaimArray = (JsonArray) audience;
+            String audienceName = ((JsonString) audience).getString();
+            boolean valid = audiences.isEmpty() || audiences.contains(audienceName);
+
+            if (!valid) {
+                log.debugf("Audience check failed. Provided [%s] but was expected [%s].", audienceName, this.audiences);
+            }
+
+            return valid;
         }
 
+        JsonArray audClaimArray = (JsonArray) audience;
+
         boolean valid = audClaimArray.stream()
                 .map(jsonValue -> (JsonString) jsonValue)
                 .anyMatch(audience1 -> audiences.contains(audience1.getString())) || audiences.isEmpty();
@@ -211,18 +298,97 @@ public class JwtValidator implements TokenValidator {
         return valid;
     }
 
-    private Signature createSignature(String encodedHeader, String encodedClaims) throws NoSuchAlgorithmException, InvalidKeyException, SignatureException, RealmUnavailableException {
-        Signature signature = Signature.getInstance(resolveAlgorithm(encodedHeader));
+    private static Signature createSignature(String algorithm) throws NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+        Signature signature;
 
-        signature.initVerify(this.publicKey);
-        signature.update((encodedHeader + "." + encodedClaims).getBytes());
+        switch (algorithm) {
+            case "RS256":
+                signature = Signature.getInstance("SHA256withRSA");
+                break;
+            case "RS384":
+                signature = Signature.getInstance("SHA384withRSA");
+                break;
+            case "RS512":
+                signature = Signature.getInstance("SHA512withRSA");
+                break;
+            case "PS256":
+                signature = Signature.getInstance("RSASSA-PSS");
+                signature.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+                break;
+            case "ES256":
+                signature = Signature.getInstance("SHA256withECDSA");
+                break;
+            case "ES384":
+                signature = Signature.getInstance("SHA384withECDSA");
+                break;
+            default:
+                signature = Signature.getInstance("SHA512withECDSA");
+                break;
+        }
 
         return signature;
     }
 
-    private String resolveAlgorithm(String part) throws RealmUnavailableException {
-        byte[] headerDecoded = Base64.getUrlDecoder().decode(part);
-        JsonObject headers = Json.createReader(ByteIterator.ofBytes(headerDecoded).asInputStream()).readObject();
+    /**
+     * Convert a JWS ECDSA signature, the concatenation of the R and S values, to the DER encoding expected by {@link Signature}.
+     *
+     * @return the DER encoded signature, or {@code null} if the signature does not have the length expected by the algorithm
+     */
+    private static byte[] toDerSignature(byte[] signature, int offset, int signatureLength, String algorithm) {
+        int length;
+
+        switch (algorithm) {
+            case "ES256":
+                length = 32;
+                break;
+            case "ES384":
+                length = 48;
+                break;
+            default:
+                length = 66;
+                break;
+        }
+
+        if (signatureLength != 2 * length) {
+            return null;
+        }
+
+        byte[] r = toDerInteger(signature, offset, length);
+        byte[] s = toDerInteger(signature, offset + length, length);
+        int contentLength = r.length + s.length;
+        ByteStringBuilder der = new ByteStringBuilder();
+
+        der.append((byte) 0x30);
+        if (contentLength > 0x7f) {
+            der.append((byte) 0x81);
+        }
+        der.append((byte) contentLength);
+        der.append(r);
+        der.append(s);
+
+        return der.toArray();
+    }
+
+    private static byte[] toDerInteger(byte[] bytes, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+
+        while (start < end - 1 && bytes[start] == 0) {
+            start++;
+        }
+
+        boolean padding = (bytes[start] & 0x80) != 0;
+        int valueLength = end - start + (padding ? 1 : 0);
+        byte[] integer = new byte[2 + valueLength];
+
+        integer[0] = 0x02;
+        integer[1] = (byte) valueLength;
+        System.arraycopy(bytes, start, integer, padding ? 3 : 2, end - start);
+
+        return integer;
+    }
+
+    private String resolveAlgorithm(JsonObject headers) throws RealmUnavailableException {
         JsonString algClaim = (JsonString) headers.get("alg");
 
         if (algClaim == null) {
@@ -235,25 +401,45 @@ public class JwtValidator implements TokenValidator {
 
         switch (algorithm) {
             case "RS256":
-                return "SHA256withRSA";
             case "RS384":
-                return "SHA384withRSA";
             case "RS512":
-                return "SHA512withRSA";
+            case "PS256":
+            case "ES256":
+            case "ES384":
+            case "ES512":
+                return algorithm;
             default:
                 throw log.tokenRealmJwtSignatureInvalidAlgorithm(algorithm);
         }
     }
 
+    /**
+     * Get the type of the keys verifying the given algorithm, as returned by {@link PublicKey#getAlgorithm()}.
+     */
+    private static String getKeyType(String algorithm) {
+        return algorithm.startsWith("ES") ? "EC" : "RSA";
+    }
+
     private int currentTimeInSeconds() {
         return ((int) (System.currentTimeMillis() / 1000));
     }
 
+    private static final class Verifier {
+
+        final Signature signature;
+        PublicKey publicKey;
+
+        Verifier(Signature signature) {
+            this.signature = signature;
+        }
+    }
+
     public static class Builder {
 
         private Set<String> issuers = new LinkedHashSet<>();
         private Set<String> audience = new LinkedHashSet<>();
         private PublicKey publicKey;
+        private JwtKeyResolver keyResolver;
 
         private Builder() {
         }
@@ -320,6 +506,20 @@ public class JwtValidator implements TokenValidator {
             return this;
         }
 
+        /**
+         * <p>A {@link JwtKeyResolver} used to resolve the public key to validate the signature with, based on the key identifier
+         * (<code>kid</code>) of a token. Takes precedence over a public key configured with {@link #publicKey(PublicKey)}.
+         *
+         * <p>If neither a key resolver nor a public key is provided, the validator will not validate signatures.
+         *
+         * @param keyResolver the key resolver, for example a {@link JwkSetKeyResolver}
+         * @return this instance
+         */
+        public Builder keyResolver(JwtKeyResolver keyResolver) {
+            this.keyResolver = keyResolver;
+            return this;
+        }
+
         /**
          * Returns a {@link JwtValidator} instance based on all the configuration provided with this builder.
          *
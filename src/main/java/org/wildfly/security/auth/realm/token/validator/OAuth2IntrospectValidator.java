@@ -18,6 +18,7 @@
 
 package org.wildfly.security.auth.realm.token.validator;
 
+import org.jboss.threads.JBossThreadFactory;
 import org.wildfly.common.Assert;
 import org.wildfly.security.auth.realm.token.TokenValidator;
 import org.wildfly.security.auth.server.RealmUnavailableException;
@@ -31,6 +32,7 @@ import javax.json.JsonObject;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -40,14 +42,31 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.HashMap;
+import java.net.URLEncoder;
+import java.security.PrivilegedAction;
+import java.util.LinkedHashMap;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.security.AccessController.doPrivileged;
 import static org.wildfly.security._private.ElytronMessages.log;
 import static org.wildfly.security.util.JsonUtil.toAttributes;
 
 /**
- * A RFC-7662 (OAuth2 Token Introspection) compliant {@link TokenValidator}.
+ * <p>A RFC-7662 (OAuth2 Token Introspection) compliant {@link TokenValidator}.
+ *
+ * <p>Connections to the token introspection endpoint are kept alive and reused between introspections, up to the number of
+ * connections kept alive by the JVM (see the <code>http.maxConnections</code> system property). The number of introspections
+ * in progress at the same time is limited, and concurrent validations of the same token share a single introspection.
  *
  * @author <a href="mailto:psilva@redhat.com">Pedro Igor</a>
  */
@@ -65,8 +84,13 @@ public class OAuth2IntrospectValidator implements TokenValidator {
     private final URL tokenIntrospectionUrl;
     private final String clientId;
     private final String clientSecret;
-    private final SSLContext sslContext;
+    private final SSLSocketFactory sslSocketFactory;
     private final HostnameVerifier hostnameVerifier;
+    private final int connectionTimeout;
+    private final int readTimeout;
+    private final Semaphore inFlight;
+    private final Executor executor;
+    private final ConcurrentHashMap<String, CompletableFuture<JsonObject>> introspections = new ConcurrentHashMap<>();
 
     OAuth2IntrospectValidator(Builder configuration) {
         this.tokenIntrospectionUrl = Assert.checkNotNullParam("tokenIntrospectionUrl", configuration.tokenIntrospectionUrl);
@@ -77,8 +101,21 @@ public class OAuth2IntrospectValidator implements TokenValidator {
             Assert.checkNotNullParam("sslContext", configuration.sslContext);
         }
 
-        this.sslContext = configuration.sslContext;
+        // the socket factory is created once, so that the TLS sessions it caches are resumed by later connections
+        this.sslSocketFactory = configuration.sslContext != null ? configuration.sslContext.getSocketFactory() : null;
         this.hostnameVerifier = configuration.hostnameVerifier;
+        this.connectionTimeout = configuration.connectionTimeout;
+        this.readTimeout = configuration.readTimeout;
+        this.inFlight = new Semaphore(configuration.maxInFlight);
+
+        if (configuration.executor != null) {
+            this.executor = configuration.executor;
+        } else {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(configuration.maxInFlight, configuration.maxInFlight, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), ThreadFactoryProvider.threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+            this.executor = executor;
+        }
     }
 
     @Override
@@ -86,12 +123,22 @@ public class OAuth2IntrospectValidator implements TokenValidator {
         Assert.checkNotNullParam("evidence", evidence);
 
         try {
-            JsonObject claims = introspectAccessToken(this.tokenIntrospectionUrl,
-                    this.clientId, this.clientSecret, evidence.getToken(), this.sslContext, this.hostnameVerifier);
+            JsonObject claims = introspect(evidence.getToken(), null).get();
 
             if (isValidToken(claims)) {
                 return toAttributes(claims);
             }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RealmUnavailableException) {
+                throw (RealmUnavailableException) cause;
+            }
+
+            throw log.tokenRealmOAuth2TokenIntrospectionFailed(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw log.tokenRealmOAuth2TokenIntrospectionFailed(e);
         } catch (Exception e) {
             throw log.tokenRealmOAuth2TokenIntrospectionFailed(e);
         }
@@ -99,6 +146,78 @@ public class OAuth2IntrospectValidator implements TokenValidator {
         return null;
     }
 
+    /**
+     * <p>Validates a {@link BearerTokenEvidence} asynchronously. The token is introspected by the executor of this validator,
+     * so the calling thread is never blocked by the token introspection endpoint.
+     *
+     * @param evidence a {@link BearerTokenEvidence} holding the security token to validate
+     * @return a {@link CompletionStage} completed with the claims of the token if it is active, with {@code null} otherwise,
+     * or completed exceptionally with a {@link RealmUnavailableException} if the token could not be introspected
+     */
+    @Override
+    public CompletionStage<Attributes> validateAsync(BearerTokenEvidence evidence) {
+        Assert.checkNotNullParam("evidence", evidence);
+
+        return introspect(evidence.getToken(), executor).thenApply(claims -> isValidToken(claims) ? toAttributes(claims) : null);
+    }
+
+    /**
+     * Introspect a token, or join the introspection of the same token already in progress.
+     *
+     * @param token the token to introspect
+     * @param executor the executor to introspect the token with, or {@code null} to introspect the token in the calling thread
+     * @return the result of the introspection, completed exceptionally with a {@link RealmUnavailableException} on failure
+     */
+    private CompletableFuture<JsonObject> introspect(String token, Executor executor) {
+        CompletableFuture<JsonObject> introspection = new CompletableFuture<>();
+        CompletableFuture<JsonObject> existing = introspections.putIfAbsent(token, introspection);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        Runnable task = () -> {
+            try {
+                introspection.complete(introspectWithinLimit(token));
+            } catch (RealmUnavailableException e) {
+                introspection.completeExceptionally(e);
+            } catch (Exception e) {
+                introspection.completeExceptionally(log.tokenRealmOAuth2TokenIntrospectionFailed(e));
+            } finally {
+                introspections.remove(token, introspection);
+            }
+        };
+
+        if (executor == null) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                introspections.remove(token, introspection);
+                introspection.completeExceptionally(log.tokenRealmOAuth2TokenIntrospectionFailed(e));
+            }
+        }
+
+        return introspection;
+    }
+
+    private JsonObject introspectWithinLimit(String token) throws RealmUnavailableException, InterruptedException {
+        // as for the connection, a timeout of zero waits indefinitely
+        if (connectionTimeout == 0) {
+            inFlight.acquire();
+        } else if (! inFlight.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+            throw log.tokenRealmOAuth2TokenIntrospectionTimeout(connectionTimeout);
+        }
+
+        try {
+            return introspectAccessToken(this.tokenIntrospectionUrl,
+                    this.clientId, this.clientSecret, token, this.sslSocketFactory, this.hostnameVerifier);
+        } finally {
+            inFlight.release();
+        }
+    }
+
     private boolean isValidToken(JsonObject claims) {
         return claims != null && claims.getBoolean("active", false);
     }
@@ -110,11 +229,11 @@ public class OAuth2IntrospectValidator implements TokenValidator {
      * @param clientId the identifier of a client within the OAUth2 Authorization Server
      * @param clientSecret the secret of the client
      * @param token the access token to introspect
-     * @param sslContext the ssl context
+     * @param sslSocketFactory the ssl socket factory
      * @param hostnameVerifier the hostname verifier
      * @return a @{JsonObject} representing the response from the introspection endpoint or null if
      */
-    private JsonObject introspectAccessToken(URL tokenIntrospectionUrl, String clientId, String clientSecret, String token, SSLContext sslContext, HostnameVerifier hostnameVerifier) throws RealmUnavailableException {
+    private JsonObject introspectAccessToken(URL tokenIntrospectionUrl, String clientId, String clientSecret, String token, SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) throws RealmUnavailableException {
         Assert.checkNotNullParam("clientId", clientId);
         Assert.checkNotNullParam("clientSecret", clientSecret);
         Assert.checkNotNullParam("token", token);
@@ -122,9 +241,9 @@ public class OAuth2IntrospectValidator implements TokenValidator {
         HttpURLConnection connection = null;
 
         try {
-            connection = openConnection(tokenIntrospectionUrl, sslContext, hostnameVerifier);
+            connection = openConnection(tokenIntrospectionUrl, sslSocketFactory, hostnameVerifier);
 
-            HashMap<String, String> parameters = new HashMap<>();
+            Map<String, String> parameters = new LinkedHashMap<>();
 
             parameters.put("token", token);
             parameters.put("token_type_hint", "access_token");
@@ -133,8 +252,10 @@ public class OAuth2IntrospectValidator implements TokenValidator {
 
             connection.setDoOutput(true);
             connection.setRequestMethod("POST");
+            connection.setConnectTimeout(connectionTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setFixedLengthStreamingMode(params.length);
             connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            connection.setRequestProperty("Content-Length", String.valueOf(params.length));
             connection.setRequestProperty("Authorization", "Basic " + CodePointIterator.ofString(clientId + ":" + clientSecret).asUtf8().base64Encode().drainToString());
 
             try (OutputStream outputStream = connection.getOutputStream()) {
@@ -164,7 +285,7 @@ public class OAuth2IntrospectValidator implements TokenValidator {
         return null;
     }
 
-    private HttpURLConnection openConnection(URL url, SSLContext sslContext, HostnameVerifier hostnameVerifier) throws IOException {
+    private HttpURLConnection openConnection(URL url, SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) throws IOException {
         Assert.checkNotNullParam("url", url);
 
         boolean isHttps = url.getProtocol().equalsIgnoreCase("https");
@@ -176,7 +297,7 @@ public class OAuth2IntrospectValidator implements TokenValidator {
             if (isHttps) {
                 HttpsURLConnection https = (HttpsURLConnection) connection;
 
-                https.setSSLSocketFactory(sslContext.getSocketFactory());
+                https.setSSLSocketFactory(sslSocketFactory);
 
                 if (hostnameVerifier != null) {
                     https.setHostnameVerifier(hostnameVerifier);
@@ -192,12 +313,12 @@ public class OAuth2IntrospectValidator implements TokenValidator {
     private byte[] buildParameters(Map<String, String> parameters) throws UnsupportedEncodingException {
         ByteStringBuilder params = new ByteStringBuilder();
 
-        parameters.entrySet().stream().forEach(entry -> {
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
             if (params.length() > 0) {
                 params.append('&');
             }
-            params.append(entry.getKey()).append('=').append(entry.getValue());
-        });
+            params.append(entry.getKey()).append('=').append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+        }
 
         return params.toArray();
     }
@@ -209,6 +330,10 @@ public class OAuth2IntrospectValidator implements TokenValidator {
         private URL tokenIntrospectionUrl;
         private SSLContext sslContext;
         private HostnameVerifier hostnameVerifier;
+        private int connectionTimeout = 10000;
+        private int readTimeout = 10000;
+        private int maxInFlight = 20;
+        private Executor executor;
 
         private Builder() {
         }
@@ -275,6 +400,56 @@ public class OAuth2IntrospectValidator implements TokenValidator {
             return this;
         }
 
+        /**
+         * The time in milliseconds to wait for a connection to the token introspection endpoint to be established. This is also
+         * the time to wait for an introspection to start when the maximum number of introspections are in progress. A timeout
+         * of zero waits indefinitely. Defaults to ten seconds.
+         *
+         * @param connectionTimeout the connection timeout in milliseconds
+         * @return this instance
+         */
+        public Builder connectionTimeout(int connectionTimeout) {
+            Assert.checkMinimumParameter("connectionTimeout", 0, connectionTimeout);
+            this.connectionTimeout = connectionTimeout;
+            return this;
+        }
+
+        /**
+         * The time in milliseconds to wait for the response of the token introspection endpoint. Defaults to ten seconds.
+         *
+         * @param readTimeout the read timeout in milliseconds
+         * @return this instance
+         */
+        public Builder readTimeout(int readTimeout) {
+            Assert.checkMinimumParameter("readTimeout", 0, readTimeout);
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * The maximum number of introspections in progress at the same time. Defaults to <code>20</code>.
+         *
+         * @param maxInFlight the maximum number of introspections in progress
+         * @return this instance
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            Assert.checkMinimumParameter("maxInFlight", 1, maxInFlight);
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * The {@link Executor} tokens validated by {@link OAuth2IntrospectValidator#validateAsync(BearerTokenEvidence)} are
+         * introspected by. Defaults to a pool of daemon threads limited to the maximum number of introspections in progress.
+         *
+         * @param executor the executor
+         * @return this instance
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
         /**
          * Returns a {@link OAuth2IntrospectValidator} instance based on all the configuration provided with this builder.
          *
@@ -284,4 +459,9 @@ public class OAuth2IntrospectValidator implements TokenValidator {
             return new OAuth2IntrospectValidator(this);
         }
     }
+
+    private static class ThreadFactoryProvider {
+        private static final JBossThreadFactory threadFactory = doPrivileged((PrivilegedAction<JBossThreadFactory>) ()
+                -> new JBossThreadFactory(new ThreadGroup("OAuth2IntrospectValidator ThreadGroup"), Boolean.TRUE, null, "%G - %t", null, null));
+    }
 }
@@ -36,6 +36,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -63,6 +64,7 @@ import org.wildfly.security.evidence.BearerTokenEvidence;
 import org.wildfly.security.evidence.Evidence;
 import org.wildfly.security.evidence.PasswordGuessEvidence;
 import org.wildfly.security.password.interfaces.ClearPassword;
+import org.wildfly.security.permission.CachingPermissionVerifier;
 import org.wildfly.security.permission.ElytronPermission;
 import org.wildfly.security.permission.PermissionVerifier;
 
@@ -96,6 +98,9 @@ public final class SecurityDomain {
     private final RoleMapper roleMapper;
     private final SecurityIdentity anonymousIdentity;
     private final PermissionMapper permissionMapper;
+    private final int permissionDecisionCacheSize;
+    private final LongAdder permissionDecisionCacheHits = new LongAdder();
+    private final LongAdder permissionDecisionCacheMisses = new LongAdder();
     private final Map<String, RoleMapper> categoryRoleMappers;
     private final UnaryOperator<SecurityIdentity> securityIdentityTransformer;
     private final Predicate<SecurityDomain> trustedSecurityDomain;
@@ -108,6 +113,7 @@ public final class SecurityDomain {
         this.realmMapper = builder.realmMapper;
         this.roleMapper = builder.roleMapper;
         this.permissionMapper = builder.permissionMapper;
+        this.permissionDecisionCacheSize = builder.permissionDecisionCacheSize;
         this.postRealmPrincipalRewriter = builder.postRealmRewriter;
         this.securityIdentityTransformer = builder.securityIdentityTransformer;
         this.trustedSecurityDomain = builder.trustedSecurityDomain;
@@ -617,6 +623,26 @@ public final class SecurityDomain {
         return anonymousIdentity;
     }
 
+    /**
+     * Get the number of permission checks of the identities of this domain which were answered from their permission
+     * decision cache.
+     *
+     * @return the number of permission decision cache hits, always {@code 0} if the cache is disabled
+     */
+    public long getPermissionDecisionCacheHitCount() {
+        return permissionDecisionCacheHits.sum();
+    }
+
+    /**
+     * Get the number of permission checks of the identities of this domain which were delegated to the permission mapper
+     * as their decision was not cached.
+     *
+     * @return the number of permission decision cache misses, always {@code 0} if the cache is disabled
+     */
+    public long getPermissionDecisionCacheMissCount() {
+        return permissionDecisionCacheMisses.sum();
+    }
+
     /**
      * Create an empty ad-hoc identity.  The identity will have no authorization information and no credentials associated
      * with it.
@@ -692,7 +718,8 @@ public final class SecurityDomain {
     PermissionVerifier mapPermissions(final SecurityIdentity securityIdentity) {
         Assert.checkNotNullParam("securityIdentity", securityIdentity);
         final Roles roles = securityIdentity.getRoles();
-        PermissionVerifier verifier = permissionMapper.mapPermissions(securityIdentity, roles);
+        PermissionVerifier mappedVerifier = permissionMapper.mapPermissions(securityIdentity, roles);
+        PermissionVerifier verifier = permissionDecisionCacheSize > 0 ? new CachingPermissionVerifier(mappedVerifier, permissionDecisionCacheSize, permissionDecisionCacheHits, permissionDecisionCacheMisses) : mappedVerifier;
 
         if (log.isTraceEnabled()) {
             return (permission) -> {
@@ -775,6 +802,7 @@ public final class SecurityDomain {
         private RealmMapper realmMapper = RealmMapper.DEFAULT_REALM_MAPPER;
         private RoleMapper roleMapper = RoleMapper.IDENTITY_ROLE_MAPPER;
         private PermissionMapper permissionMapper = PermissionMapper.EMPTY_PERMISSION_MAPPER;
+        private int permissionDecisionCacheSize = 0;
         private Map<String, RoleMapper> categoryRoleMappers = emptyMap();
         private UnaryOperator<SecurityIdentity> securityIdentityTransformer = UnaryOperator.identity();
         private Predicate<SecurityDomain> trustedSecurityDomain = domain -> false;
@@ -872,6 +900,22 @@ public final class SecurityDomain {
             return this;
         }
 
+        /**
+         * Set the maximum number of permission decisions to remember for each identity from this security domain. If
+         * greater than zero, the results of {@link SecurityIdentity#implies(java.security.Permission)} are remembered by
+         * permission class, name and actions, which requires the {@link PermissionVerifier} instances returned by the
+         * permission mapper to be immutable. The default is {@code 0}, which disables remembering decisions.
+         *
+         * @param permissionDecisionCacheSize the maximum number of decisions to remember per identity
+         * @return this builder
+         */
+        public Builder setPermissionDecisionCacheSize(int permissionDecisionCacheSize) {
+            Assert.checkMinimumParameter("permissionDecisionCacheSize", 0, permissionDecisionCacheSize);
+            assertNotBuilt();
+            this.permissionDecisionCacheSize = permissionDecisionCacheSize;
+            return this;
+        }
+
         /**
          * Set the principal decoder for this security domain, which will be used to convert {@link Principal} objects
          * into names for handling in the realm.
@@ -31,6 +31,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -81,6 +82,15 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
     private final IdentityCredentials privateCredentials;
     private final Supplier<SecurityIdentity[]> withSuppliedIdentities;
     private final SecurityIdentity[] withIdentities;
+    /**
+     * The mapped roles of this identity, computed on first use. A race may map the roles more than once but all threads
+     * observe an equivalent immutable result.
+     */
+    private volatile Roles roles;
+    /**
+     * The mapped roles of each role mapper category, computed on first use. This is {@code null} if there are no role mappers.
+     */
+    private final Map<String, Roles> categoryRoles;
 
     SecurityIdentity(final SecurityDomain securityDomain, final Principal principal, final RealmInfo realmInfo, final AuthorizationIdentity authorizationIdentity, final Map<String, RoleMapper> roleMappers, final IdentityCredentials publicCredentials, final IdentityCredentials privateCredentials) {
         this.securityDomain = securityDomain;
@@ -88,6 +98,7 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.realmInfo = realmInfo;
         this.authorizationIdentity = authorizationIdentity;
         this.roleMappers = roleMappers;
+        this.categoryRoles = newCategoryRoles(roleMappers);
         this.creationTime = Instant.now();
         this.verifier = securityDomain.mapPermissions(this);
         this.publicCredentials = publicCredentials;
@@ -102,6 +113,8 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.realmInfo = old.realmInfo;
         this.authorizationIdentity = old.authorizationIdentity;
         this.roleMappers = roleMappers;
+        this.roles = old.roles;
+        this.categoryRoles = newCategoryRoles(roleMappers);
         this.creationTime = old.creationTime;
         this.verifier = old.verifier;
         this.publicCredentials = old.publicCredentials;
@@ -116,6 +129,8 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.realmInfo = old.realmInfo;
         this.authorizationIdentity = old.authorizationIdentity;
         this.roleMappers = old.roleMappers;
+        this.roles = old.roles;
+        this.categoryRoles = old.categoryRoles;
         this.creationTime = old.creationTime;
         this.verifier = verifier;
         this.publicCredentials = old.publicCredentials;
@@ -130,6 +145,8 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.realmInfo = old.realmInfo;
         this.authorizationIdentity = old.authorizationIdentity;
         this.roleMappers = old.roleMappers;
+        this.roles = old.roles;
+        this.categoryRoles = old.categoryRoles;
         this.creationTime = old.creationTime;
         this.verifier = old.verifier;
         this.publicCredentials = isPrivate ? old.publicCredentials : old.publicCredentials.withCredential(credential);
@@ -144,6 +161,8 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.realmInfo = old.realmInfo;
         this.authorizationIdentity = old.authorizationIdentity;
         this.roleMappers = old.roleMappers;
+        this.roles = old.roles;
+        this.categoryRoles = old.categoryRoles;
         this.creationTime = old.creationTime;
         this.verifier = old.verifier;
         this.publicCredentials = isPrivate ? old.publicCredentials : old.publicCredentials.with(credentials);
@@ -158,6 +177,8 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.realmInfo = old.realmInfo;
         this.authorizationIdentity = old.authorizationIdentity;
         this.roleMappers = old.roleMappers;
+        this.roles = old.roles;
+        this.categoryRoles = old.categoryRoles;
         this.creationTime = old.creationTime;
         this.verifier = old.verifier;
         this.publicCredentials = old.publicCredentials;
@@ -172,6 +193,8 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.realmInfo = old.realmInfo;
         this.authorizationIdentity = old.authorizationIdentity;
         this.roleMappers = old.roleMappers;
+        this.roles = old.roles;
+        this.categoryRoles = old.categoryRoles;
         this.creationTime = old.creationTime;
         this.verifier = old.verifier;
         this.publicCredentials = old.publicCredentials;
@@ -180,6 +203,10 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
         this.withIdentities = withIdentities;
     }
 
+    private static Map<String, Roles> newCategoryRoles(final Map<String, RoleMapper> roleMappers) {
+        return roleMappers.isEmpty() ? null : new ConcurrentHashMap<>(roleMappers.size());
+    }
+
     SecurityDomain getSecurityDomain() {
         return securityDomain;
     }
@@ -468,7 +495,12 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
      * @return the roles associated with this identity
      */
     public Roles getRoles() {
-        return this.securityDomain.mapRoles(this);
+        Roles roles = this.roles;
+        if (roles == null) {
+            roles = this.securityDomain.mapRoles(this).materialize();
+            this.roles = roles;
+        }
+        return roles;
     }
 
     /**
@@ -548,7 +580,15 @@ public final class SecurityIdentity implements PermissionVerifier, PermissionMap
      */
     public Roles getRoles(String category, boolean fallbackToDefault) {
         final RoleMapper roleMapper = roleMappers.get(category);
-        return roleMapper == null ? (fallbackToDefault ? getRoles() : Roles.NONE) : roleMapper.mapRoles(securityDomain.mapRoles(this));
+        if (roleMapper == null) {
+            return fallbackToDefault ? getRoles() : Roles.NONE;
+        }
+        Roles roles = categoryRoles.get(category);
+        if (roles == null) {
+            roles = roleMapper.mapRoles(getRoles()).materialize();
+            categoryRoles.put(category, roles);
+        }
+        return roles;
     }
 
     /**
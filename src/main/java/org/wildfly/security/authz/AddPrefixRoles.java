@@ -20,11 +20,12 @@ package org.wildfly.security.authz;
 
 import java.util.Iterator;
 
-class AddPrefixRoles implements Roles {
+class AddPrefixRoles extends CompositeRoles {
     private final Roles delegate;
     private final String prefix;
 
     AddPrefixRoles(final Roles delegate, final String prefix) {
+        super(delegate);
         this.delegate = delegate;
         this.prefix = prefix;
     }
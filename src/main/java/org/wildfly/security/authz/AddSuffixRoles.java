@@ -20,11 +20,12 @@ package org.wildfly.security.authz;
 
 import java.util.Iterator;
 
-class AddSuffixRoles implements Roles {
+class AddSuffixRoles extends CompositeRoles {
     private final Roles delegate;
     private final String suffix;
 
     AddSuffixRoles(final Roles delegate, final String suffix) {
+        super(delegate);
         this.delegate = delegate;
         this.suffix = suffix;
     }
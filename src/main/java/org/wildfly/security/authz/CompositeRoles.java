@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.authz;
+
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import org.wildfly.security.manager.WildFlySecurityManager;
+
+/**
+ * Base class of the roles collections which decorate other roles collections, tracking how deeply they are nested.
+ */
+abstract class CompositeRoles implements Roles {
+
+    /**
+     * The system property holding the nesting depth above which combined roles collections are materialized.
+     */
+    static final String MATERIALIZE_DEPTH = "wildfly.security.roles.materialize-depth";
+
+    private static final int DEFAULT_MAX_DEPTH = 8;
+
+    private static final int MAX_DEPTH = parseDepth(WildFlySecurityManager.getPropertyPrivileged(MATERIALIZE_DEPTH, null));
+
+    private final int depth;
+
+    CompositeRoles(final Roles delegate) {
+        depth = depthOf(delegate) + 1;
+    }
+
+    CompositeRoles(final Roles left, final Roles right) {
+        depth = Math.max(depthOf(left), depthOf(right)) + 1;
+    }
+
+    /**
+     * Parse the configured nesting depth, falling back to the default depth if it is not set or not valid.
+     *
+     * @param value the value of the system property, or {@code null} if not set
+     * @return the nesting depth, at least {@code 1}
+     */
+    static int parseDepth(final String value) {
+        if (value == null) {
+            return DEFAULT_MAX_DEPTH;
+        }
+        try {
+            final int depth = Integer.parseInt(value.trim());
+            if (depth >= 1) {
+                return depth;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        log.invalidRolesMaterializeDepth(value, MATERIALIZE_DEPTH, DEFAULT_MAX_DEPTH);
+        return DEFAULT_MAX_DEPTH;
+    }
+
+    static int depthOf(final Roles roles) {
+        return roles instanceof CompositeRoles ? ((CompositeRoles) roles).depth : 0;
+    }
+
+    /**
+     * Materialize the given roles collection if it is nested deeper than the configured depth.
+     *
+     * @param roles the roles collection
+     * @return the given roles collection or a materialized copy of it
+     */
+    static Roles limitDepth(final CompositeRoles roles) {
+        return roles.depth > MAX_DEPTH ? roles.materialize() : roles;
+    }
+}
@@ -23,12 +23,13 @@ import java.util.NoSuchElementException;
 import java.util.Spliterator;
 import java.util.Spliterators;
 
-class DifferenceRoles implements Roles {
+class DifferenceRoles extends CompositeRoles {
 
     private final Roles left;
     private final Roles right;
 
     DifferenceRoles(final Roles left, final Roles right) {
+        super(left, right);
         this.left = left;
         this.right = right;
     }
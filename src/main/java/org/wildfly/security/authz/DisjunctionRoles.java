@@ -23,12 +23,13 @@ import java.util.NoSuchElementException;
 import java.util.Spliterator;
 import java.util.Spliterators;
 
-class DisjunctionRoles implements Roles {
+class DisjunctionRoles extends CompositeRoles {
 
     private final Roles left;
     private final Roles right;
 
     DisjunctionRoles(final Roles left, final Roles right) {
+        super(left, right);
         this.left = left;
         this.right = right;
     }
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.authz;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * An immutable roles collection backed by a hash set.
+ */
+final class MaterializedRoles implements Roles {
+
+    private final Set<String> roles;
+
+    private MaterializedRoles(final Set<String> roles) {
+        this.roles = roles;
+    }
+
+    static Roles of(final Roles roles) {
+        final HashSet<String> set = new HashSet<>();
+        for (String role : roles) {
+            set.add(role);
+        }
+        if (set.isEmpty()) {
+            return NONE;
+        } else if (set.size() == 1) {
+            return new OneRole(set.iterator().next());
+        }
+        return new MaterializedRoles(Collections.unmodifiableSet(set));
+    }
+
+    public boolean contains(final String roleName) {
+        return roles.contains(roleName);
+    }
+
+    public boolean isEmpty() {
+        return false;
+    }
+
+    public Iterator<String> iterator() {
+        return roles.iterator();
+    }
+
+    public Spliterator<String> spliterator() {
+        return roles.spliterator();
+    }
+
+    public void forEach(final Consumer<? super String> action) {
+        roles.forEach(action);
+    }
+
+    public Roles materialize() {
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return roles.toString();
+    }
+}
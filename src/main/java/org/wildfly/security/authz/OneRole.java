@@ -55,6 +55,10 @@ final class OneRole implements Roles {
         return other.contains(role) ? NONE : this;
     }
 
+    public Roles materialize() {
+        return this;
+    }
+
     public Roles addSuffix(final String suffix) {
         return new OneRole(role + suffix);
     }
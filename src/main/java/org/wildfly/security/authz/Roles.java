@@ -149,7 +149,7 @@ public interface Roles extends Iterable<String> {
      */
     default Roles and(Roles other) {
         Assert.checkNotNullParam("other", other);
-        return isEmpty() || other.isEmpty() ? NONE : new IntersectionRoles(this, other);
+        return isEmpty() || other.isEmpty() ? NONE : CompositeRoles.limitDepth(new IntersectionRoles(this, other));
     }
 
     /**
@@ -160,7 +160,7 @@ public interface Roles extends Iterable<String> {
      */
     default Roles or(Roles other) {
         Assert.checkNotNullParam("other", other);
-        return isEmpty() ? other : other.isEmpty() ? this : new UnionRoles(this, other);
+        return isEmpty() ? other : other.isEmpty() ? this : CompositeRoles.limitDepth(new UnionRoles(this, other));
     }
 
     /**
@@ -171,7 +171,7 @@ public interface Roles extends Iterable<String> {
      */
     default Roles xor(Roles other) {
         Assert.checkNotNullParam("other", other);
-        return isEmpty() ? other : other.isEmpty() ? this : new DisjunctionRoles(this, other);
+        return isEmpty() ? other : other.isEmpty() ? this : CompositeRoles.limitDepth(new DisjunctionRoles(this, other));
     }
 
     /**
@@ -182,7 +182,7 @@ public interface Roles extends Iterable<String> {
      */
     default Roles minus(Roles other) {
         Assert.checkNotNullParam("other", other);
-        return isEmpty() ? NONE : other.isEmpty() ? this : new DifferenceRoles(this, other);
+        return isEmpty() ? NONE : other.isEmpty() ? this : CompositeRoles.limitDepth(new DifferenceRoles(this, other));
     }
 
     /**
@@ -193,7 +193,7 @@ public interface Roles extends Iterable<String> {
      */
     default Roles addSuffix(String suffix) {
         Assert.checkNotNullParam("suffix", suffix);
-        return suffix.isEmpty() ? this : isEmpty() ? NONE : new AddSuffixRoles(this, suffix);
+        return suffix.isEmpty() ? this : isEmpty() ? NONE : CompositeRoles.limitDepth(new AddSuffixRoles(this, suffix));
     }
 
     /**
@@ -204,7 +204,20 @@ public interface Roles extends Iterable<String> {
      */
     default Roles addPrefix(String prefix) {
         Assert.checkNotNullParam("prefix", prefix);
-        return prefix.isEmpty() ? this : isEmpty() ? NONE : new AddPrefixRoles(this, prefix);
+        return prefix.isEmpty() ? this : isEmpty() ? NONE : CompositeRoles.limitDepth(new AddPrefixRoles(this, prefix));
+    }
+
+    /**
+     * Get an immutable copy of this roles collection backed by a hash set. The returned collection no longer refers to
+     * any roles collection this collection was combined from, so checking whether it contains a role takes constant time.
+     * <p>
+     * Combined roles collections are materialized automatically once they are nested deeper than the value of the
+     * {@code wildfly.security.roles.materialize-depth} system property, which defaults to {@code 8}.
+     *
+     * @return the materialized roles collection (not {@code null})
+     */
+    default Roles materialize() {
+        return MaterializedRoles.of(this);
     }
 
     /**
@@ -247,6 +260,10 @@ public interface Roles extends Iterable<String> {
             return this;
         }
 
+        public Roles materialize() {
+            return this;
+        }
+
         public boolean isEmpty() {
             return true;
         }
@@ -22,10 +22,14 @@ import static org.wildfly.common.Assert.checkNotNullParam;
 
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 import org.wildfly.security.permission.PermissionVerifier;
@@ -46,6 +50,10 @@ import org.wildfly.security.permission.PermissionVerifier;
  * calling {@link Builder#setMappingMode(MappingMode)} to choose a different mode to combine the resulting
  * {@link PermissionVerifier} instances.
  *
+ * If the mapper is built in compiled mode using {@link Builder#setCompiled(boolean)}, the mappings are indexed by principal
+ * name and by role name so that only the matching mappings are visited, and the combined {@code PermissionVerifier} is
+ * cached for each distinct set of matching mappings.
+ *
  * @author <a href="mailto:darran.lofthouse@jboss.com">Darran Lofthouse</a>
  */
 public class SimplePermissionMapper implements PermissionMapper {
@@ -54,9 +62,12 @@ public class SimplePermissionMapper implements PermissionMapper {
 
     private final List<Mapping> mappings;
 
-    private SimplePermissionMapper(MappingMode mappingMode, List<Mapping> mappings) {
+    private final CompiledMappings compiledMappings;
+
+    private SimplePermissionMapper(MappingMode mappingMode, List<Mapping> mappings, boolean compiled) {
         this.mappingMode = mappingMode;
         this.mappings = mappings;
+        this.compiledMappings = compiled ? new CompiledMappings(mappings) : null;
     }
 
     @Override
@@ -64,26 +75,18 @@ public class SimplePermissionMapper implements PermissionMapper {
         checkNotNullParam("permissionMappable", permissionMappable);
         checkNotNullParam("roles", roles);
 
+        if (compiledMappings != null) {
+            return compiledMappings.mapPermissions(permissionMappable.getPrincipal().getName(), roles);
+        }
+
         PermissionVerifier result = null;
 
         for (Mapping current : mappings) {
             if (current.principalPredicate.test(permissionMappable.getPrincipal().getName()) || roles.containsAny(current.roles)) {
-                    switch (mappingMode) {
-                        case FIRST_MATCH:
-                            return current.permissionVerifier;
-                        case AND:
-                            result = result != null ? result.and(current.permissionVerifier) : current.permissionVerifier;
-                            break;
-                        case OR:
-                            result = result != null ? result.or(current.permissionVerifier) : current.permissionVerifier;
-                            break;
-                        case UNLESS:
-                            result = result != null ? result.unless(current.permissionVerifier) : current.permissionVerifier;
-                            break;
-                        case XOR:
-                            result = result != null ? result.xor(current.permissionVerifier) : current.permissionVerifier;
-                            break;
+                if (mappingMode == MappingMode.FIRST_MATCH) {
+                    return current.permissionVerifier;
                 }
+                result = combine(result, current.permissionVerifier);
             }
         }
 
@@ -91,6 +94,93 @@ public class SimplePermissionMapper implements PermissionMapper {
         return result != null ? result : PermissionVerifier.NONE;
     }
 
+    private PermissionVerifier combine(PermissionVerifier result, PermissionVerifier permissionVerifier) {
+        if (result == null) {
+            return permissionVerifier;
+        }
+        switch (mappingMode) {
+            case AND:
+                return result.and(permissionVerifier);
+            case OR:
+                return result.or(permissionVerifier);
+            case UNLESS:
+                return result.unless(permissionVerifier);
+            case XOR:
+                return result.xor(permissionVerifier);
+            default:
+                return result;
+        }
+    }
+
+    /**
+     * Inverted indexes from principal names and role names to the positions of the mappings referencing them.
+     */
+    private final class CompiledMappings {
+
+        /**
+         * The maximum number of distinct sets of matching mappings to cache a combined verifier for.
+         */
+        private static final int MAX_CACHED_VERIFIERS = 1024;
+
+        private final Map<String, BitSet> principalIndex = new HashMap<>();
+        private final Map<String, BitSet> roleIndex = new HashMap<>();
+        private final BitSet matchAll = new BitSet();
+        private final ConcurrentHashMap<BitSet, PermissionVerifier> combinedVerifiers = new ConcurrentHashMap<>();
+
+        CompiledMappings(List<Mapping> mappings) {
+            for (int i = 0; i < mappings.size(); i++) {
+                Mapping mapping = mappings.get(i);
+                if (mapping.principals == null) {
+                    matchAll.set(i);
+                } else {
+                    for (String principal : mapping.principals) {
+                        principalIndex.computeIfAbsent(principal, k -> new BitSet()).set(i);
+                    }
+                }
+                for (String role : mapping.roles) {
+                    roleIndex.computeIfAbsent(role, k -> new BitSet()).set(i);
+                }
+            }
+        }
+
+        PermissionVerifier mapPermissions(String principalName, Roles roles) {
+            BitSet matches = (BitSet) matchAll.clone();
+            BitSet principalMatches = principalIndex.get(principalName);
+            if (principalMatches != null) {
+                matches.or(principalMatches);
+            }
+            if (! roleIndex.isEmpty()) {
+                for (String role : roles) {
+                    BitSet roleMatches = roleIndex.get(role);
+                    if (roleMatches != null) {
+                        matches.or(roleMatches);
+                    }
+                }
+            }
+
+            if (matches.isEmpty()) {
+                return PermissionVerifier.NONE;
+            }
+            if (mappingMode == MappingMode.FIRST_MATCH) {
+                return mappings.get(matches.nextSetBit(0)).permissionVerifier;
+            }
+
+            PermissionVerifier cached = combinedVerifiers.get(matches);
+            if (cached != null) {
+                return cached;
+            }
+
+            PermissionVerifier result = null;
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                result = combine(result, mappings.get(i).permissionVerifier);
+            }
+            if (combinedVerifiers.size() < MAX_CACHED_VERIFIERS) {
+                combinedVerifiers.putIfAbsent(matches, result);
+            }
+            return result;
+        }
+    }
+
     /**
      * Construct a new {@link Builder} for creating the {@link PermissionMapper}.
      *
@@ -106,6 +196,8 @@ public class SimplePermissionMapper implements PermissionMapper {
 
         private MappingMode mappingMode = MappingMode.FIRST_MATCH;
 
+        private boolean compiled = false;
+
         private final List<Mapping> mappings = new ArrayList<>();
 
         Builder() {
@@ -124,6 +216,20 @@ public class SimplePermissionMapper implements PermissionMapper {
             return this;
         }
 
+        /**
+         * Set whether the newly created {@link PermissionMapper} should index its mappings by principal name and role name
+         * instead of testing every mapping for each mapped identity. This is beneficial for large numbers of mappings.
+         *
+         * @param compiled {@code true} to index the mappings, {@code false} otherwise.
+         * @return {@code this} builder to allow chaining.
+         */
+        public Builder setCompiled(boolean compiled) {
+            assertNotBuilt();
+            this.compiled = compiled;
+
+            return this;
+        }
+
         /**
          * Add a new mapping to a {@link PermissionVerifier}, if the {@link PermissionMappable} being mapped has a principal name that is in the {@link Set} of principals or of any of the assigned roles are matched this mapping will be a match.
          *
@@ -134,7 +240,7 @@ public class SimplePermissionMapper implements PermissionMapper {
          */
         public Builder addMapping(Set<String> principals, Set<String> roles, PermissionVerifier permissionVerifier) {
             assertNotBuilt();
-            mappings.add(new Mapping(new HashSet<>(checkNotNullParam("principals", principals))::contains, roles, permissionVerifier));
+            mappings.add(new Mapping(new HashSet<>(checkNotNullParam("principals", principals)), roles, permissionVerifier));
 
             return this;
         }
@@ -147,7 +253,7 @@ public class SimplePermissionMapper implements PermissionMapper {
          */
         public Builder addMatchAllPrincipals(PermissionVerifier permissionVerifier) {
             assertNotBuilt();
-            mappings.add(new Mapping(name -> true, Collections.emptySet(), permissionVerifier));
+            mappings.add(new Mapping(null, Collections.emptySet(), permissionVerifier));
 
             return this;
         }
@@ -162,7 +268,7 @@ public class SimplePermissionMapper implements PermissionMapper {
             assertNotBuilt();
             built = true;
 
-            return new SimplePermissionMapper(mappingMode, mappings);
+            return new SimplePermissionMapper(mappingMode, mappings, compiled);
         }
 
         private void assertNotBuilt() {
@@ -174,14 +280,20 @@ public class SimplePermissionMapper implements PermissionMapper {
 
     static class Mapping {
 
+        final Set<String> principals;
+
         final Predicate<String> principalPredicate;
 
         final Set<String> roles;
 
         final PermissionVerifier permissionVerifier;
 
-        Mapping(Predicate<String> principalPredicate, Set<String> roles, PermissionVerifier permissionVerifier) {
-            this.principalPredicate = principalPredicate;
+        /**
+         * @param principals the principal names matched by this mapping, or {@code null} if all principals are matched
+         */
+        Mapping(Set<String> principals, Set<String> roles, PermissionVerifier permissionVerifier) {
+            this.principals = principals;
+            this.principalPredicate = principals != null ? principals::contains : name -> true;
             this.roles = Collections.unmodifiableSet(new HashSet<>(checkNotNullParam("roles", roles)));
             this.permissionVerifier = checkNotNullParam("permissionVerifier", permissionVerifier);
         }
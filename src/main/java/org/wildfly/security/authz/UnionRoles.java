@@ -23,12 +23,13 @@ import java.util.NoSuchElementException;
 import java.util.Spliterator;
 import java.util.Spliterators;
 
-class UnionRoles implements Roles {
+class UnionRoles extends CompositeRoles {
 
     private final Roles left;
     private final Roles right;
 
     UnionRoles(final Roles left, final Roles right) {
+        super(left, right);
         this.left = left;
         this.right = right;
     }
@@ -0,0 +1,347 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wildfly.security.cache;
+
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.util._private.SegmentedLRUCache;
+
+/**
+ * <p>A {@link RealmIdentityCache} implementation providing an approximate LRU cache suitable for highly concurrent access.
+ *
+ * <p>Entries are held in a {@link ConcurrentHashMap} so lookups never block. The eviction order is tracked by a fixed number
+ * of segments, each one guarded by its own lock and owning a share of the maximum number of entries. A lookup only records
+ * the access on its segment if the segment lock is immediately available, so under contention the eviction order is an
+ * approximation of the least recently used order.
+ */
+public final class ConcurrentLRURealmIdentityCache implements RealmIdentityCache {
+
+    /**
+     * The load factor.
+     */
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /**
+     * Holds the cached identities where the key is the domain principal, the one used to lookup the identity
+     */
+    private final ConcurrentHashMap<Principal, CacheEntry> identityCache;
+
+    /**
+     * Holds a mapping between a realm principal and domain principals
+     */
+    private final ConcurrentHashMap<Principal, Set<Principal>> domainPrincipalMap;
+
+    private final Segment[] segments;
+
+    private final long maxAge;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxEntries the maximum number of entries to keep in the cache
+     */
+    public ConcurrentLRURealmIdentityCache(int maxEntries) {
+        this(maxEntries, -1);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxEntries the maximum number of entries to keep in the cache
+     * @param maxAge the time in milliseconds that an entry can stay in the cache. If {@code -1}, entries never expire
+     */
+    public ConcurrentLRURealmIdentityCache(int maxEntries, long maxAge) {
+        this(maxEntries, maxAge, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxEntries the maximum number of entries to keep in the cache
+     * @param maxAge the time in milliseconds that an entry can stay in the cache. If {@code -1}, entries never expire
+     * @param concurrencyLevel the estimated number of concurrently updating threads, used to size the number of segments
+     */
+    public ConcurrentLRURealmIdentityCache(int maxEntries, long maxAge, int concurrencyLevel) {
+        checkMinimumParameter("maxEntries", 1, maxEntries);
+        checkMinimumParameter("maxAge", -1, maxAge);
+        checkMinimumParameter("concurrencyLevel", 1, concurrencyLevel);
+        int segmentCount = SegmentedLRUCache.segmentCount(maxEntries, concurrencyLevel);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(SegmentedLRUCache.segmentCapacity(maxEntries, segmentCount, i));
+        }
+        identityCache = new ConcurrentHashMap<>(16, DEFAULT_LOAD_FACTOR, segmentCount);
+        domainPrincipalMap = new ConcurrentHashMap<>(16, DEFAULT_LOAD_FACTOR, segmentCount);
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public void put(Principal key, RealmIdentity newValue) {
+        checkNotNullParam("key", key);
+        checkNotNullParam("newValue", newValue);
+        Principal realmPrincipal = newValue.getRealmIdentityPrincipal();
+        List<CacheEntry> evicted;
+
+        if (realmPrincipal == null) {
+            evicted = segmentFor(key).putIfAbsent(new CacheEntry(key, newValue, realmPrincipal, maxAge));
+        } else {
+            evicted = new ArrayList<>(1);
+            // the entry is added under the realm principal mapping so that a concurrent remove can not miss it
+            domainPrincipalMap.compute(realmPrincipal, (principal, domainPrincipals) -> {
+                if (domainPrincipals == null) {
+                    domainPrincipals = ConcurrentHashMap.newKeySet();
+                }
+                evicted.addAll(segmentFor(key).putIfAbsent(new CacheEntry(key, newValue, realmPrincipal, maxAge)));
+                CacheEntry current = identityCache.get(key);
+                if (current != null && realmPrincipal.equals(current.realmPrincipal())) {
+                    domainPrincipals.add(key);
+                }
+                return domainPrincipals.isEmpty() ? null : domainPrincipals;
+            });
+        }
+
+        evicted.forEach(this::unindex);
+    }
+
+    @Override
+    public RealmIdentity get(Principal key) {
+        CacheEntry cached = identityCache.get(key);
+
+        if (cached != null) {
+            return touchIfNotExpired(cached);
+        }
+
+        Set<Principal> domainPrincipals = domainPrincipalMap.get(key);
+
+        if (domainPrincipals != null) {
+            for (Principal domainPrincipal : domainPrincipals) {
+                cached = identityCache.get(domainPrincipal);
+                if (cached != null) {
+                    return touchIfNotExpired(cached);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void remove(Principal key) {
+        CacheEntry cached = identityCache.get(key);
+        Principal realmPrincipal = key;
+
+        if (cached != null) {
+            if (cached.realmPrincipal() == null) {
+                segmentFor(key).remove(cached);
+                return;
+            }
+            realmPrincipal = cached.realmPrincipal();
+        }
+
+        domainPrincipalMap.computeIfPresent(realmPrincipal, (principal, domainPrincipals) -> {
+            for (Principal domainPrincipal : domainPrincipals) {
+                CacheEntry entry = identityCache.get(domainPrincipal);
+                if (entry != null) {
+                    segmentFor(domainPrincipal).remove(entry);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        List<CacheEntry> removed = new ArrayList<>();
+
+        for (Segment segment : segments) {
+            removed.addAll(segment.clear());
+        }
+
+        removed.forEach(this::unindex);
+    }
+
+    /**
+     * Returns the number of entries currently held by this cache.
+     *
+     * @return the number of entries currently held by this cache
+     */
+    public int size() {
+        return identityCache.size();
+    }
+
+    private RealmIdentity touchIfNotExpired(CacheEntry cached) {
+        if (cached.isExpired()) {
+            remove(cached.key());
+            return null;
+        }
+
+        segmentFor(cached.key()).touch(cached);
+
+        return cached.value();
+    }
+
+    /**
+     * Removes the mapping between the realm principal and the domain principal of an entry that is no longer cached,
+     * unless the domain principal was cached again in the meantime for the same realm principal.
+     */
+    private void unindex(CacheEntry removed) {
+        Principal realmPrincipal = removed.realmPrincipal();
+
+        if (realmPrincipal == null) {
+            return;
+        }
+
+        domainPrincipalMap.computeIfPresent(realmPrincipal, (principal, domainPrincipals) -> {
+            CacheEntry current = identityCache.get(removed.key());
+            if (current == null || ! realmPrincipal.equals(current.realmPrincipal())) {
+                domainPrincipals.remove(removed.key());
+            }
+            return domainPrincipals.isEmpty() ? null : domainPrincipals;
+        });
+    }
+
+    private Segment segmentFor(Principal key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    /**
+     * A segment owning a share of the cache capacity and the access order of the entries that hash to it.
+     */
+    private final class Segment {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Principal, CacheEntry> accessOrder;
+        final int capacity;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.accessOrder = new LinkedHashMap<>(16, DEFAULT_LOAD_FACTOR, true);
+        }
+
+        List<CacheEntry> putIfAbsent(CacheEntry entry) {
+            List<CacheEntry> evicted = new ArrayList<>(1);
+            lock.lock();
+            try {
+                CacheEntry existing = identityCache.get(entry.key());
+                if (existing != null) {
+                    if (! existing.isExpired()) {
+                        return evicted;
+                    }
+                    evicted.add(existing);
+                }
+                identityCache.put(entry.key(), entry);
+                accessOrder.put(entry.key(), entry);
+                Iterator<CacheEntry> iterator = accessOrder.values().iterator();
+                while (accessOrder.size() > capacity && iterator.hasNext()) {
+                    CacheEntry eldest = iterator.next();
+                    iterator.remove();
+                    identityCache.remove(eldest.key(), eldest);
+                    evicted.add(eldest);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return evicted;
+        }
+
+        void touch(CacheEntry entry) {
+            // lookups never wait for the lock, the access is simply not recorded if the segment is busy
+            if (lock.tryLock()) {
+                try {
+                    accessOrder.get(entry.key());
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        void remove(CacheEntry entry) {
+            lock.lock();
+            try {
+                if (identityCache.remove(entry.key(), entry)) {
+                    accessOrder.remove(entry.key());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<CacheEntry> clear() {
+            lock.lock();
+            try {
+                List<CacheEntry> removed = new ArrayList<>(accessOrder.values());
+                for (CacheEntry entry : removed) {
+                    identityCache.remove(entry.key(), entry);
+                }
+                accessOrder.clear();
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class CacheEntry {
+
+        final Principal key;
+        final RealmIdentity value;
+        final Principal realmPrincipal;
+        final long expiration;
+
+        CacheEntry(Principal key, RealmIdentity value, Principal realmPrincipal, long maxAge) {
+            this.key = key;
+            this.value = value;
+            this.realmPrincipal = realmPrincipal;
+            if(maxAge == -1) {
+                expiration = -1;
+            } else {
+                expiration = System.currentTimeMillis() + maxAge;
+            }
+        }
+
+        Principal key() {
+            return key;
+        }
+
+        RealmIdentity value() {
+            return value;
+        }
+
+        Principal realmPrincipal() {
+            return realmPrincipal;
+        }
+
+        boolean isExpired() {
+            return expiration != -1 ? System.currentTimeMillis() > expiration : false;
+        }
+    }
+}
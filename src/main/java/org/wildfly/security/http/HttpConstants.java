@@ -82,6 +82,26 @@ public class HttpConstants {
      */
     public static final String CONFIG_STATE_SCOPES = CONFIG_BASE + ".state-scopes";
 
+    /**
+     * This allows a {@link org.wildfly.security.mechanism.digest.NonceStore} instance shared by several nodes to be passed
+     * into the Digest mechanism, so that a nonce issued by one node can be used once on any of them.
+     *
+     * The nodes must also share the key the nonces are signed with, passed as {@link #CONFIG_NONCE_KEY}.
+     */
+    public static final String CONFIG_NONCE_STORE = CONFIG_BASE + ".nonce-store";
+
+    /**
+     * The key, as a {@code byte[]}, the nonces of the Digest mechanism are signed with when using a shared
+     * {@link #CONFIG_NONCE_STORE}.
+     */
+    public static final String CONFIG_NONCE_KEY = CONFIG_BASE + ".nonce-key";
+
+    /**
+     * The maximum difference, in milliseconds, tolerated between the clocks of the nodes sharing a
+     * {@link #CONFIG_NONCE_STORE}, defaults to {@code 5000}. A nonce issued by a node with a clock further ahead is rejected.
+     */
+    public static final String CONFIG_NONCE_CLOCK_SKEW = CONFIG_BASE + ".nonce-clock-skew";
+
     /*
      * Header Fields
      */
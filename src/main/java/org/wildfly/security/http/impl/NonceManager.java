@@ -25,15 +25,16 @@ import java.security.DigestException;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 
 import org.wildfly.security.http.HttpConstants;
 import org.wildfly.security.mechanism.AuthenticationMechanismException;
+import org.wildfly.security.mechanism.digest.InMemoryNonceStore;
+import org.wildfly.security.mechanism.digest.NonceStore;
 import org.wildfly.security.util.ByteIterator;
 import org.wildfly.security.util.CodePointIterator;
 import org.wildfly.security.util._private.Arrays2;
@@ -47,13 +48,15 @@ class NonceManager {
 
     private static final int PREFIX_LENGTH = Integer.BYTES + Long.BYTES;
 
-    private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
-    private final AtomicInteger nonceCounter = new AtomicInteger();
-    private final Set<String> usedNonces = new HashSet<>();
+    private final AtomicInteger nonceCounter;
+    private final NonceStore usedNonces;
 
     private final byte[] privateKey;
+    private final boolean shared;
+    private final LongSupplier clock;
 
     private final long validityPeriodNano;
+    private final long maxClockSkewNano;
     private final boolean singleUse;
     private final String algorithm;
 
@@ -65,11 +68,48 @@ class NonceManager {
      */
     NonceManager(long validityPeriod, boolean singleUse, int keySize, String algorithm) {
         this.validityPeriodNano = validityPeriod * 1000000;
+        this.maxClockSkewNano = 0;
         this.singleUse = singleUse;
         this.algorithm = algorithm;
+        this.usedNonces = singleUse ? new InMemoryNonceStore(validityPeriodNano, new ScheduledThreadPoolExecutor(1)) : null;
+        this.nonceCounter = new AtomicInteger();
 
         this.privateKey = new byte[keySize];
         new SecureRandom().nextBytes(privateKey);
+        this.shared = false;
+        this.clock = System::nanoTime;
+    }
+
+    /**
+     * Construct a nonce manager sharing its nonces with the other nodes using the same private key and nonce store.
+     *
+     * As the nonces are validated by other nodes, they are timestamped using the wall clock of the node rather than
+     * {@link System#nanoTime()}, which can only be compared within a single JVM. A nonce issued by a node with a clock
+     * ahead of the clock of this node is accepted as long as the difference is within the maximum clock skew, so that a
+     * nonce can not be made to outlive its validity period by much more than the skew.
+     *
+     * @param validityPeriod the time in ms that nonces are valid for in ms.
+     * @param maxClockSkew the maximum difference in ms tolerated between the clocks of the nodes.
+     * @param usedNonces the store of the used nonces shared by the nodes, nonces are single use.
+     * @param privateKey the private key shared by the nodes.
+     * @param algorithm the message digest algorithm to use when creating the digest portion of the nonce.
+     */
+    NonceManager(long validityPeriod, long maxClockSkew, NonceStore usedNonces, byte[] privateKey, String algorithm) {
+        this(validityPeriod, maxClockSkew, usedNonces, privateKey, algorithm, () -> TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+    }
+
+    NonceManager(long validityPeriod, long maxClockSkew, NonceStore usedNonces, byte[] privateKey, String algorithm, LongSupplier clock) {
+        this.validityPeriodNano = validityPeriod * 1000000;
+        this.maxClockSkewNano = maxClockSkew * 1000000;
+        this.singleUse = true;
+        this.algorithm = algorithm;
+        this.usedNonces = usedNonces;
+        // nodes starting from the same counter would issue the same nonces within the same millisecond
+        this.nonceCounter = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+
+        this.privateKey = privateKey.clone();
+        this.shared = true;
+        this.clock = clock;
     }
 
     /**
@@ -93,7 +133,7 @@ class NonceManager {
 
             ByteBuffer byteBuffer = ByteBuffer.allocate(PREFIX_LENGTH + messageDigest.getDigestLength());
             byteBuffer.putInt(nonceCounter.incrementAndGet());
-            byteBuffer.putLong(System.nanoTime());
+            byteBuffer.putLong(clock.getAsLong());
             byteBuffer.put(digest(byteBuffer.array(), 0, PREFIX_LENGTH, salt, messageDigest));
 
             String nonce = ByteIterator.ofBytes(byteBuffer.array()).base64Encode().drainToString();
@@ -160,7 +200,11 @@ class NonceManager {
                 throw log.invalidNonceLength(HttpConstants.DIGEST_NAME);
             }
 
-            long age = System.nanoTime() - ByteBuffer.wrap(nonceBytes, Integer.BYTES, Long.BYTES).getLong();
+            long age = clock.getAsLong() - ByteBuffer.wrap(nonceBytes, Integer.BYTES, Long.BYTES).getLong();
+            if (shared && age < 0 && age >= -maxClockSkewNano) {
+                // issued by a node with a clock ahead of the clock of this node
+                age = 0;
+            }
             if (age < 0 || age > validityPeriodNano) {
                 log.tracef("Nonce %s rejected due to age %d (ns) being less than 0 or greater than the validity period %d (ns)", nonce, age, validityPeriodNano);
                 return false;
@@ -176,21 +220,13 @@ class NonceManager {
             }
 
             if (singleUse) {
-                synchronized(usedNonces) {
-                    boolean used = usedNonces.add(nonce);
-                    if (used) {
-                        executor.schedule(() -> {
-                            synchronized(usedNonces) {
-                                usedNonces.remove(nonce);
-                            }
-                        }, validityPeriodNano - age, TimeUnit.MILLISECONDS);
-                    } else {
-                        log.tracef("Nonce %s rejected as previously used.", nonce);
-                    }
-
-                    return used;
+                // the nonce only needs to be remembered for the remainder of its validity period
+                boolean used = usedNonces.markUsed(nonce, validityPeriodNano - age);
+                if (used == false) {
+                    log.tracef("Nonce %s rejected as previously used.", nonce);
                 }
 
+                return used;
             }
 
             return true;
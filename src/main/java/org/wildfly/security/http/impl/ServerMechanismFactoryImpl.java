@@ -23,6 +23,9 @@ import static org.wildfly.security.http.HttpConstants.BASIC_NAME;
 import static org.wildfly.security.http.HttpConstants.BEARER_TOKEN;
 import static org.wildfly.security.http.HttpConstants.CLIENT_CERT_NAME;
 import static org.wildfly.security.http.HttpConstants.CONFIG_CONTEXT_PATH;
+import static org.wildfly.security.http.HttpConstants.CONFIG_NONCE_CLOCK_SKEW;
+import static org.wildfly.security.http.HttpConstants.CONFIG_NONCE_KEY;
+import static org.wildfly.security.http.HttpConstants.CONFIG_NONCE_STORE;
 import static org.wildfly.security.http.HttpConstants.CONFIG_REALM;
 import static org.wildfly.security.http.HttpConstants.DIGEST_NAME;
 import static org.wildfly.security.http.HttpConstants.FORM_NAME;
@@ -41,6 +44,7 @@ import org.kohsuke.MetaInfServices;
 import org.wildfly.security.http.HttpAuthenticationException;
 import org.wildfly.security.http.HttpServerAuthenticationMechanism;
 import org.wildfly.security.http.HttpServerAuthenticationMechanismFactory;
+import org.wildfly.security.mechanism.digest.NonceStore;
 
 /**
  * The {@link HttpServerAuthenticationMechanismFactory} implementation for the mechanisms implemented within Elytron.
@@ -68,6 +72,19 @@ public class ServerMechanismFactoryImpl implements HttpServerAuthenticationMecha
      */
     private static NonceManager nonceManager = new NonceManager(60000, true, 20, SHA256);
 
+    private static final long DEFAULT_NONCE_CLOCK_SKEW = 5000;
+
+    private static NonceManager getNonceManager(Map<String, ?> properties) {
+        NonceStore nonceStore = (NonceStore) properties.get(CONFIG_NONCE_STORE);
+        if (nonceStore == null) {
+            return nonceManager;
+        }
+        Object maxClockSkew = properties.get(CONFIG_NONCE_CLOCK_SKEW);
+        // the state of the nonces is held by the shared store and key, so each mechanism can use its own manager
+        return new NonceManager(60000, maxClockSkew == null ? DEFAULT_NONCE_CLOCK_SKEW : Long.parseLong(maxClockSkew.toString()), nonceStore,
+                checkNotNullParam(CONFIG_NONCE_KEY, (byte[]) properties.get(CONFIG_NONCE_KEY)), SHA256);
+    }
+
     /**
      * @see org.wildfly.security.http.HttpServerAuthenticationMechanismFactory#getMechanismNames(java.util.Map)
      */
@@ -100,7 +117,7 @@ public class ServerMechanismFactoryImpl implements HttpServerAuthenticationMecha
             case CLIENT_CERT_NAME:
                 return new ClientCertAuthenticationMechanism(callbackHandler);
             case DIGEST_NAME:
-                return new DigestAuthenticationMechanism(callbackHandler, nonceManager, (String) properties.get(CONFIG_REALM), (String) properties.get(CONFIG_CONTEXT_PATH), providers);
+                return new DigestAuthenticationMechanism(callbackHandler, getNonceManager(properties), (String) properties.get(CONFIG_REALM), (String) properties.get(CONFIG_CONTEXT_PATH), providers);
             case FORM_NAME:
                 return new FormAuthenticationMechanism(callbackHandler, properties);
             case SPNEGO_NAME:
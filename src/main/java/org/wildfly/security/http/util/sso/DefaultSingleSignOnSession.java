@@ -24,9 +24,7 @@ import static org.wildfly.security.http.HttpScopeNotification.SessionNotificatio
 
 import java.io.DataOutputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URL;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
@@ -128,20 +126,17 @@ public class DefaultSingleSignOnSession implements SingleSignOnSession {
                 }
 
                 if (!logoutTargets.isEmpty()) {
+                    SingleLogoutDispatcher dispatcher = this.context.getLogoutDispatcher();
+                    // logout requests are sent in the background, so that the logout does not wait for the participants
                     logoutTargets.forEach((participantId, participant) -> {
                         String remoteSessionId = participant.getKey();
                         URI remoteURI = participant.getValue();
-                        try {
-                            URL participantUrl = remoteURI.toURL();
-                            HttpURLConnection connection = (HttpURLConnection) participantUrl.openConnection();
-
+                        dispatcher.dispatch(remoteURI, connection -> {
                             this.context.configureLogoutConnection(connection);
 
                             connection.setRequestMethod("POST");
                             connection.setDoOutput(true);
                             connection.setAllowUserInteraction(false);
-                            connection.setConnectTimeout(10000);
-                            connection.setReadTimeout(10000);
                             connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
 
                             StringBuilder parameterBuilder = new StringBuilder();
@@ -156,21 +151,13 @@ public class DefaultSingleSignOnSession implements SingleSignOnSession {
                             ) {
                                 wr.writeBytes(parameterBuilder.toString());
                             }
-
-                            connection.getInputStream().close();
-                        } catch (Exception cause) {
-                            log.warnHttpMechSsoFailedLogoutParticipant(remoteURI.toString(), cause);
-                        }
+                        });
                     });
 
                     try (SingleSignOn target = this.context.getSingleSignOnManager().find(id)) {
                         if (target != null) {
-                            // If all logout requests were successful, then there should be no participants, and we can invalidate the SSO
-                            if (!target.getParticipants().isEmpty()) {
-                                log.debugf("Destroying SSO [%s]. Participant list not empty.", target.getId());
-                            } else {
-                                log.debugf("Destroying SSO [%s]. SSO is no longer associated with any participants", target.getId());
-                            }
+                            // The SSO is destroyed whatever the outcome of the logout requests, the participants still to be logged out remove themselves from the destroyed SSO
+                            log.debugf("Destroying SSO [%s]. Logout requests dispatched to participants [%s]", target.getId(), logoutTargets.keySet());
                             target.invalidate();
                         }
                     }
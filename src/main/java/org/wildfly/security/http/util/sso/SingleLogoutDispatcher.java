@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.security.http.util.sso;
+
+import static java.security.AccessController.doPrivileged;
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.security.PrivilegedAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.threads.JBossThreadFactory;
+import org.wildfly.common.function.ExceptionConsumer;
+
+/**
+ * Sends the logout requests of a single logout to the participants of a single sign-on session in the background, so that
+ * the logout of the user does not wait for the participants.
+ * <br/>
+ * Requests are sent concurrently by a bounded number of threads, each with a connect and read timeout. A failed request is
+ * retried after an exponential backoff, until the maximum number of attempts is reached. The number of failed requests
+ * waiting to be retried is limited by a retry budget, so that unavailable participants do not cause a flood of retries.
+ */
+public class SingleLogoutDispatcher implements AutoCloseable {
+    private static final int DEFAULT_MAX_PARALLELISM = 10;
+    private static final int DEFAULT_TIMEOUT = 10000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final int DEFAULT_RETRY_BUDGET = 100;
+    private static final long DEFAULT_INITIAL_RETRY_DELAY = 1000;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final int timeout;
+    private final int maxAttempts;
+    private final long initialRetryDelay;
+    private final Semaphore retryBudget;
+
+    public SingleLogoutDispatcher() {
+        this(DEFAULT_MAX_PARALLELISM, DEFAULT_TIMEOUT, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BUDGET);
+    }
+
+    /**
+     * @param maxParallelism the maximum number of logout requests sent at the same time
+     * @param timeout the connect and read timeout of each logout request, in milliseconds
+     * @param maxAttempts the maximum number of times a logout request is sent to a participant
+     * @param retryBudget the maximum number of failed logout requests waiting to be retried
+     */
+    public SingleLogoutDispatcher(int maxParallelism, int timeout, int maxAttempts, int retryBudget) {
+        this(maxParallelism, timeout, maxAttempts, retryBudget, DEFAULT_INITIAL_RETRY_DELAY);
+    }
+
+    SingleLogoutDispatcher(int maxParallelism, int timeout, int maxAttempts, int retryBudget, long initialRetryDelay) {
+        checkMinimumParameter("maxParallelism", 1, maxParallelism);
+        checkMinimumParameter("timeout", 0, timeout);
+        checkMinimumParameter("maxAttempts", 1, maxAttempts);
+        checkMinimumParameter("retryBudget", 0, retryBudget);
+        this.executor = new ScheduledThreadPoolExecutor(maxParallelism, ThreadFactoryProvider.threadFactory);
+        this.executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        this.executor.allowCoreThreadTimeOut(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.timeout = timeout;
+        this.maxAttempts = maxAttempts;
+        this.initialRetryDelay = initialRetryDelay;
+        this.retryBudget = new Semaphore(retryBudget);
+    }
+
+    /**
+     * Send a logout request to a participant in the background.
+     * @param participant the logout URI of the participant
+     * @param request prepares the connection to the participant and writes the logout request
+     */
+    public void dispatch(URI participant, ExceptionConsumer<HttpURLConnection, IOException> request) {
+        checkNotNullParam("participant", participant);
+        checkNotNullParam("request", request);
+        try {
+            this.executor.execute(() -> this.send(participant, request, 1));
+        } catch (RejectedExecutionException e) {
+            log.warnHttpMechSsoFailedLogoutParticipant(participant.toString(), e);
+        }
+    }
+
+    private void send(URI participant, ExceptionConsumer<HttpURLConnection, IOException> request, int attempt) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) participant.toURL().openConnection();
+
+            connection.setConnectTimeout(this.timeout);
+            connection.setReadTimeout(this.timeout);
+            request.accept(connection);
+
+            connection.getInputStream().close();
+        } catch (Exception cause) {
+            if (attempt < this.maxAttempts && this.retryBudget.tryAcquire()) {
+                long delay = this.initialRetryDelay << (attempt - 1);
+                log.debugf(cause, "Logout request %d to participant [%s] failed, retrying in %d ms", attempt, participant, delay);
+                try {
+                    this.executor.schedule(() -> {
+                        this.retryBudget.release();
+                        this.send(participant, request, attempt + 1);
+                    }, delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    this.retryBudget.release();
+                }
+            }
+            log.warnHttpMechSsoFailedLogoutParticipant(participant.toString(), cause);
+        }
+    }
+
+    /**
+     * Stops sending logout requests. The requests already dispatched are still sent, but pending retries are abandoned.
+     */
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+
+    static SingleLogoutDispatcher getDefault() {
+        return DefaultDispatcherHolder.dispatcher;
+    }
+
+    private static class DefaultDispatcherHolder {
+        static final SingleLogoutDispatcher dispatcher = new SingleLogoutDispatcher();
+    }
+
+    private static class ThreadFactoryProvider {
+        static final JBossThreadFactory threadFactory = doPrivileged((PrivilegedAction<JBossThreadFactory>) ()
+                -> new JBossThreadFactory(new ThreadGroup("SingleLogoutDispatcher ThreadGroup"), Boolean.TRUE, null, "%G - %t", null, null));
+    }
+}
@@ -30,4 +30,8 @@ public interface SingleSignOnSessionContext {
     String verifyLogoutParameter(String logoutRequest);
 
     void configureLogoutConnection(HttpURLConnection connection);
+
+    default SingleLogoutDispatcher getLogoutDispatcher() {
+        return SingleLogoutDispatcher.getDefault();
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.keystore;
+
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.Binding;
+import javax.naming.InvalidNameException;
+import javax.naming.event.NamespaceChangeListener;
+import javax.naming.event.NamingEvent;
+import javax.naming.event.NamingExceptionEvent;
+import javax.naming.event.ObjectChangeListener;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+
+/**
+ * A local index of the aliases of a {@link LdapKeyStore} and the distinguished names of their entries.
+ *
+ * The index is kept up to date by the changes done through the key store and by the change notifications of the server,
+ * received as a {@link javax.naming.event.NamingListener}. A change which can not be applied to the index without reading
+ * the changed entry invalidates the whole index, which is then rebuilt by the key store the next time it is used.
+ */
+class LdapAliasIndex implements NamespaceChangeListener, ObjectChangeListener {
+
+    private final String aliasAttribute;
+    private final Map<String, LdapName> aliases = new ConcurrentHashMap<>();
+    private final Map<LdapName, String> distinguishedNames = new ConcurrentHashMap<>();
+    // incremented on every invalidation, so that a rebuild racing with one is not considered valid
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile boolean valid;
+    private volatile boolean listening;
+
+    LdapAliasIndex(final String aliasAttribute) {
+        this.aliasAttribute = aliasAttribute;
+    }
+
+    boolean isValid() {
+        return valid;
+    }
+
+    boolean isListening() {
+        return listening;
+    }
+
+    void setListening(final boolean listening) {
+        this.listening = listening;
+    }
+
+    /**
+     * Start a rebuild of the index.
+     *
+     * @return the stamp to pass to {@link #finishRebuild(Map, long)}
+     */
+    long startRebuild() {
+        return invalidations.get();
+    }
+
+    /**
+     * Replace the content of the index by the result of a rebuild.  The index is only valid if it was not invalidated
+     * since the rebuild started.
+     *
+     * @param aliases the aliases found by the rebuild and the distinguished names of their entries
+     * @param stamp the stamp returned by {@link #startRebuild()}
+     */
+    synchronized void finishRebuild(final Map<String, LdapName> aliases, final long stamp) {
+        this.aliases.clear();
+        this.distinguishedNames.clear();
+        aliases.forEach(this::put);
+        valid = invalidations.get() == stamp;
+    }
+
+    void invalidate() {
+        invalidations.incrementAndGet();
+        valid = false;
+    }
+
+    LdapName get(final String alias) {
+        return aliases.get(alias);
+    }
+
+    synchronized void put(final String alias, final LdapName distinguishedName) {
+        LdapName previous = aliases.put(alias, distinguishedName);
+        if (previous != null && ! previous.equals(distinguishedName)) {
+            distinguishedNames.remove(previous, alias);
+        }
+        distinguishedNames.put(distinguishedName, alias);
+    }
+
+    synchronized void remove(final LdapName distinguishedName) {
+        String alias = distinguishedNames.remove(distinguishedName);
+        if (alias != null) {
+            aliases.remove(alias, distinguishedName);
+        }
+    }
+
+    List<String> aliases() {
+        return new ArrayList<>(aliases.keySet());
+    }
+
+    int size() {
+        return aliases.size();
+    }
+
+    @Override
+    public void objectAdded(final NamingEvent evt) {
+        add(evt.getNewBinding());
+    }
+
+    @Override
+    public void objectRemoved(final NamingEvent evt) {
+        LdapName oldName = toLdapName(evt.getOldBinding());
+        if (oldName != null) {
+            remove(oldName);
+        } else {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void objectRenamed(final NamingEvent evt) {
+        objectRemoved(evt);
+        add(evt.getNewBinding());
+    }
+
+    @Override
+    public void objectChanged(final NamingEvent evt) {
+        objectRenamed(evt);
+    }
+
+    @Override
+    public void namingExceptionThrown(final NamingExceptionEvent evt) {
+        // the listener is deregistered by the provider, so it is registered again when the index is rebuilt
+        log.debug("LdapKeyStore alias index listener failure: ", evt.getException());
+        listening = false;
+        invalidate();
+    }
+
+    private void add(final Binding binding) {
+        LdapName name = toLdapName(binding);
+        if (name == null || name.isEmpty()) {
+            invalidate();
+            return;
+        }
+        // the alias can be obtained without reading the entry only if it is the value of the RDN
+        Rdn rdn = name.getRdn(name.size() - 1);
+        if (rdn.getType().equalsIgnoreCase(aliasAttribute)) {
+            put(rdn.getValue().toString(), name);
+        } else {
+            invalidate();
+        }
+    }
+
+    private static LdapName toLdapName(final Binding binding) {
+        if (binding == null) return null;
+        String name;
+        try {
+            name = binding.getNameInNamespace();
+        } catch (UnsupportedOperationException e) {
+            // the listener is registered on the root context, so the relative name is the distinguished name
+            name = binding.getName();
+        }
+        try {
+            return new LdapName(name);
+        } catch (InvalidNameException e) {
+            log.tracef(e, "LdapKeyStore alias index received invalid name [%s]", name);
+            return null;
+        }
+    }
+}
@@ -51,6 +51,7 @@ public class LdapKeyStore extends KeyStore {
     public static class Builder {
 
         private static final int DEFAULT_SEARCH_TIME_LIMIT = 10000;
+        private static final int DEFAULT_PAGE_SIZE = 50;
 
         private ExceptionSupplier<DirContext, NamingException> dirContextSupplier;
         private String searchPath;
@@ -73,6 +74,9 @@ public class LdapKeyStore extends KeyStore {
         private String keyAttribute = "userPKCS12";
         private String keyType = "PKCS12";
 
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private boolean aliasIndex = false;
+
         private Builder() {
         }
 
@@ -102,7 +106,7 @@ public class LdapKeyStore extends KeyStore {
             LdapKeyStoreSpi spi = new LdapKeyStoreSpi(dirContextSupplier, searchPath, searchScope, searchTimeLimit,
                     filterAlias, filterCertificate, filterIterate, createPath, createRdn, createAttributes, aliasAttribute,
                     certificateAttribute, certificateType, certificateChainAttribute, certificateChainEncoding,
-                    keyAttribute, keyType);
+                    keyAttribute, keyType, pageSize, aliasIndex);
             return new LdapKeyStore(spi, EmptyProvider.getInstance(), "LdapKeyStore");
         }
 
@@ -162,6 +166,34 @@ public class LdapKeyStore extends KeyStore {
             return this;
         }
 
+        /**
+         * Set the size of the pages used when iterating over all keystore items, using the paged results control
+         * (RFC 2696), so that the whole keystore is never loaded at once.  If the server does not support the control,
+         * all keystore items are returned at once.
+         *
+         * @param pageSize the number of keystore items per page, {@code 0} to disable paging. Defaults to {@value #DEFAULT_PAGE_SIZE}.
+         * @return this builder
+         */
+        public Builder setPageSize(int pageSize) {
+            Assert.checkMinimumParameter("pageSize", 0, pageSize);
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Set whether a local index of aliases and distinguished names of their entries should be kept, so that keystore
+         * items are read directly instead of being searched for by alias.  The index is built when first used and kept up
+         * to date by change notifications of the LDAP server, so the server has to support persistent search, otherwise
+         * the index is not used.
+         *
+         * @param aliasIndex {@code true} to keep the alias index, {@code false} otherwise. Defaults to {@code false}.
+         * @return this builder
+         */
+        public Builder setAliasIndex(boolean aliasIndex) {
+            this.aliasIndex = aliasIndex;
+            return this;
+        }
+
         /**
          * Set the LDAP filter used to search keystore item by alias.
          * If not specified "(alias-attribute={0})" is used.
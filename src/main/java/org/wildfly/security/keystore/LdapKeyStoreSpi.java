@@ -22,6 +22,7 @@ import static org.wildfly.security._private.ElytronMessages.log;
 
 import org.wildfly.common.function.ExceptionSupplier;
 
+import javax.naming.NameNotFoundException;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
@@ -31,7 +32,12 @@ import javax.naming.directory.DirContext;
 import javax.naming.directory.ModificationItem;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
+import javax.naming.event.EventDirContext;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
 import javax.naming.ldap.LdapName;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
 import javax.naming.ldap.Rdn;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -55,8 +61,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * A LDAP backed {@link KeyStore} implementation.
@@ -86,6 +95,8 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
     private final String certificateChainEncoding;
     private final String keyAttribute;
     private final String keyType;
+    private final int pageSize;
+    private final LdapAliasIndex aliasIndex;
 
     LdapKeyStoreSpi(ExceptionSupplier<DirContext, NamingException> dirContextSupplier, String searchPath, int searchScope, int searchTimeLimit,
                     String filterAlias, String filterCertificate, String filterIterate,
@@ -93,7 +104,8 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
                     String aliasAttribute,
                     String certificateAttribute, String certificateType,
                     String certificateChainAttribute, String certificateChainEncoding,
-                    String keyAttribute, String keyType) {
+                    String keyAttribute, String keyType,
+                    int pageSize, boolean aliasIndex) {
         this.dirContextSupplier = dirContextSupplier;
         this.searchPath = searchPath;
         this.searchScope = searchScope;
@@ -111,6 +123,8 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
         this.certificateChainEncoding = certificateChainEncoding;
         this.keyAttribute = keyAttribute;
         this.keyType = keyType;
+        this.pageSize = pageSize;
+        this.aliasIndex = aliasIndex ? new LdapAliasIndex(aliasAttribute) : null;
     }
 
     private Object binaryAttributesBackup;
@@ -149,6 +163,21 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
     }
 
     private SearchResult searchAlias(DirContext dirContext, String alias, byte[] cert, String[] returningAttributes) throws NamingException {
+        if (cert == null && aliasIndex != null && aliasIndex.isValid()) {
+            LdapName distinguishedName = aliasIndex.get(alias);
+            if (distinguishedName != null) {
+                try {
+                    // the entry is read directly instead of searching the subtree for it
+                    SearchResult result = new SearchResult(distinguishedName.toString(), null, dirContext.getAttributes(distinguishedName, returningAttributes), false);
+                    result.setNameInNamespace(distinguishedName.toString());
+                    return result;
+                } catch (NameNotFoundException e) {
+                    log.tracef("Indexed alias [%s] not found at [%s], searching for it", alias, distinguishedName);
+                    aliasIndex.remove(distinguishedName);
+                }
+            }
+        }
+
         SearchControls ctls = createSearchControl(returningAttributes);
         NamingEnumeration<SearchResult> results = (cert == null) ?
                 dirContext.search(searchPath, filterAlias, new String[]{alias}, ctls) :
@@ -158,10 +187,61 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
             log.debugf("Alias [%s] not found in LdapKeyStore", alias);
             return null;
         }
-        return results.next();
+        SearchResult result = results.next();
+        if (cert == null && aliasIndex != null && aliasIndex.isValid()) {
+            aliasIndex.put(alias, new LdapName(result.getNameInNamespace()));
+        }
+        return result;
+    }
+
+    /**
+     * Get the alias index, rebuilding it if it is not valid.  The rebuild holds the monitor of the index, so the change
+     * notifications received while rebuilding are applied once the rebuild is finished.
+     *
+     * @return the valid alias index, or {@code null} if the alias index is not enabled or could not be rebuilt
+     */
+    private LdapAliasIndex getAliasIndex() {
+        if (aliasIndex == null) return null;
+        if (aliasIndex.isValid()) return aliasIndex;
+        synchronized (aliasIndex) {
+            if (aliasIndex.isValid()) return aliasIndex;
+            if (! aliasIndex.isListening()) {
+                // without change notifications the index would become stale, so it is not used at all
+                try {
+                    DirContext context = dirContextSupplier.get();
+                    try {
+                        EventDirContext eventContext = (EventDirContext) context.lookup("");
+                        eventContext.addNamingListener(searchPath, filterIterate, createSearchControl(new String[]{aliasAttribute}), aliasIndex);
+                        aliasIndex.setListening(true);
+                    } finally {
+                        context.close();
+                    }
+                } catch (NamingException | ClassCastException e) {
+                    log.debug("LdapKeyStore failed to register alias index listener: ", e);
+                    return null;
+                }
+            }
+            long stamp = aliasIndex.startRebuild();
+            Map<String, LdapName> aliases = new HashMap<>();
+            try (PagedAliasSearch search = new PagedAliasSearch()) {
+                SearchResult result;
+                while ((result = search.next()) != null) {
+                    Attribute attribute = result.getAttributes().get(aliasAttribute);
+                    if (attribute != null) aliases.put((String) attribute.get(), new LdapName(result.getNameInNamespace()));
+                }
+            } catch (NamingException | IOException e) {
+                throw log.ldapKeyStoreFailedToIterateAliases(e);
+            }
+            aliasIndex.finishRebuild(aliases, stamp);
+            log.debugf("LdapKeyStore alias index rebuilt with [%d] aliases", aliases.size());
+            return aliasIndex.isValid() ? aliasIndex : null;
+        }
     }
 
     private Attributes obtainAliasOrCertificateAttributes(String alias, byte[] cert, String[] attributes) {
+        if (cert == null) {
+            getAliasIndex(); // before obtaining the context, as a rebuild needs its own context
+        }
         DirContext context = obtainDirContext();
         if (context == null) {
             log.trace("Unable to obtain DirContext");
@@ -279,6 +359,9 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
 
                 log.debugf("Creating keystore alias [%s] with DN [%s] in LDAP", alias, distinguishName.toString());
                 context.createSubcontext(distinguishName, createAttributes);
+                if (aliasIndex != null && aliasIndex.isValid()) {
+                    aliasIndex.put(alias, distinguishName);
+                }
 
                 items.add(new ModificationItem(DirContext.REPLACE_ATTRIBUTE, new BasicAttribute(aliasAttribute, alias)));
             } else {
@@ -353,6 +436,9 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
                 throw log.ldapKeyStoreFailedToDeleteNonExisting(alias);
             }
             context.destroySubcontext(result.getNameInNamespace());
+            if (aliasIndex != null) {
+                aliasIndex.remove(new LdapName(result.getNameInNamespace()));
+            }
         } catch (NamingException e) {
             throw log.ldapKeyStoreFailedToDelete(alias, e);
         } finally {
@@ -362,6 +448,10 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
 
     @Override
     public boolean engineContainsAlias(String alias) {
+        LdapAliasIndex index = getAliasIndex();
+        if (index != null && index.get(alias) != null) {
+            return true;
+        }
         DirContext context = obtainDirContext();
         if (context == null) {
             log.trace("Unable to obtain DirContext");
@@ -381,45 +471,27 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
 
     @Override
     public Enumeration<String> engineAliases() {
-        DirContext context = obtainDirContext();
-        if (context == null) {
-            log.trace("Unable to obtain DirContext");
-            return null;
-        }
-        try {
-            NamingEnumeration<SearchResult> results = context.search(searchPath, filterIterate, null, createSearchControl(new String[]{aliasAttribute})); // TODO pagination
-            List<String> aliases = new LinkedList<>();
-            while (results.hasMore()) {
-                Attribute attribute = results.next().getAttributes().get(aliasAttribute);
-                if (attribute != null) aliases.add((String) attribute.get());
-            }
-            return Collections.enumeration(aliases);
-        } catch (NamingException e) {
-            throw log.ldapKeyStoreFailedToIterateAliases(e);
-        } finally {
-            returnDirContext(context);
+        LdapAliasIndex index = getAliasIndex();
+        if (index != null) {
+            return Collections.enumeration(index.aliases());
         }
+        return new AliasEnumeration();
     }
 
     @Override
     public int engineSize() {
-        DirContext context = obtainDirContext();
-        if (context == null) {
-            log.trace("Unable to obtain DirContext");
-            return 0;
+        LdapAliasIndex index = getAliasIndex();
+        if (index != null) {
+            return index.size();
         }
-        try {
-            NamingEnumeration<SearchResult> results = context.search(searchPath, filterIterate, null, createSearchControl(new String[]{aliasAttribute}));
+        try (PagedAliasSearch search = new PagedAliasSearch()) {
             int count = 0;
-            while (results.hasMore()) {
-                results.next();
+            while (search.next() != null) {
                 count++;
             }
             return count;
-        } catch (NamingException e) {
+        } catch (NamingException | IOException e) {
             throw log.ldapKeyStoreFailedToIterateAliases(e);
-        } finally {
-            returnDirContext(context);
         }
     }
 
@@ -479,4 +551,150 @@ class LdapKeyStoreSpi extends KeyStoreSpi {
         // NO-OP
     }
 
+    private NamingEnumeration<SearchResult> searchAliasPage(DirContext context, byte[] cookie) throws NamingException, IOException {
+        if (pageSize == 0 || ! (context instanceof LdapContext)) {
+            return context.search(searchPath, filterIterate, null, createSearchControl(new String[]{aliasAttribute}));
+        }
+        LdapContext ldapContext = (LdapContext) context;
+        Control[] controlsBackup = ldapContext.getRequestControls();
+        // not critical, so a server without paging support returns all the results at once
+        ldapContext.setRequestControls(new Control[]{ new PagedResultsControl(pageSize, cookie, Control.NONCRITICAL) });
+        try {
+            return context.search(searchPath, filterIterate, null, createSearchControl(new String[]{aliasAttribute}));
+        } finally {
+            ldapContext.setRequestControls(controlsBackup);
+        }
+    }
+
+    /**
+     * Get the cookie of the next page returned with the last page searched on the given context.
+     *
+     * @return the cookie of the next page, or {@code null} if the last page was the last one
+     */
+    private byte[] getNextPageCookie(DirContext context) throws NamingException {
+        if (pageSize != 0 && context instanceof LdapContext) {
+            Control[] controls = ((LdapContext) context).getResponseControls();
+            if (controls != null) {
+                for (Control control : controls) {
+                    if (control instanceof PagedResultsResponseControl) {
+                        byte[] cookie = ((PagedResultsResponseControl) control).getCookie();
+                        return cookie == null || cookie.length == 0 ? null : cookie;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A search for all the items of the keystore, which loads the results one page at a time using the paged results
+     * control (RFC 2696) if a page size is set.  The context is held until the search is closed.
+     */
+    private final class PagedAliasSearch implements AutoCloseable {
+
+        private final DirContext context;
+        private NamingEnumeration<SearchResult> results;
+        private boolean closed;
+
+        PagedAliasSearch() throws NamingException, IOException {
+            context = obtainDirContext();
+            try {
+                results = searchAliasPage(context, null);
+            } catch (NamingException | IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Get the next result, loading the next page if needed.
+         *
+         * @return the next result, or {@code null} if there are no more results
+         */
+        SearchResult next() throws NamingException, IOException {
+            while (results != null) {
+                if (results.hasMore()) {
+                    return results.next();
+                }
+                results.close();
+                results = null;
+                byte[] cookie = getNextPageCookie(context);
+                if (cookie != null) {
+                    results = searchAliasPage(context, cookie);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (results != null) {
+                try {
+                    results.close();
+                } catch (NamingException e) {
+                    log.trace("Unable to close results", e);
+                }
+            }
+            returnDirContext(context);
+        }
+    }
+
+    /**
+     * An enumeration of the aliases of the keystore, loading them from the server one page at a time as they are consumed.
+     * As the paging state is kept by the server for a single connection, all the pages are searched on the same context,
+     * which is released once the last alias is read or the search fails.  An enumeration which is not consumed to the end
+     * holds its context until it is exhausted.
+     */
+    private final class AliasEnumeration implements Enumeration<String> {
+
+        private final PagedAliasSearch search;
+        private String next;
+        private boolean done;
+
+        AliasEnumeration() {
+            try {
+                search = new PagedAliasSearch();
+            } catch (NamingException | IOException e) {
+                throw log.ldapKeyStoreFailedToIterateAliases(e);
+            }
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            if (next != null) return true;
+            if (done) return false;
+            try {
+                SearchResult result;
+                while ((result = search.next()) != null) {
+                    Attribute attribute = result.getAttributes().get(aliasAttribute);
+                    if (attribute != null) {
+                        next = (String) attribute.get();
+                        return true;
+                    }
+                }
+            } catch (NamingException | IOException e) {
+                throw log.ldapKeyStoreFailedToIterateAliases(e);
+            } finally {
+                if (next == null) {
+                    // exhausted or failed, the context is not needed anymore
+                    done = true;
+                    search.close();
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String nextElement() {
+            if (! hasMoreElements()) {
+                throw new NoSuchElementException();
+            }
+            String alias = next;
+            next = null;
+            return alias;
+        }
+    }
+
 }
@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.mechanism.digest;
+
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+import static org.wildfly.security._private.ElytronMessages.log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link NonceStore} based on a {@link ConcurrentMap} of the used nonces and the time in milliseconds since the epoch
+ * at which they expire. The map can be shared by several nodes, for example by using a distributed cache.
+ *
+ * Without batching each nonce is written to the map as it is used. With batching the map is only read when a nonce is
+ * used, and the nonces are written to the map in batches in the background, so that the writes to a remote map do not
+ * delay the authentication. In return, a nonce used on two nodes at the same time can be accepted by both of them until
+ * its batch is written.
+ *
+ * Expired nonces are periodically purged from the map, unless the map expires them itself.
+ */
+public class ConcurrentMapNonceStore implements NonceStore, AutoCloseable {
+
+    private final ConcurrentMap<String, Long> nonces;
+    private final ScheduledExecutorService executor;
+    private final int batchSize;
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledFuture<?> purgeTask;
+    private final ScheduledFuture<?> flushTask;
+
+    /**
+     * Construct a new instance writing each used nonce to the map.
+     *
+     * @param nonces the map of the used nonces to the time in milliseconds since the epoch at which they expire.
+     * @param executor the executor the purging of the expired nonces is scheduled with.
+     * @param purgeInterval the time in milliseconds between two purges, {@code -1} if the map expires nonces itself.
+     */
+    public ConcurrentMapNonceStore(ConcurrentMap<String, Long> nonces, ScheduledExecutorService executor, long purgeInterval) {
+        this(nonces, executor, purgeInterval, 1, -1);
+    }
+
+    /**
+     * Construct a new instance writing the used nonces to the map in batches.
+     *
+     * @param nonces the map of the used nonces to the time in milliseconds since the epoch at which they expire.
+     * @param executor the executor the writing of the batches and the purging of the expired nonces is scheduled with.
+     * @param purgeInterval the time in milliseconds between two purges, {@code -1} if the map expires nonces itself.
+     * @param batchSize the number of used nonces after which a batch is written.
+     * @param batchDelay the maximum time in milliseconds a used nonce waits for its batch to be written.
+     */
+    public ConcurrentMapNonceStore(ConcurrentMap<String, Long> nonces, ScheduledExecutorService executor, long purgeInterval, int batchSize, long batchDelay) {
+        this.nonces = checkNotNullParam("nonces", nonces);
+        this.executor = checkNotNullParam("executor", executor);
+        checkMinimumParameter("purgeInterval", -1, purgeInterval);
+        checkMinimumParameter("batchSize", 1, batchSize);
+        this.batchSize = batchSize;
+        this.purgeTask = purgeInterval > 0 ? executor.scheduleWithFixedDelay(this::purge, purgeInterval, purgeInterval, TimeUnit.MILLISECONDS) : null;
+        if (batchSize > 1) {
+            checkMinimumParameter("batchDelay", 1, batchDelay);
+            this.flushTask = executor.scheduleWithFixedDelay(this::flush, batchDelay, batchDelay, TimeUnit.MILLISECONDS);
+        } else {
+            this.flushTask = null;
+        }
+    }
+
+    @Override
+    public boolean markUsed(String nonce, long lifetimeNano) {
+        Long expiration = System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(lifetimeNano) + 1;
+        if (batchSize == 1) {
+            return nonces.putIfAbsent(nonce, expiration) == null;
+        }
+
+        // a nonce stays pending until it can be read from the map, so that it is always found in either of them
+        if (pending.putIfAbsent(nonce, expiration) != null) {
+            return false;
+        }
+        if (nonces.containsKey(nonce)) {
+            pending.remove(nonce, expiration);
+            return false;
+        }
+        if (pending.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+
+        return true;
+    }
+
+    /**
+     * Write the pending used nonces to the map.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Long> batch = new HashMap<>(pending);
+        try {
+            nonces.putAll(batch);
+        } catch (RuntimeException e) {
+            // the nonces stay pending, and are written by the next flush
+            log.debug("Writing used nonces failed: ", e);
+            return;
+        }
+        batch.forEach(pending::remove);
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        try {
+            nonces.values().removeIf(expiration -> expiration < now);
+        } catch (RuntimeException e) {
+            log.debug("Purging expired nonces failed: ", e);
+        }
+    }
+
+    /**
+     * Stop the scheduled tasks of this store and write the pending used nonces to the map.
+     */
+    @Override
+    public void close() {
+        if (purgeTask != null) {
+            purgeTask.cancel(false);
+        }
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.mechanism.digest;
+
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link NonceStore} holding the used nonces in memory, each of which is removed from the store once it expired.
+ *
+ * Nonces are held in a {@link ConcurrentHashMap}, so that adding nonces does not contend on a single lock. Expiry is tracked
+ * by a hashed timer wheel: a nonce is queued in the bucket of the tick following its expiration, and a single reaper task
+ * empties one bucket per tick. A nonce is therefore removed at most one tick after it expired, and never before.
+ */
+public class InMemoryNonceStore implements NonceStore {
+
+    private static final int TICKS_PER_PERIOD = 64;
+
+    private final ConcurrentHashMap<String, Boolean> nonces = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Expiration>[] wheel;
+    private final long tickNano;
+    private final ScheduledExecutorService executor;
+
+    private long processedTick;
+    private volatile ScheduledFuture<?> reaper;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param maxLifetimeNano the maximum time in nanoseconds a nonce can stay in the store.
+     * @param executor the executor the reaper is scheduled with.
+     */
+    @SuppressWarnings("unchecked")
+    public InMemoryNonceStore(long maxLifetimeNano, ScheduledExecutorService executor) {
+        checkMinimumParameter("maxLifetimeNano", 1, maxLifetimeNano);
+        checkNotNullParam("executor", executor);
+        this.tickNano = Math.max(maxLifetimeNano / TICKS_PER_PERIOD, TimeUnit.MILLISECONDS.toNanos(1));
+        this.executor = executor;
+        // a nonce never expires further than the maximum lifetime ahead, so its bucket is never the one being emptied
+        this.wheel = new ConcurrentLinkedQueue[(int) (maxLifetimeNano / tickNano) + 2];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    @Override
+    public boolean markUsed(String nonce, long lifetimeNano) {
+        if (nonces.putIfAbsent(nonce, Boolean.TRUE) != null) {
+            return false;
+        }
+
+        // the first tick at or after the expiration
+        long expirationTick = Math.floorDiv(System.nanoTime() + lifetimeNano - 1, tickNano) + 1;
+        wheel[(int) Math.floorMod(expirationTick, (long) wheel.length)].add(new Expiration(nonce, expirationTick));
+        if (reaper == null) {
+            startReaper();
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of nonces in the store.
+     *
+     * @return the number of nonces in the store.
+     */
+    public int size() {
+        return nonces.size();
+    }
+
+    private synchronized void startReaper() {
+        if (reaper == null) {
+            processedTick = Math.floorDiv(System.nanoTime(), tickNano);
+            reaper = executor.scheduleAtFixedRate(this::reap, tickNano, tickNano, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void reap() {
+        long currentTick = Math.floorDiv(System.nanoTime(), tickNano);
+        // catch up with the ticks missed if the reaper was delayed
+        while (processedTick < currentTick) {
+            processedTick++;
+            ConcurrentLinkedQueue<Expiration> bucket = wheel[(int) Math.floorMod(processedTick, (long) wheel.length)];
+            int size = bucket.size();
+            for (int i = 0; i < size; i++) {
+                Expiration expiration = bucket.poll();
+                if (expiration == null) {
+                    break;
+                }
+                if (expiration.tick <= processedTick) {
+                    nonces.remove(expiration.nonce);
+                } else {
+                    bucket.add(expiration);
+                }
+            }
+        }
+    }
+
+    private static final class Expiration {
+
+        final String nonce;
+        final long tick;
+
+        Expiration(String nonce, long tick) {
+            this.nonce = nonce;
+            this.tick = tick;
+        }
+    }
+}
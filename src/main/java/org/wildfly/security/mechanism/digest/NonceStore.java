@@ -0,0 +1,38 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.mechanism.digest;
+
+/**
+ * A store of the nonces already used by Digest authentication, used to reject replayed nonces.
+ *
+ * The default store is the {@link InMemoryNonceStore}, local to a single node. A store shared by several nodes, such as the
+ * {@link ConcurrentMapNonceStore}, allows a nonce issued by one node to be used once on any of them.
+ */
+@FunctionalInterface
+public interface NonceStore {
+
+    /**
+     * Mark the nonce as used.
+     *
+     * @param nonce the nonce supplied by the client.
+     * @param lifetimeNano the time in nanoseconds the nonce remains valid for, and so needs to be remembered for.
+     * @return {@code true} if the nonce was not used before, {@code false} otherwise.
+     */
+    boolean markUsed(String nonce, long lifetimeNano);
+}
@@ -0,0 +1,140 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.permission;
+
+import static org.wildfly.common.Assert.checkMinimumParameter;
+import static org.wildfly.common.Assert.checkNotNullParam;
+
+import java.security.Permission;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link PermissionVerifier} which remembers the positive and negative decisions of another verifier.
+ *
+ * Decisions are keyed on the permission class, name and actions, so this verifier must only be used to wrap a verifier
+ * which is immutable and whose decisions only depend on those properties of the checked permission. Once the maximum number
+ * of decisions are remembered, further decisions are delegated to the wrapped verifier without being remembered.
+ */
+public final class CachingPermissionVerifier implements PermissionVerifier {
+
+    private final PermissionVerifier verifier;
+    private final int maxEntries;
+    private final ConcurrentHashMap<DecisionKey, Boolean> decisions = new ConcurrentHashMap<>();
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param verifier the immutable verifier to remember the decisions of (must not be {@code null})
+     * @param maxEntries the maximum number of decisions to remember
+     */
+    public CachingPermissionVerifier(final PermissionVerifier verifier, final int maxEntries) {
+        this(verifier, maxEntries, new LongAdder(), new LongAdder());
+    }
+
+    /**
+     * Construct a new instance counting its hits and misses with the given counters, which can be shared by several
+     * verifiers to gather their statistics.
+     *
+     * @param verifier the immutable verifier to remember the decisions of (must not be {@code null})
+     * @param maxEntries the maximum number of decisions to remember
+     * @param hits the counter of the decisions answered from the remembered decisions (must not be {@code null})
+     * @param misses the counter of the decisions delegated to the wrapped verifier (must not be {@code null})
+     */
+    public CachingPermissionVerifier(final PermissionVerifier verifier, final int maxEntries, final LongAdder hits, final LongAdder misses) {
+        checkNotNullParam("verifier", verifier);
+        checkMinimumParameter("maxEntries", 1, maxEntries);
+        checkNotNullParam("hits", hits);
+        checkNotNullParam("misses", misses);
+        this.verifier = verifier;
+        this.maxEntries = maxEntries;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    @Override
+    public boolean implies(final Permission permission) {
+        checkNotNullParam("permission", permission);
+        final DecisionKey key = new DecisionKey(permission);
+        final Boolean cached = decisions.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.booleanValue();
+        }
+        misses.increment();
+        final boolean decision = verifier.implies(permission);
+        if (decisions.size() < maxEntries) {
+            decisions.putIfAbsent(key, Boolean.valueOf(decision));
+        }
+        return decision;
+    }
+
+    /**
+     * Get the number of decisions which were answered from the remembered decisions.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of decisions which were delegated to the wrapped verifier.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    static final class DecisionKey {
+
+        private final Class<? extends Permission> permissionClass;
+        private final String name;
+        private final String actions;
+        private final int hashCode;
+
+        DecisionKey(final Permission permission) {
+            permissionClass = permission.getClass();
+            name = permission.getName();
+            actions = permission.getActions();
+            hashCode = Objects.hash(permissionClass, name, actions);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (! (obj instanceof DecisionKey)) {
+                return false;
+            }
+            final DecisionKey other = (DecisionKey) obj;
+            return hashCode == other.hashCode && permissionClass == other.permissionClass && Objects.equals(name, other.name) && Objects.equals(actions, other.actions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
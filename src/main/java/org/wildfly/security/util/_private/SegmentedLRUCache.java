@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.util._private;
+
+import static org.wildfly.common.Assert.checkMinimumParameter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache evicting its least recently used entries, split into segments so that concurrent lookups of different
+ * keys rarely contend.
+ *
+ * Each segment holds a share of the maximum number of entries in access order, and evicts its own least recently used
+ * entry when full, so the eviction order is least recently used per segment rather than across the whole cache.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+public final class SegmentedLRUCache<K, V> {
+
+    /**
+     * The maximum number of segments.
+     */
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private final Segment<K, V>[] segments;
+
+    /**
+     * Construct a new instance with one segment per available processor.
+     *
+     * @param maxEntries the maximum number of entries to cache
+     */
+    public SegmentedLRUCache(final int maxEntries) {
+        this(maxEntries, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct a new instance.
+     *
+     * @param maxEntries the maximum number of entries to cache
+     * @param concurrencyLevel the estimated number of threads using the cache concurrently
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentedLRUCache(final int maxEntries, final int concurrencyLevel) {
+        checkMinimumParameter("maxEntries", 1, maxEntries);
+        checkMinimumParameter("concurrencyLevel", 1, concurrencyLevel);
+        final int segmentCount = segmentCount(maxEntries, concurrencyLevel);
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity(maxEntries, segmentCount, i));
+        }
+    }
+
+    /**
+     * Get the number of segments to split a cache into, a power of two no greater than the maximum number of entries.
+     *
+     * @param maxEntries the maximum number of entries of the cache
+     * @param concurrencyLevel the estimated number of threads using the cache concurrently
+     * @return the number of segments
+     */
+    public static int segmentCount(final int maxEntries, final int concurrencyLevel) {
+        final int floor = Math.min(Integer.highestOneBit(concurrencyLevel), MAX_SEGMENTS);
+        final int ceiling = floor == concurrencyLevel || floor == MAX_SEGMENTS ? floor : floor << 1;
+        return Math.min(ceiling, Math.min(Integer.highestOneBit(maxEntries), MAX_SEGMENTS));
+    }
+
+    /**
+     * Get the share of the maximum number of entries held by a segment, the remainder being spread over the first segments.
+     *
+     * @param maxEntries the maximum number of entries of the cache
+     * @param segmentCount the number of segments
+     * @param segment the index of the segment
+     * @return the maximum number of entries of the segment
+     */
+    public static int segmentCapacity(final int maxEntries, final int segmentCount, final int segment) {
+        return maxEntries / segmentCount + (segment < maxEntries % segmentCount ? 1 : 0);
+    }
+
+    /**
+     * Get the cached value of the given key.
+     *
+     * @param key the key
+     * @param valid the check of the cached value, a value which is not valid any more is removed from the cache
+     * @return the cached value, or {@code null} if none is cached or it is not valid any more
+     */
+    public V get(final K key, final Predicate<? super V> valid) {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            final V value = segment.get(key);
+            if (value != null) {
+                if (valid.test(value)) {
+                    return value;
+                }
+                segment.remove(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache a value, evicting the least recently used entry of its segment if the segment is full.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void put(final K key, final V value) {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    private Segment<K, V> segmentFor(final K key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * A share of the cached entries, in access order. Guarded by its own monitor.
+     */
+    static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        Segment(final int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
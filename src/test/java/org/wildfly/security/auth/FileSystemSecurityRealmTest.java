@@ -26,6 +26,8 @@ import org.wildfly.security.auth.principal.NamePrincipal;
 import org.wildfly.security.auth.realm.FileSystemSecurityRealm;
 import org.wildfly.security.auth.server.ModifiableRealmIdentityIterator;
 import org.wildfly.security.auth.server.ModifiableRealmIdentity;
+import org.wildfly.security.auth.server.NameRewriter;
+import org.wildfly.security.auth.server.RealmIdentity;
 import org.wildfly.security.authz.Attributes;
 import org.wildfly.security.authz.AuthorizationIdentity;
 import org.wildfly.security.authz.MapAttributes;
@@ -58,6 +60,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.security.Provider;
 import java.security.Security;
 import java.util.ArrayList;
@@ -427,6 +430,69 @@ public class FileSystemSecurityRealmTest {
         getRootPath(); // will fail on windows if iterator not closed correctly
     }
 
+    @Test
+    public void testCachedIdentities() throws Exception {
+        FileSystemSecurityRealm securityRealm = new FileSystemSecurityRealm(getRootPath(), NameRewriter.IDENTITY_REWRITER, 1, true, true);
+        PasswordFactory factory = PasswordFactory.getInstance(ClearPassword.ALGORITHM_CLEAR);
+
+        ModifiableRealmIdentity identity = securityRealm.getRealmIdentityForUpdate(new NamePrincipal("plainUser"));
+        identity.create();
+        identity.setCredentials(Collections.singleton(new PasswordCredential(factory.generatePassword(new ClearPasswordSpec("first".toCharArray())))));
+        MapAttributes attributes = new MapAttributes();
+        attributes.addAll("roles", Arrays.asList("Employee"));
+        identity.setAttributes(attributes);
+        identity.dispose();
+
+        RealmIdentity cachedIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+        assertTrue(cachedIdentity.verifyEvidence(new PasswordGuessEvidence("first".toCharArray())));
+        cachedIdentity.dispose();
+
+        // the identity is parsed once, so replacing the content of its file without changing its size or modification
+        // time, which a parse would reject, goes unnoticed
+        Path identityFile = findIdentityFile(getRootPath(false));
+        byte[] content = Files.readAllBytes(identityFile);
+        FileTime lastModifiedTime = Files.getLastModifiedTime(identityFile);
+        byte[] garbage = new byte[content.length];
+        Arrays.fill(garbage, (byte) '?');
+        Files.write(identityFile, garbage);
+        Files.setLastModifiedTime(identityFile, lastModifiedTime);
+        try {
+            for (int i = 0; i < 2; i++) {
+                cachedIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+                assertTrue(cachedIdentity.verifyEvidence(new PasswordGuessEvidence("first".toCharArray())));
+                assertTrue(cachedIdentity.getAuthorizationIdentity().getAttributes().get("roles").contains("Employee"));
+                cachedIdentity.dispose();
+            }
+        } finally {
+            Files.write(identityFile, content);
+        }
+
+        identity = securityRealm.getRealmIdentityForUpdate(new NamePrincipal("plainUser"));
+        identity.setCredentials(Collections.singleton(new PasswordCredential(factory.generatePassword(new ClearPasswordSpec("second".toCharArray())))));
+        assertTrue(identity.verifyEvidence(new PasswordGuessEvidence("second".toCharArray())));
+        identity.dispose();
+
+        // an identity modified by another realm instance is detected by its changed file
+        FileSystemSecurityRealm otherRealm = new FileSystemSecurityRealm(getRootPath(false), 1);
+        identity = otherRealm.getRealmIdentityForUpdate(new NamePrincipal("plainUser"));
+        identity.setCredentials(Collections.singleton(new PasswordCredential(factory.generatePassword(new ClearPasswordSpec("third".toCharArray())))));
+        identity.dispose();
+
+        cachedIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+        assertFalse(cachedIdentity.verifyEvidence(new PasswordGuessEvidence("second".toCharArray())));
+        assertTrue(cachedIdentity.verifyEvidence(new PasswordGuessEvidence("third".toCharArray())));
+        cachedIdentity.dispose();
+
+        identity = otherRealm.getRealmIdentityForUpdate(new NamePrincipal("plainUser"));
+        identity.delete();
+        identity.dispose();
+
+        cachedIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+        assertFalse(cachedIdentity.exists());
+        assertFalse(cachedIdentity.verifyEvidence(new PasswordGuessEvidence("third".toCharArray())));
+        cachedIdentity.dispose();
+    }
+
     private void assertCreateIdentityWithPassword(char[] actualPassword, Password credential) throws Exception {
         FileSystemSecurityRealm securityRealm = new FileSystemSecurityRealm(getRootPath(), 1);
         ModifiableRealmIdentity newIdentity = securityRealm.getRealmIdentityForUpdate(new NamePrincipal("plainUser"));
@@ -441,6 +507,19 @@ public class FileSystemSecurityRealmTest {
         existingIdentity.dispose();
     }
 
+    private Path findIdentityFile(Path rootPath) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        assertEquals(1, files.size());
+        return files.get(0);
+    }
+
     private Path getRootPath(boolean deleteIfExists) throws Exception {
         Path rootPath = Paths.get(getClass().getResource(File.separator).toURI())
                 .resolve("filesystem-realm");
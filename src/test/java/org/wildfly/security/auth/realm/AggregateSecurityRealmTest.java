@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.security.Principal;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wildfly.security.auth.SupportLevel;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.auth.server.RealmUnavailableException;
+import org.wildfly.security.auth.server.SecurityRealm;
+import org.wildfly.security.authz.AuthorizationIdentity;
+import org.wildfly.security.credential.Credential;
+import org.wildfly.security.evidence.Evidence;
+
+/**
+ * Tests for the parallel and lazy modes of {@link AggregateSecurityRealm}.
+ */
+public class AggregateSecurityRealmTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testParallelLookups() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        TestRealm authenticationRealm = new TestRealm(() -> barrier.await(10, TimeUnit.SECONDS));
+        TestRealm authorizationRealm = new TestRealm(() -> barrier.await(10, TimeUnit.SECONDS));
+        SecurityRealm realm = new AggregateSecurityRealm(authenticationRealm, authorizationRealm, executor, 10000);
+
+        // both lookups must be in progress at the same time for the barrier to trip
+        RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal("joe"));
+
+        assertTrue(identity.exists());
+        identity.getAuthorizationIdentity();
+        identity.dispose();
+        assertEquals(1, authenticationRealm.disposed.get());
+        assertEquals(1, authorizationRealm.disposed.get());
+    }
+
+    @Test
+    public void testParallelAuthorizationFailure() throws Exception {
+        TestRealm authenticationRealm = new TestRealm(() -> {});
+        TestRealm authorizationRealm = new TestRealm(() -> {
+            throw new RealmUnavailableException("unavailable");
+        });
+        SecurityRealm realm = new AggregateSecurityRealm(authenticationRealm, authorizationRealm, executor, 10000);
+
+        try {
+            realm.getRealmIdentity(new NamePrincipal("joe"));
+            fail("Expected exception not thrown.");
+        } catch (RealmUnavailableException e) {
+            assertEquals("unavailable", e.getMessage());
+        }
+
+        assertEquals(1, authenticationRealm.disposed.get());
+    }
+
+    @Test
+    public void testParallelAuthenticationFailure() throws Exception {
+        TestRealm authenticationRealm = new TestRealm(() -> {
+            throw new RealmUnavailableException("unavailable");
+        });
+        TestRealm authorizationRealm = new TestRealm(() -> {});
+        SecurityRealm realm = new AggregateSecurityRealm(authenticationRealm, authorizationRealm, executor, 10000);
+
+        try {
+            realm.getRealmIdentity(new NamePrincipal("joe"));
+            fail("Expected exception not thrown.");
+        } catch (RealmUnavailableException e) {
+            assertEquals("unavailable", e.getMessage());
+        }
+
+        assertTrue(authorizationRealm.awaitDisposed());
+    }
+
+    @Test
+    public void testParallelTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TestRealm authenticationRealm = new TestRealm(() -> {});
+        TestRealm authorizationRealm = new TestRealm(() -> release.await(10, TimeUnit.SECONDS));
+        SecurityRealm realm = new AggregateSecurityRealm(authenticationRealm, authorizationRealm, executor, 100);
+
+        try {
+            realm.getRealmIdentity(new NamePrincipal("joe"));
+            fail("Expected exception not thrown.");
+        } catch (RealmUnavailableException e) {
+            // expected
+        }
+
+        assertEquals(1, authenticationRealm.disposed.get());
+        release.countDown();
+        // the late authorization identity is disposed once it becomes available
+        assertTrue(authorizationRealm.awaitDisposed());
+    }
+
+    @Test
+    public void testLazyAuthorization() throws Exception {
+        TestRealm authenticationRealm = new TestRealm(() -> {});
+        TestRealm authorizationRealm = new TestRealm(() -> {});
+        SecurityRealm realm = new AggregateSecurityRealm(authenticationRealm, authorizationRealm, true);
+
+        RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal("joe"));
+        assertTrue(identity.exists());
+        assertEquals(0, authorizationRealm.lookups.get());
+
+        identity.getAuthorizationIdentity();
+        identity.getAuthorizationIdentity();
+        assertEquals(1, authorizationRealm.lookups.get());
+
+        identity.dispose();
+        assertEquals(1, authorizationRealm.disposed.get());
+
+        RealmIdentity unused = realm.getRealmIdentity(new NamePrincipal("bob"));
+        unused.dispose();
+        assertEquals(1, authorizationRealm.lookups.get());
+        assertEquals(2, authenticationRealm.disposed.get());
+    }
+
+    @Test
+    public void testEvidenceLookupsAreNotDeferred() throws Exception {
+        Evidence evidence = new Evidence() {
+            @Override
+            public Principal getPrincipal() {
+                return new NamePrincipal("joe");
+            }
+        };
+        TestRealm authenticationRealm = new TestRealm(() -> {});
+        TestRealm lazyAuthorizationRealm = new TestRealm(() -> {});
+        SecurityRealm lazyRealm = new AggregateSecurityRealm(authenticationRealm, lazyAuthorizationRealm, true);
+
+        RealmIdentity identity = lazyRealm.getRealmIdentity(evidence);
+        assertEquals(1, lazyAuthorizationRealm.lookups.get());
+        identity.dispose();
+
+        Thread caller = Thread.currentThread();
+        AtomicInteger otherThreadLookups = new AtomicInteger();
+        TestRealm parallelAuthorizationRealm = new TestRealm(() -> {
+            if (Thread.currentThread() != caller) otherThreadLookups.incrementAndGet();
+        });
+        SecurityRealm parallelRealm = new AggregateSecurityRealm(authenticationRealm, parallelAuthorizationRealm, executor, 10000);
+
+        identity = parallelRealm.getRealmIdentity(evidence);
+        assertEquals(1, parallelAuthorizationRealm.lookups.get());
+        assertEquals(0, otherThreadLookups.get());
+        identity.dispose();
+    }
+
+    interface Lookup {
+        void run() throws Exception;
+    }
+
+    static final class TestRealm implements SecurityRealm {
+
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicInteger disposed = new AtomicInteger();
+        final CountDownLatch disposedLatch = new CountDownLatch(1);
+        private final Lookup lookup;
+
+        TestRealm(Lookup lookup) {
+            this.lookup = lookup;
+        }
+
+        boolean awaitDisposed() throws InterruptedException {
+            return disposedLatch.await(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public RealmIdentity getRealmIdentity(Principal principal) throws RealmUnavailableException {
+            lookups.incrementAndGet();
+            try {
+                lookup.run();
+            } catch (RealmUnavailableException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RealmUnavailableException(e);
+            }
+            return new RealmIdentity() {
+                @Override
+                public Principal getRealmIdentityPrincipal() {
+                    return principal;
+                }
+
+                @Override
+                public SupportLevel getCredentialAcquireSupport(Class<? extends Credential> credentialType, String algorithmName, AlgorithmParameterSpec parameterSpec) throws RealmUnavailableException {
+                    return SupportLevel.UNSUPPORTED;
+                }
+
+                @Override
+                public <C extends Credential> C getCredential(Class<C> credentialType) throws RealmUnavailableException {
+                    return null;
+                }
+
+                @Override
+                public SupportLevel getEvidenceVerifySupport(Class<? extends Evidence> evidenceType, String algorithmName) throws RealmUnavailableException {
+                    return SupportLevel.UNSUPPORTED;
+                }
+
+                @Override
+                public boolean verifyEvidence(Evidence evidence) throws RealmUnavailableException {
+                    return false;
+                }
+
+                @Override
+                public boolean exists() throws RealmUnavailableException {
+                    return true;
+                }
+
+                @Override
+                public AuthorizationIdentity getAuthorizationIdentity() throws RealmUnavailableException {
+                    return AuthorizationIdentity.EMPTY;
+                }
+
+                @Override
+                public void dispose() {
+                    disposed.incrementAndGet();
+                    disposedLatch.countDown();
+                }
+            };
+        }
+
+        @Override
+        public SupportLevel getCredentialAcquireSupport(Class<? extends Credential> credentialType, String algorithmName, AlgorithmParameterSpec parameterSpec) throws RealmUnavailableException {
+            return SupportLevel.UNSUPPORTED;
+        }
+
+        @Override
+        public SupportLevel getEvidenceVerifySupport(Class<? extends Evidence> evidenceType, String algorithmName) throws RealmUnavailableException {
+            return SupportLevel.UNSUPPORTED;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.wildfly.security.auth.realm.IdentitySharedExclusiveLock.IdentityLock;
+
+/**
+ * Tests for {@link IdentitySharedExclusiveLockTable}.
+ */
+public class IdentitySharedExclusiveLockTableTest {
+
+    @Test
+    public void testLocksAreRemovedWhenReleased() {
+        IdentitySharedExclusiveLockTable table = new IdentitySharedExclusiveLockTable();
+
+        for (int i = 0; i < 1000; i++) {
+            IdentityLock lock = table.lockShared("user" + i);
+            lock.release();
+        }
+        assertEquals(0, table.size());
+
+        IdentityLock first = table.lockShared("joe");
+        IdentityLock second = table.lockShared("joe");
+        assertEquals(1, table.size());
+        first.release();
+        first.release();
+        assertEquals(1, table.size());
+        second.release();
+        assertEquals(0, table.size());
+        assertFalse(second.isValid());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUnacquiredLockObjectDoesNotReleaseTableLock() throws Exception {
+        IdentitySharedExclusiveLockTable table = new IdentitySharedExclusiveLockTable();
+        IdentityLock held = table.lockExclusive("joe");
+
+        Field locks = IdentitySharedExclusiveLockTable.class.getDeclaredField("locks");
+        locks.setAccessible(true);
+        IdentitySharedExclusiveLock lock = ((Map<String, IdentitySharedExclusiveLock>) locks.get(table)).get("joe");
+
+        IdentityLock unacquired = lock.new IdentityLock(true);
+        unacquired.release();
+        assertFalse(unacquired.isValid());
+        assertEquals(1, lock.references);
+        assertEquals(1, table.size());
+
+        held.release();
+        assertEquals(0, lock.references);
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testExclusiveLockWaitsForSharedLock() throws Exception {
+        IdentitySharedExclusiveLockTable table = new IdentitySharedExclusiveLockTable();
+        IdentityLock shared = table.lockShared("joe");
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try (IdentityLock exclusive = table.lockExclusive("joe")) {
+                assertTrue(exclusive.isExclusive());
+                acquired.countDown();
+            }
+        });
+        thread.start();
+
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+        // the lock may be released by another thread than the one which acquired it
+        shared.release();
+        assertTrue(acquired.await(10, TimeUnit.SECONDS));
+        thread.join(10000);
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testExclusiveAccess() throws Exception {
+        IdentitySharedExclusiveLockTable table = new IdentitySharedExclusiveLockTable();
+        AtomicInteger exclusiveHolders = new AtomicInteger();
+        AtomicInteger sharedHolders = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < 2000; j++) {
+                        String name = "user" + random.nextInt(4);
+                        if (random.nextInt(10) == 0) {
+                            try (IdentityLock lock = table.lockExclusive(name)) {
+                                if (name.equals("user0")) {
+                                    assertEquals(1, exclusiveHolders.incrementAndGet());
+                                    assertEquals(0, sharedHolders.get());
+                                    exclusiveHolders.decrementAndGet();
+                                }
+                            }
+                        } else {
+                            try (IdentityLock lock = table.lockShared(name)) {
+                                if (name.equals("user0")) {
+                                    sharedHolders.incrementAndGet();
+                                    assertEquals(0, exclusiveHolders.get());
+                                    sharedHolders.decrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, table.size());
+    }
+}
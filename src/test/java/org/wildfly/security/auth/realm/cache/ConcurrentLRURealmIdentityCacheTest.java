@@ -0,0 +1,282 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.Principal;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.wildfly.security.auth.SupportLevel;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.auth.server.RealmUnavailableException;
+import org.wildfly.security.cache.ConcurrentLRURealmIdentityCache;
+import org.wildfly.security.cache.RealmIdentityCache;
+import org.wildfly.security.credential.Credential;
+import org.wildfly.security.evidence.Evidence;
+
+/**
+ * Tests for {@link ConcurrentLRURealmIdentityCache}.
+ */
+public class ConcurrentLRURealmIdentityCacheTest {
+
+    private static final int THREADS = 8;
+    private static final int KEYS = 256;
+
+    @Test
+    public void testMaxEntriesSingleSegment() {
+        ConcurrentLRURealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(5, -1, 1);
+
+        for (int i = 0; i < 5; i++) {
+            cache.put(new NamePrincipal("user" + i), createRealmIdentity("user" + i));
+        }
+
+        // touch the eldest entry so it is not the next to be evicted
+        assertNotNull(cache.get(new NamePrincipal("user0")));
+
+        cache.put(new NamePrincipal("user5"), createRealmIdentity("user5"));
+
+        assertEquals(5, cache.size());
+        assertNotNull(cache.get(new NamePrincipal("user0")));
+        assertNull(cache.get(new NamePrincipal("user1")));
+        assertNotNull(cache.get(new NamePrincipal("user5")));
+    }
+
+    @Test
+    public void testMaxEntries() {
+        ConcurrentLRURealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(100, -1, 16);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(new NamePrincipal("user" + i), createRealmIdentity("user" + i));
+            assertTrue(cache.size() <= 100);
+        }
+    }
+
+    @Test
+    public void testGetAndRemoveByRealmPrincipal() {
+        RealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(10);
+        RealmIdentity identity = createRealmIdentity("realm-joe");
+
+        cache.put(new NamePrincipal("joe"), identity);
+        cache.put(new NamePrincipal("JOE"), identity);
+
+        assertSame(identity, cache.get(new NamePrincipal("joe")));
+        assertSame(identity, cache.get(new NamePrincipal("JOE")));
+        assertSame(identity, cache.get(new NamePrincipal("realm-joe")));
+
+        cache.remove(new NamePrincipal("realm-joe"));
+
+        assertNull(cache.get(new NamePrincipal("joe")));
+        assertNull(cache.get(new NamePrincipal("JOE")));
+        assertNull(cache.get(new NamePrincipal("realm-joe")));
+    }
+
+    @Test
+    public void testRemoveByDomainPrincipal() {
+        RealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(10);
+        RealmIdentity identity = createRealmIdentity("realm-joe");
+
+        cache.put(new NamePrincipal("joe"), identity);
+        cache.put(new NamePrincipal("JOE"), identity);
+        cache.put(new NamePrincipal("bob"), createRealmIdentity("realm-bob"));
+
+        cache.remove(new NamePrincipal("joe"));
+
+        assertNull(cache.get(new NamePrincipal("joe")));
+        assertNull(cache.get(new NamePrincipal("JOE")));
+        assertNotNull(cache.get(new NamePrincipal("bob")));
+    }
+
+    @Test
+    public void testClear() {
+        ConcurrentLRURealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(10);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put(new NamePrincipal("user" + i), createRealmIdentity("realm-user" + i));
+        }
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        for (int i = 0; i < 10; i++) {
+            assertNull(cache.get(new NamePrincipal("user" + i)));
+            assertNull(cache.get(new NamePrincipal("realm-user" + i)));
+        }
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        RealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(10, 100);
+
+        cache.put(new NamePrincipal("joe"), createRealmIdentity("joe"));
+        assertNotNull(cache.get(new NamePrincipal("joe")));
+
+        Thread.sleep(200);
+
+        assertNull(cache.get(new NamePrincipal("joe")));
+    }
+
+    @Test
+    public void testConcurrentRemoveKeepsIndexConsistent() throws Exception {
+        RealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(KEYS * 2);
+        NamePrincipal realmPrincipal = new NamePrincipal("realm-user");
+        RealmIdentity identity = createRealmIdentity(realmPrincipal.getName());
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS - 1; i++) {
+                futures.add(executor.submit(() -> {
+                    while (running.get()) {
+                        cache.put(new NamePrincipal("user" + ThreadLocalRandom.current().nextInt(KEYS)), identity);
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                while (running.get()) {
+                    cache.remove(realmPrincipal);
+                }
+            }));
+
+            Thread.sleep(500);
+            running.set(false);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // every cached entry must still be reachable through the realm principal
+        cache.remove(realmPrincipal);
+
+        for (int i = 0; i < KEYS; i++) {
+            assertNull(cache.get(new NamePrincipal("user" + i)));
+        }
+    }
+
+    @Test
+    public void testConcurrentOperationsKeepSizeBound() throws Exception {
+        int maxEntries = KEYS / 2;
+        // one segment per thread, while being added an entry may exceed the share of its segment until the eldest is evicted
+        ConcurrentLRURealmIdentityCache cache = new ConcurrentLRURealmIdentityCache(maxEntries, -1, THREADS);
+        List<NamePrincipal> principals = new ArrayList<>(KEYS);
+        List<RealmIdentity> identities = new ArrayList<>(KEYS);
+
+        for (int i = 0; i < KEYS; i++) {
+            principals.add(new NamePrincipal("user" + i));
+            identities.add(createRealmIdentity("realm-user" + i));
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    start.await();
+                    while (running.get()) {
+                        int index = random.nextInt(KEYS);
+                        int operation = random.nextInt(100);
+                        if (operation < 70) {
+                            RealmIdentity cached = cache.get(principals.get(index));
+                            assertTrue(cached == null || cached == identities.get(index));
+                        } else if (operation < 95) {
+                            cache.put(principals.get(index), identities.get(index));
+                        } else {
+                            cache.remove(principals.get(index));
+                        }
+                        assertTrue(cache.size() <= maxEntries + THREADS);
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            Thread.sleep(500);
+            running.set(false);
+            // any exception or failed assertion of a thread is rethrown here
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(cache.size() <= maxEntries);
+        for (int i = 0; i < KEYS; i++) {
+            RealmIdentity cached = cache.get(principals.get(i));
+            assertTrue(cached == null || cached == identities.get(i));
+        }
+    }
+
+    private RealmIdentity createRealmIdentity(String realmPrincipalName) {
+        NamePrincipal realmPrincipal = new NamePrincipal(realmPrincipalName);
+        return new RealmIdentity() {
+            @Override
+            public Principal getRealmIdentityPrincipal() {
+                return realmPrincipal;
+            }
+
+            @Override
+            public SupportLevel getCredentialAcquireSupport(Class<? extends Credential> credentialType, String algorithmName, final AlgorithmParameterSpec parameterSpec) throws RealmUnavailableException {
+                return null;
+            }
+
+            @Override
+            public <C extends Credential> C getCredential(Class<C> credentialType) throws RealmUnavailableException {
+                return null;
+            }
+
+            @Override
+            public SupportLevel getEvidenceVerifySupport(Class<? extends Evidence> evidenceType, String algorithmName) throws RealmUnavailableException {
+                return null;
+            }
+
+            @Override
+            public boolean verifyEvidence(Evidence evidence) throws RealmUnavailableException {
+                return false;
+            }
+
+            @Override
+            public boolean exists() throws RealmUnavailableException {
+                return true;
+            }
+        };
+    }
+}
@@ -59,6 +59,7 @@ import org.wildfly.security.auth.server.ServerAuthenticationContext;
 import org.wildfly.security.authz.Attributes;
 import org.wildfly.security.authz.MapAttributes;
 import org.wildfly.security.authz.RoleDecoder;
+import org.wildfly.security.cache.ConcurrentLRURealmIdentityCache;
 import org.wildfly.security.cache.LRURealmIdentityCache;
 import org.wildfly.security.cache.RealmIdentityCache;
 import org.wildfly.security.credential.Credential;
@@ -172,6 +173,28 @@ public class ModifiableSecurityRealmIdentityCacheTest {
         assertEquals(2, realmHitCount.get());
     }
 
+    @Test
+    public void testInvalidateNegativeEntryAfterCreate() throws Exception {
+        FileSystemSecurityRealm realm = new FileSystemSecurityRealm(getRootPath(true));
+        ModifiableSecurityRealm securityRealm = new CachingModifiableSecurityRealm(new MockCacheableModifiableSecurityRealm(realm),
+                createRealmIdentitySimpleJavaMapCache(), false, new ConcurrentLRURealmIdentityCache(16, 60000));
+        SecurityDomain securityDomain = SecurityDomain.builder().setDefaultRealmName("default").addRealm("default", securityRealm).build()
+                .setPermissionMapper((permissionMappable, roles) -> LoginPermission.getInstance())
+                .build();
+
+        for (int i = 0; i < 2; i++) {
+            RealmIdentity bob = securityRealm.getRealmIdentity(new NamePrincipal("bob"));
+            assertFalse(bob.exists());
+            bob.dispose();
+        }
+        assertEquals(1, realmHitCount.get());
+
+        addUser(securityRealm, "bob", "User");
+
+        assertAuthenticationAndAuthorization("bob", "password", securityDomain);
+        assertEquals(2, realmHitCount.get());
+    }
+
     private ModifiableSecurityRealm createSecurityRealm() throws Exception {
         FileSystemSecurityRealm realm = new FileSystemSecurityRealm(getRootPath(true));
 
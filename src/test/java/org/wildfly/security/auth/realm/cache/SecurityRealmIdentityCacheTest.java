@@ -19,16 +19,24 @@
 package org.wildfly.security.auth.realm.cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.security.Principal;
 import java.security.Security;
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
@@ -37,6 +45,7 @@ import org.junit.Test;
 import org.wildfly.security.WildFlyElytronProvider;
 import org.wildfly.security.auth.SupportLevel;
 import org.wildfly.security.auth.permission.LoginPermission;
+import org.wildfly.security.auth.principal.NamePrincipal;
 import org.wildfly.security.auth.realm.CacheableSecurityRealm;
 import org.wildfly.security.auth.realm.CachingSecurityRealm;
 import org.wildfly.security.auth.realm.SimpleMapBackedSecurityRealm;
@@ -49,6 +58,7 @@ import org.wildfly.security.auth.server.SecurityRealm;
 import org.wildfly.security.auth.server.ServerAuthenticationContext;
 import org.wildfly.security.authz.MapAttributes;
 import org.wildfly.security.authz.RoleDecoder;
+import org.wildfly.security.cache.ConcurrentLRURealmIdentityCache;
 import org.wildfly.security.cache.LRURealmIdentityCache;
 import org.wildfly.security.cache.RealmIdentityCache;
 import org.wildfly.security.credential.Credential;
@@ -121,7 +131,110 @@ public class SecurityRealmIdentityCacheTest {
         assertEquals(2, realmHitCount.get());
     }
 
+    @Test
+    public void testCoalescedLoads() throws Exception {
+        int threads = 10;
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMapBackedSecurityRealm realm = new SimpleMapBackedSecurityRealm();
+        Map<String, SimpleRealmEntry> users = new HashMap<>();
+
+        addUser(users, "joe", "User");
+        realm.setPasswordMap(users);
+
+        CachingSecurityRealm cachingRealm = new CachingSecurityRealm(new CacheableSecurityRealm() {
+            @Override
+            public void registerIdentityChangeListener(Consumer<Principal> listener) {
+
+            }
+
+            @Override
+            public RealmIdentity getRealmIdentity(Principal principal) throws RealmUnavailableException {
+                realmHitCount.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return realm.getRealmIdentity(principal);
+            }
+
+            @Override
+            public SupportLevel getCredentialAcquireSupport(Class<? extends Credential> credentialType, String algorithmName, final AlgorithmParameterSpec parameterSpec) throws RealmUnavailableException {
+                return realm.getCredentialAcquireSupport(credentialType, algorithmName, parameterSpec);
+            }
+
+            @Override
+            public SupportLevel getEvidenceVerifySupport(Class<? extends Evidence> evidenceType, String algorithmName) throws RealmUnavailableException {
+                return realm.getEvidenceVerifySupport(evidenceType, algorithmName);
+            }
+        }, createRealmIdentityLRUCache(), true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<RealmIdentity>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> cachingRealm.getRealmIdentity(new NamePrincipal("joe"))));
+            }
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (cachingRealm.getCoalescedLoadCount() < threads - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            RealmIdentity expected = results.get(0).get(10, TimeUnit.SECONDS);
+            assertTrue(expected.exists());
+            for (Future<RealmIdentity> result : results) {
+                assertSame(expected, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, realmHitCount.get());
+        assertEquals(threads - 1, cachingRealm.getCoalescedLoadCount());
+    }
+
+    @Test
+    public void testNegativeCache() throws Exception {
+        CachingSecurityRealm securityRealm = createSecurityRealm(createRealmIdentityLRUCache(), new ConcurrentLRURealmIdentityCache(10, 60000));
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(securityRealm.getRealmIdentity(new NamePrincipal("alice")).exists());
+        }
+
+        assertEquals(1, realmHitCount.get());
+
+        // an identity change notification also removes negative entries
+        securityRealm.removeFromCache(new NamePrincipal("alice"));
+
+        assertFalse(securityRealm.getRealmIdentity(new NamePrincipal("alice")).exists());
+        assertEquals(2, realmHitCount.get());
+
+        assertTrue(securityRealm.getRealmIdentity(new NamePrincipal("joe")).exists());
+        assertEquals(3, realmHitCount.get());
+    }
+
+    @Test
+    public void testNegativeCacheMaxAge() throws Exception {
+        CachingSecurityRealm securityRealm = createSecurityRealm(createRealmIdentityLRUCache(), new ConcurrentLRURealmIdentityCache(10, 500));
+
+        assertFalse(securityRealm.getRealmIdentity(new NamePrincipal("alice")).exists());
+        assertFalse(securityRealm.getRealmIdentity(new NamePrincipal("alice")).exists());
+        assertEquals(1, realmHitCount.get());
+
+        Thread.sleep(1000);
+
+        assertFalse(securityRealm.getRealmIdentity(new NamePrincipal("alice")).exists());
+        assertEquals(2, realmHitCount.get());
+    }
+
     private SecurityRealm createSecurityRealm(RealmIdentityCache cache) {
+        return createSecurityRealm(cache, null);
+    }
+
+    private CachingSecurityRealm createSecurityRealm(RealmIdentityCache cache, RealmIdentityCache negativeCache) {
         SimpleMapBackedSecurityRealm realm = new SimpleMapBackedSecurityRealm();
         Map<String, SimpleRealmEntry> users = new HashMap<>();
 
@@ -175,7 +288,7 @@ public class SecurityRealmIdentityCacheTest {
             public SupportLevel getEvidenceVerifySupport(Class<? extends Evidence> evidenceType, String algorithmName) throws RealmUnavailableException {
                 return getEvidenceVerifySupport(evidenceType, algorithmName);
             }
-        }, cache) {
+        }, cache, false, negativeCache) {
         };
     }
 
@@ -20,7 +20,12 @@ package org.wildfly.security.auth.realm.jdbc;
 import org.junit.ClassRule;
 
 import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -86,4 +91,54 @@ public abstract class AbstractJdbcSecurityRealmTest {
             statement.executeUpdate("INSERT INTO role_mapping_table (role_name, user_name) VALUES ('" + roleName + "','" + userName + "')");
         }
     }
+
+    /**
+     * Wraps the given data source, so that the given listener is called before each method of its connections and of the
+     * statements they prepare.
+     */
+    protected static DataSource observedDataSource(DataSource dataSource, CallListener listener) {
+        return proxy(DataSource.class, (proxy, method, args) -> {
+            Object result = invoke(dataSource, method, args);
+
+            if (! (result instanceof Connection)) {
+                return result;
+            }
+
+            Connection connection = (Connection) result;
+
+            return proxy(Connection.class, (connectionProxy, connectionMethod, connectionArgs) -> {
+                listener.called(Connection.class, connectionMethod.getName(), connectionArgs);
+
+                Object connectionResult = invoke(connection, connectionMethod, connectionArgs);
+
+                if (! (connectionResult instanceof PreparedStatement)) {
+                    return connectionResult;
+                }
+
+                PreparedStatement preparedStatement = (PreparedStatement) connectionResult;
+
+                return proxy(PreparedStatement.class, (statementProxy, statementMethod, statementArgs) -> {
+                    listener.called(PreparedStatement.class, statementMethod.getName(), statementArgs);
+
+                    return invoke(preparedStatement, statementMethod, statementArgs);
+                });
+            });
+        });
+    }
+
+    protected static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    protected static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(AbstractJdbcSecurityRealmTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    protected interface CallListener {
+        void called(Class<?> type, String method, Object[] args) throws Exception;
+    }
 }
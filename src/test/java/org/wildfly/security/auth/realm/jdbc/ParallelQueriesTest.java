@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.realm.jdbc.mapper.AttributeMapper;
+import org.wildfly.security.auth.realm.jdbc.mapper.PasswordKeyMapper;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.authz.Attributes;
+import org.wildfly.security.evidence.PasswordGuessEvidence;
+import org.wildfly.security.password.interfaces.ClearPassword;
+
+/**
+ * Tests for a {@link JdbcSecurityRealm} executing its principal queries in parallel.
+ */
+public class ParallelQueriesTest extends AbstractJdbcSecurityRealmTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testResultsMergedInQueryOrder() throws Exception {
+        createUserTable();
+        insertUser("plainUser", "plainPassword", "John", "Smith", "jsmith@elytron.org");
+
+        CountDownLatch secondQuery = new CountDownLatch(1);
+        // the first query only completes after the second one started
+        JdbcSecurityRealm securityRealm = createSecurityRealm(awaitingDataSource(secondQuery), countingDownDataSource(secondQuery), 10000);
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+
+        assertTrue(realmIdentity.exists());
+        assertTrue(realmIdentity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+
+        Attributes attributes = realmIdentity.getAuthorizationIdentity().getAttributes();
+
+        assertEquals(2, attributes.get("name").size());
+        assertEquals("John", attributes.get("name").get(0));
+        assertEquals("Smith", attributes.get("name").get(1));
+    }
+
+    @Test
+    public void testNonExistentIdentity() throws Exception {
+        createUserTable();
+
+        JdbcSecurityRealm securityRealm = createSecurityRealm(getDataSource(), getDataSource(), 10000);
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("unknownUser"));
+
+        assertFalse(realmIdentity.exists());
+    }
+
+    @Test
+    public void testQueryTimeout() throws Exception {
+        createUserTable();
+        insertUser("plainUser", "plainPassword", "John", "Smith", "jsmith@elytron.org");
+
+        CountDownLatch never = new CountDownLatch(1);
+        JdbcSecurityRealm securityRealm = createSecurityRealm(getDataSource(), awaitingDataSource(never), 200);
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+
+        try {
+            realmIdentity.exists();
+            fail("Expected exception not thrown.");
+        } catch (RuntimeException e) {
+            // expected
+        } finally {
+            never.countDown();
+        }
+    }
+
+    @Test
+    public void testStatementCancelledOnTimeout() throws Exception {
+        createUserTable();
+        insertUser("plainUser", "plainPassword", "John", "Smith", "jsmith@elytron.org");
+
+        CountDownLatch cancelled = new CountDownLatch(1);
+        int[] statementTimeout = new int[1];
+        // the statement of the second query only completes once it is cancelled
+        DataSource blockingDataSource = observedDataSource(getDataSource(), (type, method, args) -> {
+            switch (method) {
+                case "setQueryTimeout":
+                    statementTimeout[0] = (Integer) args[0];
+                    break;
+                case "cancel":
+                    cancelled.countDown();
+                    break;
+                case "executeQuery":
+                    if (cancelled.await(10, TimeUnit.SECONDS)) {
+                        throw new SQLException("Statement cancelled");
+                    }
+                    break;
+            }
+        });
+
+        JdbcSecurityRealm securityRealm = createSecurityRealm(getDataSource(), blockingDataSource, 200);
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+
+        try {
+            realmIdentity.exists();
+            fail("Expected exception not thrown.");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        assertEquals(1, statementTimeout[0]);
+    }
+
+    private JdbcSecurityRealm createSecurityRealm(DataSource first, DataSource second, long queryTimeout) {
+        PasswordKeyMapper passwordKeyMapper = PasswordKeyMapper.builder()
+            .setDefaultAlgorithm(ClearPassword.ALGORITHM_CLEAR)
+            .setHashColumn(1)
+            .build();
+
+        return JdbcSecurityRealm.builder()
+                .setParallelQueries(executor, queryTimeout)
+                .principalQuery("SELECT password, firstName FROM user_table WHERE name = ?")
+                    .withMapper(passwordKeyMapper)
+                    .withMapper(new AttributeMapper(2, "name"))
+                    .from(first)
+                .principalQuery("SELECT lastName FROM user_table WHERE name = ?")
+                    .withMapper(new AttributeMapper(1, "name"))
+                    .from(second)
+                .build();
+    }
+
+    private DataSource awaitingDataSource(CountDownLatch latch) {
+        return dataSource(() -> latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private DataSource countingDownDataSource(CountDownLatch latch) {
+        return dataSource(latch::countDown);
+    }
+
+    private DataSource dataSource(Action beforeConnection) {
+        DataSource dataSource = getDataSource();
+
+        return proxy(DataSource.class, (proxy, method, args) -> {
+            if (method.getName().equals("getConnection")) {
+                beforeConnection.run();
+            }
+
+            return invoke(dataSource, method, args);
+        });
+    }
+
+    interface Action {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.realm.jdbc.mapper.AttributeMapper;
+import org.wildfly.security.auth.realm.jdbc.mapper.PasswordKeyMapper;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.credential.PasswordCredential;
+import org.wildfly.security.evidence.PasswordGuessEvidence;
+import org.wildfly.security.password.interfaces.ClearPassword;
+
+/**
+ * Compares the number of statements prepared per login with and without the statement cache of {@link JdbcSecurityRealm},
+ * and tests the settings of the statements of a query.
+ */
+public class PreparedStatementCacheTest extends AbstractJdbcSecurityRealmTest {
+
+    private static final int LOGINS = 20;
+
+    @Test
+    public void testStatementsPreparedPerLogin() throws Exception {
+        createUserTable();
+        insertUser("plainUser", "plainPassword", "John", "Smith", "jsmith@elytron.org");
+
+        AtomicInteger uncachedStatements = new AtomicInteger();
+        AtomicInteger uncachedConnections = new AtomicInteger();
+        login(false, uncachedStatements, uncachedConnections);
+
+        AtomicInteger cachedStatements = new AtomicInteger();
+        AtomicInteger cachedConnections = new AtomicInteger();
+        login(true, cachedStatements, cachedConnections);
+
+        // each lookup of a login prepares the statement of its query again
+        assertTrue(uncachedStatements.get() > 2 * LOGINS);
+        // each of the two queries is prepared once per login, on a single connection
+        assertEquals(2 * LOGINS, cachedStatements.get());
+        assertEquals(LOGINS, cachedConnections.get());
+    }
+
+    @Test
+    public void testStatementsClosedOnDispose() throws Exception {
+        createUserTable();
+        insertUser("plainUser", "plainPassword", "John", "Smith", "jsmith@elytron.org");
+
+        List<String> closed = Collections.synchronizedList(new ArrayList<>());
+        DataSource dataSource = observedDataSource(getDataSource(), (type, method, args) -> {
+            if (method.equals("close")) {
+                closed.add(type.getSimpleName());
+            }
+        });
+        JdbcSecurityRealm securityRealm = createSecurityRealm(dataSource, true);
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+
+        assertTrue(realmIdentity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+        assertEquals(Collections.emptyList(), closed);
+
+        realmIdentity.dispose();
+
+        assertEquals(2, Collections.frequency(closed, PreparedStatement.class.getSimpleName()));
+        assertEquals(1, Collections.frequency(closed, Connection.class.getSimpleName()));
+    }
+
+    @Test
+    public void testFetchSizeAndQueryTimeout() throws Exception {
+        createUserTable();
+        insertUser("plainUser", "plainPassword", "John", "Smith", "jsmith@elytron.org");
+
+        List<String> settings = Collections.synchronizedList(new ArrayList<>());
+        DataSource dataSource = observedDataSource(getDataSource(), (type, method, args) -> {
+            if (method.equals("setFetchSize") || method.equals("setQueryTimeout")) {
+                settings.add(method + " " + args[0]);
+            }
+        });
+        PasswordKeyMapper passwordKeyMapper = PasswordKeyMapper.builder()
+            .setDefaultAlgorithm(ClearPassword.ALGORITHM_CLEAR)
+            .setHashColumn(1)
+            .build();
+
+        JdbcSecurityRealm securityRealm = JdbcSecurityRealm.builder()
+                .principalQuery("SELECT password FROM user_table WHERE name = ?")
+                    .withMapper(passwordKeyMapper)
+                    .setFetchSize(10)
+                    .setQueryTimeout(5)
+                    .from(dataSource)
+                .build();
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+
+        assertTrue(realmIdentity.getCredential(PasswordCredential.class, ClearPassword.ALGORITHM_CLEAR) != null);
+        assertEquals(2, settings.size());
+        assertTrue(settings.contains("setFetchSize 10"));
+        assertTrue(settings.contains("setQueryTimeout 5"));
+
+        realmIdentity.dispose();
+    }
+
+    private void login(boolean cacheStatements, AtomicInteger statements, AtomicInteger connections) throws Exception {
+        DataSource dataSource = observedDataSource(getDataSource(), (type, method, args) -> {
+            if (method.equals("prepareStatement")) {
+                statements.incrementAndGet();
+            }
+        });
+        DataSource countingDataSource = proxy(DataSource.class, (proxy, method, args) -> {
+            if (method.getName().equals("getConnection")) {
+                connections.incrementAndGet();
+            }
+
+            return invoke(dataSource, method, args);
+        });
+        JdbcSecurityRealm securityRealm = createSecurityRealm(countingDataSource, cacheStatements);
+
+        for (int i = 0; i < LOGINS; i++) {
+            RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+
+            assertTrue(realmIdentity.getEvidenceVerifySupport(PasswordGuessEvidence.class, null).isDefinitelySupported());
+            assertTrue(realmIdentity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+            assertEquals("John", realmIdentity.getAuthorizationIdentity().getAttributes().get("firstName").get(0));
+            assertEquals("jsmith@elytron.org", realmIdentity.getAuthorizationIdentity().getAttributes().get("email").get(0));
+
+            realmIdentity.dispose();
+        }
+    }
+
+    private JdbcSecurityRealm createSecurityRealm(DataSource dataSource, boolean cacheStatements) {
+        PasswordKeyMapper passwordKeyMapper = PasswordKeyMapper.builder()
+            .setDefaultAlgorithm(ClearPassword.ALGORITHM_CLEAR)
+            .setHashColumn(1)
+            .build();
+
+        return JdbcSecurityRealm.builder()
+                .setCacheStatements(cacheStatements)
+                .principalQuery("SELECT password, firstName FROM user_table WHERE name = ?")
+                    .withMapper(passwordKeyMapper)
+                    .withMapper(new AttributeMapper(2, "firstName"))
+                    .from(dataSource)
+                .principalQuery("SELECT email FROM user_table WHERE name = ?")
+                    .withMapper(new AttributeMapper(1, "email"))
+                    .from(dataSource)
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.realm.jdbc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.realm.jdbc.mapper.AttributeMapper;
+import org.wildfly.security.auth.realm.jdbc.mapper.PasswordKeyMapper;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.authz.Attributes;
+import org.wildfly.security.credential.PasswordCredential;
+import org.wildfly.security.evidence.PasswordGuessEvidence;
+import org.wildfly.security.password.PasswordFactory;
+import org.wildfly.security.password.interfaces.ClearPassword;
+import org.wildfly.security.password.interfaces.SaltedSimpleDigestPassword;
+import org.wildfly.security.password.spec.EncryptablePasswordSpec;
+import org.wildfly.security.password.spec.SaltedPasswordAlgorithmSpec;
+
+/**
+ * Tests the number of statements executed by a {@link JdbcSecurityRealm} to authenticate an identity.
+ */
+public class QueryResultBufferingTest extends AbstractJdbcSecurityRealmTest {
+
+    @Test
+    public void testSingleStatementPerQuery() throws Exception {
+        AtomicInteger statements = new AtomicInteger();
+
+        assertEquals(2, authenticate(statements, true));
+    }
+
+    @Test
+    public void testStatementPerLookupWithoutBuffering() throws Exception {
+        AtomicInteger statements = new AtomicInteger();
+
+        assertTrue(authenticate(statements, false) > 2);
+    }
+
+    @Test
+    public void testNonExistentIdentity() throws Exception {
+        createUserTable();
+        AtomicInteger statements = new AtomicInteger();
+        JdbcSecurityRealm securityRealm = createSecurityRealm(countingDataSource(getDataSource(), statements), true);
+
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("unknownUser"));
+
+        assertFalse(realmIdentity.exists());
+        assertFalse(realmIdentity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+        assertFalse(realmIdentity.getEvidenceVerifySupport(PasswordGuessEvidence.class, null).isDefinitelySupported());
+        assertEquals(2, statements.get());
+    }
+
+    @Test
+    public void testBinaryColumns() throws Exception {
+        String algorithm = SaltedSimpleDigestPassword.ALGORITHM_PASSWORD_SALT_DIGEST_SHA_256;
+
+        try (
+                Connection connection = getDataSource().getConnection();
+                Statement statement = connection.createStatement();
+        ) {
+            statement.executeUpdate("DROP TABLE IF EXISTS user_binary_password");
+            statement.executeUpdate("CREATE TABLE user_binary_password (name VARCHAR(100), digest BLOB, salt VARBINARY(64))");
+        }
+
+        try (
+                Connection connection = getDataSource().getConnection();
+                PreparedStatement preparedStatement = connection.prepareStatement("INSERT INTO user_binary_password (name, digest, salt) VALUES (?, ?, ?)");
+        ) {
+            EncryptablePasswordSpec passwordSpec = new EncryptablePasswordSpec("binaryPassword".toCharArray(), new SaltedPasswordAlgorithmSpec(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+            SaltedSimpleDigestPassword password = (SaltedSimpleDigestPassword) PasswordFactory.getInstance(algorithm).generatePassword(passwordSpec);
+
+            preparedStatement.setString(1, "binaryUser");
+            preparedStatement.setBytes(2, password.getDigest());
+            preparedStatement.setBytes(3, password.getSalt());
+            preparedStatement.execute();
+        }
+
+        PasswordKeyMapper passwordKeyMapper = PasswordKeyMapper.builder()
+            .setDefaultAlgorithm(algorithm)
+            .setHashColumn(1)
+            .setSaltColumn(2)
+            .build();
+
+        JdbcSecurityRealm securityRealm = JdbcSecurityRealm.builder()
+                .setBufferQueryResults(true)
+                .principalQuery("SELECT digest, salt FROM user_binary_password WHERE name = ?")
+                    .withMapper(passwordKeyMapper)
+                    .from(getDataSource())
+                .build();
+
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("binaryUser"));
+
+        assertTrue(realmIdentity.verifyEvidence(new PasswordGuessEvidence("binaryPassword".toCharArray())));
+        assertFalse(realmIdentity.verifyEvidence(new PasswordGuessEvidence("invalid".toCharArray())));
+        assertNotNull(realmIdentity.getCredential(PasswordCredential.class, algorithm));
+    }
+
+    @Test
+    public void testBufferedResultSetGetters() throws Exception {
+        try (
+                Connection connection = getDataSource().getConnection();
+                Statement statement = connection.createStatement();
+        ) {
+            statement.executeUpdate("DROP TABLE IF EXISTS typed_table");
+            statement.executeUpdate("CREATE TABLE typed_table (name VARCHAR(100), enabled BOOLEAN, created TIMESTAMP, birth DATE, "
+                    + "attempts INT, score DECIMAL(10,2), data VARBINARY(16), picture BLOB, notes CLOB)");
+            statement.executeUpdate("INSERT INTO typed_table VALUES ('typedUser', TRUE, '2017-05-04 10:20:30', '1980-01-02', "
+                    + "3, 12.50, X'0102ff', X'0a0b', 'some notes')");
+            statement.executeUpdate("INSERT INTO typed_table (name) VALUES ('emptyUser')");
+        }
+
+        QueryResultBuffer buffer;
+
+        try (
+                Connection connection = getDataSource().getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT * FROM typed_table ORDER BY name DESC")
+        ) {
+            buffer = QueryResultBuffer.read(resultSet);
+        }
+
+        try (ResultSet resultSet = buffer.newResultSet()) {
+            assertEquals(9, resultSet.getMetaData().getColumnCount());
+            assertEquals(Types.BOOLEAN, resultSet.getMetaData().getColumnType(2));
+            assertEquals(2, resultSet.findColumn("enabled"));
+
+            assertTrue(resultSet.next());
+            assertEquals("typedUser", resultSet.getString("NAME"));
+            assertTrue(resultSet.getBoolean(2));
+            assertEquals(Timestamp.valueOf("2017-05-04 10:20:30"), resultSet.getTimestamp("created"));
+            assertEquals(Date.valueOf("1980-01-02"), resultSet.getDate(4));
+            assertEquals(3, resultSet.getInt("attempts"));
+            assertEquals(3L, resultSet.getLong(5));
+            assertEquals("3", resultSet.getString(5));
+            assertEquals(new BigDecimal("12.50"), resultSet.getBigDecimal("score"));
+            assertEquals(12.5, resultSet.getDouble(6), 0);
+            assertArrayEquals(new byte[] { 1, 2, (byte) 0xff }, resultSet.getBytes("data"));
+            assertEquals("0102ff", resultSet.getString("data"));
+            assertArrayEquals(new byte[] { 10, 11 }, resultSet.getBytes("picture"));
+            assertEquals(2, resultSet.getBlob(8).length());
+            assertEquals("some notes", resultSet.getString("notes"));
+            assertEquals("some notes", resultSet.getClob(9).getSubString(1, 10));
+            assertEquals(Integer.valueOf(3), resultSet.getObject(5, Integer.class));
+            assertFalse(resultSet.wasNull());
+
+            assertTrue(resultSet.next());
+            assertEquals("emptyUser", resultSet.getString(1));
+            assertFalse(resultSet.getBoolean(2));
+            assertTrue(resultSet.wasNull());
+            assertNull(resultSet.getTimestamp(3));
+            assertEquals(0, resultSet.getInt(5));
+            assertTrue(resultSet.wasNull());
+            assertNull(resultSet.getBytes(7));
+            assertNull(resultSet.getBlob(8));
+
+            assertFalse(resultSet.next());
+            // the buffered rows can be read again
+            assertTrue(resultSet.first());
+            assertEquals("typedUser", resultSet.getString(1));
+            assertEquals(ResultSet.CONCUR_READ_ONLY, resultSet.getConcurrency());
+        }
+    }
+
+    private int authenticate(AtomicInteger statements, boolean bufferQueryResults) throws Exception {
+        createUserTable();
+        insertUser("plainUser", "plainPassword", "John", "Smith", "jsmith@elytron.org");
+
+        JdbcSecurityRealm securityRealm = createSecurityRealm(countingDataSource(getDataSource(), statements), bufferQueryResults);
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new NamePrincipal("plainUser"));
+
+        assertTrue(realmIdentity.getEvidenceVerifySupport(PasswordGuessEvidence.class, null).isDefinitelySupported());
+        assertTrue(realmIdentity.getCredentialAcquireSupport(PasswordCredential.class, ClearPassword.ALGORITHM_CLEAR, null).isDefinitelySupported());
+        assertTrue(realmIdentity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+        assertNotNull(realmIdentity.getCredential(PasswordCredential.class, ClearPassword.ALGORITHM_CLEAR));
+
+        Attributes attributes = realmIdentity.getAuthorizationIdentity().getAttributes();
+
+        assertEquals("John", attributes.get("firstName").get(0));
+        assertEquals("jsmith@elytron.org", attributes.get("email").get(0));
+
+        realmIdentity.dispose();
+
+        return statements.get();
+    }
+
+    private JdbcSecurityRealm createSecurityRealm(DataSource dataSource, boolean bufferQueryResults) {
+        PasswordKeyMapper passwordKeyMapper = PasswordKeyMapper.builder()
+            .setDefaultAlgorithm(ClearPassword.ALGORITHM_CLEAR)
+            .setHashColumn(1)
+            .build();
+
+        return JdbcSecurityRealm.builder()
+                .setBufferQueryResults(bufferQueryResults)
+                .principalQuery("SELECT password, firstName FROM user_table WHERE name = ?")
+                    .withMapper(passwordKeyMapper)
+                    .withMapper(new AttributeMapper(2, "firstName"))
+                    .from(dataSource)
+                .principalQuery("SELECT email FROM user_table WHERE name = ?")
+                    .withMapper(new AttributeMapper(1, "email"))
+                    .from(dataSource)
+                .build();
+    }
+
+    private static DataSource countingDataSource(DataSource dataSource, AtomicInteger statements) {
+        return observedDataSource(dataSource, (type, method, args) -> {
+            if (method.equals("prepareStatement")) {
+                statements.incrementAndGet();
+            }
+        });
+    }
+}
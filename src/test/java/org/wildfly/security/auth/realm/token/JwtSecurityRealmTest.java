@@ -28,15 +28,39 @@ import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.Payload;
 import com.nimbusds.jose.PlainHeader;
 import com.nimbusds.jose.PlainObject;
+import com.nimbusds.jose.crypto.ECDSASigner;
 import com.nimbusds.jose.crypto.RSASSASigner;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import mockit.integration.junit4.JMockit;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.wildfly.security.auth.realm.token.validator.CachingTokenValidator;
+import org.wildfly.security.auth.realm.token.validator.JwkSetKeyResolver;
 import org.wildfly.security.auth.realm.token.validator.JwtValidator;
 import org.wildfly.security.auth.server.RealmIdentity;
 import org.wildfly.security.evidence.BearerTokenEvidence;
@@ -225,6 +249,308 @@ public class JwtSecurityRealmTest extends BaseTestCase {
         assertEquals("elytron@jboss.org", realmIdentity.getRealmIdentityPrincipal().getName());
     }
 
+    @Test
+    public void testJwkSetKeyResolver() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        KeyPair anotherKeyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        Path jwkSet = createJwkSet(toJwk("first", keyPair), toJwk("second", anotherKeyPair));
+
+        try (JwkSetKeyResolver keyResolver = JwkSetKeyResolver.builder().url(jwkSet.toUri().toURL()).build()) {
+            TokenSecurityRealm securityRealm = createJwkSetSecurityRealm(keyResolver);
+
+            assertTrue(securityRealm.getRealmIdentity(new BearerTokenEvidence(createJwt(new RSASSASigner(keyPair.getPrivate()), JWSAlgorithm.RS256, "first"))).exists());
+            assertTrue(securityRealm.getRealmIdentity(new BearerTokenEvidence(createJwt(new RSASSASigner(anotherKeyPair.getPrivate()), JWSAlgorithm.RS256, "second"))).exists());
+            assertFalse(securityRealm.getRealmIdentity(new BearerTokenEvidence(createJwt(new RSASSASigner(keyPair.getPrivate()), JWSAlgorithm.RS256, "second"))).exists());
+            assertFalse(securityRealm.getRealmIdentity(new BearerTokenEvidence(createJwt(new RSASSASigner(keyPair.getPrivate()), JWSAlgorithm.RS256, "unknown"))).exists());
+            // without a key identifier the key can not be chosen from several keys
+            assertFalse(securityRealm.getRealmIdentity(new BearerTokenEvidence(createJwt(new RSASSASigner(keyPair.getPrivate()), JWSAlgorithm.RS256, null))).exists());
+        } finally {
+            Files.delete(jwkSet);
+        }
+    }
+
+    @Test
+    public void testJwkSetKeyRotation() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        KeyPair rotatedKeyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        Path jwkSet = createJwkSet(toJwk("first", keyPair));
+
+        try (JwkSetKeyResolver keyResolver = JwkSetKeyResolver.builder().url(jwkSet.toUri().toURL()).minimumRefreshInterval(0).build()) {
+            TokenSecurityRealm securityRealm = createJwkSetSecurityRealm(keyResolver);
+            BearerTokenEvidence evidence = new BearerTokenEvidence(createJwt(new RSASSASigner(rotatedKeyPair.getPrivate()), JWSAlgorithm.RS256, "rotated"));
+
+            assertFalse(securityRealm.getRealmIdentity(evidence).exists());
+
+            Files.write(jwkSet, Json.createObjectBuilder().add("keys", Json.createArrayBuilder().add(toJwk("first", keyPair)).add(toJwk("rotated", rotatedKeyPair))).build().toString().getBytes(StandardCharsets.UTF_8));
+
+            // an unknown key identifier triggers a reload of the key set in the background
+            boolean exists = false;
+            long deadline = System.currentTimeMillis() + 5000;
+            while (! exists && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+                exists = securityRealm.getRealmIdentity(evidence).exists();
+            }
+            assertTrue(exists);
+        } finally {
+            Files.delete(jwkSet);
+        }
+    }
+
+    @Test
+    public void testEcdsaSignatures() throws Exception {
+        testEcdsaSignature(JWSAlgorithm.ES256, "secp256r1", "P-256", 32);
+        testEcdsaSignature(JWSAlgorithm.ES384, "secp384r1", "P-384", 48);
+        testEcdsaSignature(JWSAlgorithm.ES512, "secp521r1", "P-521", 66);
+    }
+
+    @Test
+    public void testRsaPssSignature() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        TokenSecurityRealm securityRealm = TokenSecurityRealm.builder()
+                .principalClaimName("sub")
+                .validator(JwtValidator.builder()
+                        .issuer("elytron-oauth2-realm")
+                        .audience("my-app-valid")
+                        .publicKey(keyPair.getPublic()).build())
+                .build();
+
+        String content = encode(Json.createObjectBuilder().add("alg", "PS256").build().toString().getBytes(StandardCharsets.UTF_8))
+                + "." + encode(createClaims(10, 0).build().toString().getBytes(StandardCharsets.UTF_8));
+        Signature signature = Signature.getInstance("RSASSA-PSS");
+        signature.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+        signature.initSign(keyPair.getPrivate());
+        signature.update(content.getBytes(StandardCharsets.UTF_8));
+
+        RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new BearerTokenEvidence(content + "." + encode(signature.sign())));
+
+        assertTrue(realmIdentity.exists());
+        assertEquals("elytron@jboss.org", realmIdentity.getRealmIdentityPrincipal().getName());
+    }
+
+    @Test
+    public void testCachingTokenValidator() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        KeyPair anotherKeyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        JwtValidator jwtValidator = JwtValidator.builder()
+                .issuer("elytron-oauth2-realm")
+                .audience("my-app-valid")
+                .publicKey(keyPair.getPublic()).build();
+        AtomicInteger validations = new AtomicInteger();
+
+        TokenSecurityRealm securityRealm = TokenSecurityRealm.builder()
+                .principalClaimName("sub")
+                .validator(CachingTokenValidator.builder()
+                        .validator(evidence -> {
+                            validations.incrementAndGet();
+                            return jwtValidator.validate(evidence);
+                        }).build())
+                .build();
+
+        BearerTokenEvidence evidence = new BearerTokenEvidence(createJwt(keyPair));
+
+        for (int i = 0; i < 3; i++) {
+            RealmIdentity realmIdentity = securityRealm.getRealmIdentity(new BearerTokenEvidence(evidence.getToken()));
+
+            assertTrue(realmIdentity.exists());
+            assertTrue(realmIdentity.verifyEvidence(evidence));
+            assertEquals("elytron@jboss.org", realmIdentity.getRealmIdentityPrincipal().getName());
+        }
+
+        assertEquals(1, validations.get());
+
+        // invalid tokens are not cached
+        BearerTokenEvidence invalidEvidence = new BearerTokenEvidence(createJwt(anotherKeyPair));
+
+        validations.set(0);
+        assertFalse(securityRealm.getRealmIdentity(invalidEvidence).exists());
+        assertFalse(securityRealm.getRealmIdentity(invalidEvidence).exists());
+        assertEquals(2, validations.get());
+    }
+
+    @Test
+    public void testCachingTokenValidatorMaximumAge() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        JwtValidator jwtValidator = JwtValidator.builder()
+                .issuer("elytron-oauth2-realm")
+                .audience("my-app-valid")
+                .publicKey(keyPair.getPublic()).build();
+        AtomicInteger validations = new AtomicInteger();
+
+        TokenSecurityRealm securityRealm = TokenSecurityRealm.builder()
+                .principalClaimName("sub")
+                .validator(CachingTokenValidator.builder()
+                        .maximumAge(0)
+                        .validator(evidence -> {
+                            validations.incrementAndGet();
+                            return jwtValidator.validate(evidence);
+                        }).build())
+                .build();
+
+        BearerTokenEvidence evidence = new BearerTokenEvidence(createJwt(keyPair));
+
+        assertTrue(securityRealm.getRealmIdentity(evidence).exists());
+        assertTrue(securityRealm.getRealmIdentity(evidence).exists());
+        assertEquals(2, validations.get());
+    }
+
+    @Test
+    public void testConcurrentValidationWithSeveralKeys() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        KeyPair anotherKeyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        Path jwkSet = createJwkSet(toJwk("first", keyPair), toJwk("second", anotherKeyPair));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try (JwkSetKeyResolver keyResolver = JwkSetKeyResolver.builder().url(jwkSet.toUri().toURL()).build()) {
+            JwtValidator validator = JwtValidator.builder()
+                    .issuer("elytron-oauth2-realm")
+                    .audience("my-app-valid")
+                    .keyResolver(keyResolver).build();
+            BearerTokenEvidence first = new BearerTokenEvidence(createJwt(new RSASSASigner(keyPair.getPrivate()), JWSAlgorithm.RS256, "first"));
+            BearerTokenEvidence second = new BearerTokenEvidence(createJwt(new RSASSASigner(anotherKeyPair.getPrivate()), JWSAlgorithm.RS384, "second"));
+            BearerTokenEvidence invalid = new BearerTokenEvidence(createJwt(new RSASSASigner(keyPair.getPrivate()), JWSAlgorithm.RS256, "second"));
+            List<Future<?>> futures = new ArrayList<>();
+
+            // the signatures reused by each thread are initialized with alternating keys and algorithms
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        assertNotNull(validator.validate(first));
+                        assertNull(validator.validate(invalid));
+                        assertNotNull(validator.validate(second));
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            Files.delete(jwkSet);
+        }
+    }
+
+    @Test
+    public void testKeyTypeNotMatchingAlgorithm() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair ecKeyPair = keyPairGenerator.generateKeyPair();
+        Path jwkSet = createJwkSet(toJwk("rsa", keyPair));
+
+        try (JwkSetKeyResolver keyResolver = JwkSetKeyResolver.builder().url(jwkSet.toUri().toURL()).build()) {
+            // the key identifier of the token refers to a RSA key, which can not verify an ECDSA signature
+            RealmIdentity realmIdentity = createJwkSetSecurityRealm(keyResolver)
+                    .getRealmIdentity(new BearerTokenEvidence(createJwt(new ECDSASigner((ECPrivateKey) ecKeyPair.getPrivate()), JWSAlgorithm.ES256, "rsa")));
+
+            assertFalse(realmIdentity.exists());
+        } finally {
+            Files.delete(jwkSet);
+        }
+    }
+
+    @Test
+    public void testInvalidFormat() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        String jwt = createJwt(keyPair);
+        TokenSecurityRealm securityRealm = TokenSecurityRealm.builder()
+                .principalClaimName("sub")
+                .validator(JwtValidator.builder()
+                        .issuer("elytron-oauth2-realm")
+                        .audience("my-app-valid")
+                        .publicKey(keyPair.getPublic()).build())
+                .build();
+
+        assertFalse(securityRealm.getRealmIdentity(new BearerTokenEvidence(jwt.substring(0, jwt.lastIndexOf('.')))).exists());
+        assertFalse(securityRealm.getRealmIdentity(new BearerTokenEvidence(jwt.substring(0, jwt.lastIndexOf('.') + 1))).exists());
+        assertFalse(securityRealm.getRealmIdentity(new BearerTokenEvidence(jwt.substring(0, jwt.length() - 2))).exists());
+        assertTrue(securityRealm.getRealmIdentity(new BearerTokenEvidence(jwt)).exists());
+    }
+
+    private void testEcdsaSignature(JWSAlgorithm algorithm, String curveName, String curve, int length) throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec(curveName));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        ECPublicKey publicKey = (ECPublicKey) keyPair.getPublic();
+        Path jwkSet = createJwkSet(Json.createObjectBuilder()
+                .add("kty", "EC")
+                .add("kid", algorithm.getName())
+                .add("crv", curve)
+                .add("x", encode(publicKey.getW().getAffineX(), length))
+                .add("y", encode(publicKey.getW().getAffineY(), length))
+                .build());
+
+        try (JwkSetKeyResolver keyResolver = JwkSetKeyResolver.builder().url(jwkSet.toUri().toURL()).build()) {
+            RealmIdentity realmIdentity = createJwkSetSecurityRealm(keyResolver)
+                    .getRealmIdentity(new BearerTokenEvidence(createJwt(new ECDSASigner((ECPrivateKey) keyPair.getPrivate()), algorithm, algorithm.getName())));
+
+            assertTrue(algorithm.getName(), realmIdentity.exists());
+        } finally {
+            Files.delete(jwkSet);
+        }
+    }
+
+    private TokenSecurityRealm createJwkSetSecurityRealm(JwkSetKeyResolver keyResolver) {
+        return TokenSecurityRealm.builder()
+                .principalClaimName("sub")
+                .validator(JwtValidator.builder()
+                        .issuer("elytron-oauth2-realm")
+                        .audience("my-app-valid")
+                        .keyResolver(keyResolver).build())
+                .build();
+    }
+
+    private Path createJwkSet(JsonObject... jwks) throws Exception {
+        JsonArrayBuilder keys = Json.createArrayBuilder();
+
+        for (JsonObject jwk : jwks) {
+            keys.add(jwk);
+        }
+
+        Path jwkSet = Files.createTempFile("jwks", ".json");
+        Files.write(jwkSet, Json.createObjectBuilder().add("keys", keys).build().toString().getBytes(StandardCharsets.UTF_8));
+
+        return jwkSet;
+    }
+
+    private JsonObject toJwk(String keyId, KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+
+        return Json.createObjectBuilder()
+                .add("kty", "RSA")
+                .add("kid", keyId)
+                .add("use", "sig")
+                .add("n", encode(publicKey.getModulus(), (publicKey.getModulus().bitLength() + 7) / 8))
+                .add("e", encode(publicKey.getPublicExponent(), (publicKey.getPublicExponent().bitLength() + 7) / 8))
+                .build();
+    }
+
+    private String encode(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] unsigned = new byte[length];
+        int copied = Math.min(bytes.length, length);
+
+        System.arraycopy(bytes, bytes.length - copied, unsigned, length - copied, copied);
+
+        return encode(unsigned);
+    }
+
+    private String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private String createJwt(JWSSigner signer, JWSAlgorithm algorithm, String keyId) throws Exception {
+        JWSObject jwsObject = new JWSObject(new JWSHeader.Builder(algorithm)
+                .type(new JOSEObjectType("jwt"))
+                .keyID(keyId).build(),
+                new Payload(createClaims(10, 0).build().toString()));
+
+        jwsObject.sign(signer);
+
+        return jwsObject.serialize();
+    }
+
     private String createJwt(KeyPair keyPair, int expirationOffset) throws Exception {
         return createJwt(keyPair, expirationOffset, -1);
     }
@@ -18,6 +18,7 @@
 
 package org.wildfly.security.auth.realm.token;
 
+import com.sun.net.httpserver.HttpServer;
 import mockit.Mock;
 import mockit.MockUp;
 import mockit.integration.junit4.JMockit;
@@ -37,11 +38,24 @@ import javax.json.JsonObjectBuilder;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.URL;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import static org.junit.Assert.*;
@@ -200,6 +214,147 @@ public class OAuth2TokenSecurityRealmTest {
                 .build();
     }
 
+    @Test
+    public void testIntrospectionReusesConnection() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+        HttpServer server = createIntrospectionServer(requests, clientPorts, null);
+
+        try {
+            OAuth2IntrospectValidator validator = createValidator(server, "/introspect", 10000);
+
+            for (int i = 0; i < 5; i++) {
+                // the token is form encoded, so it can contain reserved characters
+                String token = "token+" + i + "&active=false";
+                Attributes attributes = validator.validate(new BearerTokenEvidence(token));
+
+                assertNotNull(attributes);
+                assertEquals(token, attributes.getFirst("username"));
+            }
+
+            assertNull(validator.validate(new BearerTokenEvidence("inactive")));
+            assertEquals(6, requests.get());
+            assertEquals(1, clientPorts.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testConcurrentIntrospectionsCoalesced() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = createIntrospectionServer(requests, ConcurrentHashMap.newKeySet(), release);
+
+        try {
+            OAuth2IntrospectValidator validator = createValidator(server, "/introspect", 10000);
+            List<CompletableFuture<Attributes>> results = new ArrayList<>();
+
+            for (int i = 0; i < 5; i++) {
+                results.add(validator.validateAsync(new BearerTokenEvidence("elytron@jboss.org")).toCompletableFuture());
+            }
+
+            assertFalse(results.get(0).isDone());
+            release.countDown();
+
+            for (CompletableFuture<Attributes> result : results) {
+                assertEquals("elytron@jboss.org", result.get(10, TimeUnit.SECONDS).getFirst("username"));
+            }
+
+            assertEquals(1, requests.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testIntrospectionTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = createIntrospectionServer(new AtomicInteger(), ConcurrentHashMap.newKeySet(), release);
+
+        try {
+            OAuth2IntrospectValidator validator = createValidator(server, "/introspect", 200);
+
+            try {
+                validator.validate(new BearerTokenEvidence("elytron@jboss.org"));
+                fail("Expected RealmUnavailableException not thrown");
+            } catch (RealmUnavailableException expected) {
+            }
+
+            try {
+                validator.validateAsync(new BearerTokenEvidence("another@jboss.org")).toCompletableFuture().get(10, TimeUnit.SECONDS);
+                fail("Expected RealmUnavailableException not thrown");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof RealmUnavailableException);
+            }
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    private OAuth2IntrospectValidator createValidator(HttpServer server, String path, int readTimeout) throws Exception {
+        return OAuth2IntrospectValidator.builder()
+                .clientId("wildfly-elytron")
+                .clientSecret("dont_tell_me")
+                .readTimeout(readTimeout)
+                .tokenIntrospectionUrl(new URL("http", "localhost", server.getAddress().getPort(), path)).build();
+    }
+
+    /**
+     * Create a token introspection endpoint considering all tokens but the <code>inactive</code> token as active, with the
+     * token as username.
+     */
+    private HttpServer createIntrospectionServer(AtomicInteger requests, Set<Integer> clientPorts, CountDownLatch release) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        server.createContext("/introspect", exchange -> {
+            requests.incrementAndGet();
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+
+            String token = null;
+
+            for (String parameter : new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8).split("&")) {
+                if (parameter.startsWith("token=")) {
+                    token = URLDecoder.decode(parameter.substring("token=".length()), "UTF-8");
+                }
+            }
+
+            if (release != null) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            byte[] response = Json.createObjectBuilder()
+                    .add("active", ! "inactive".equals(token))
+                    .add("username", token)
+                    .build().toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+        });
+        server.start();
+
+        return server;
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+
+        while ((read = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+
+        return bytes.toByteArray();
+    }
+
     private void configureReplayTokenIntrospection() {
         configureTokenIntrospectionEndpoint(s -> Json.createReader(new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8))).readObject());
     }
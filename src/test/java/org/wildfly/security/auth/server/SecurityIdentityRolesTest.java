@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.auth.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.Provider;
+import java.security.Security;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wildfly.security.WildFlyElytronProvider;
+import org.wildfly.security.auth.permission.LoginPermission;
+import org.wildfly.security.auth.realm.SimpleMapBackedSecurityRealm;
+import org.wildfly.security.auth.realm.SimpleRealmEntry;
+import org.wildfly.security.authz.MapAttributes;
+import org.wildfly.security.authz.RoleDecoder;
+import org.wildfly.security.authz.Roles;
+import org.wildfly.security.credential.Credential;
+import org.wildfly.security.credential.PasswordCredential;
+import org.wildfly.security.password.PasswordFactory;
+import org.wildfly.security.password.interfaces.ClearPassword;
+import org.wildfly.security.password.spec.ClearPasswordSpec;
+import org.wildfly.security.permission.PermissionVerifier;
+
+/**
+ * Tests that the roles of a {@link SecurityIdentity} are only mapped once.
+ */
+public class SecurityIdentityRolesTest {
+
+    private static final Provider provider = new WildFlyElytronProvider();
+
+    private final AtomicInteger domainMappings = new AtomicInteger();
+    private final AtomicInteger categoryMappings = new AtomicInteger();
+    private SecurityDomain domain;
+
+    @BeforeClass
+    public static void registerProvider() {
+        Security.addProvider(provider);
+    }
+
+    @AfterClass
+    public static void removeProvider() {
+        Security.removeProvider(provider.getName());
+    }
+
+    @Before
+    public void setupSecurityDomain() {
+        SimpleMapBackedSecurityRealm realm = new SimpleMapBackedSecurityRealm();
+        Map<String, SimpleRealmEntry> users = new HashMap<>();
+        addUser(users, "joe", "User");
+        realm.setPasswordMap(users);
+
+        SecurityDomain.Builder builder = SecurityDomain.builder();
+        builder.addRealm("users", realm).build();
+        builder.setDefaultRealmName("users");
+        builder.setRoleMapper(rolesToMap -> {
+            domainMappings.incrementAndGet();
+            return rolesToMap.or(Roles.of("Mapped"));
+        });
+        builder.setPermissionMapper((permissionMappable, roles) -> PermissionVerifier.from(new LoginPermission()));
+        domain = builder.build();
+    }
+
+    @Test
+    public void testRolesMappedOnce() throws Exception {
+        SecurityIdentity identity = domain.getAnonymousSecurityIdentity().createRunAsIdentity("joe", false);
+        int mappings = domainMappings.get();
+
+        for (int i = 0; i < 10; i++) {
+            Roles roles = identity.getRoles();
+            assertTrue(roles.contains("User"));
+            assertTrue(roles.contains("Mapped"));
+            assertFalse(roles.contains("Other"));
+        }
+
+        assertSame(identity.getRoles(), identity.getRoles());
+        assertEquals(mappings, domainMappings.get());
+    }
+
+    @Test
+    public void testCategoryRolesMappedOnce() throws Exception {
+        SecurityIdentity identity = domain.getAnonymousSecurityIdentity().createRunAsIdentity("joe", false)
+                .withRoleMapper("ejb", rolesToMap -> {
+                    categoryMappings.incrementAndGet();
+                    return rolesToMap.addPrefix("ejb-");
+                });
+
+        for (int i = 0; i < 10; i++) {
+            Roles roles = identity.getRoles("ejb");
+            assertTrue(roles.contains("ejb-User"));
+            assertTrue(roles.contains("ejb-Mapped"));
+            assertFalse(roles.contains("User"));
+        }
+
+        assertEquals(1, categoryMappings.get());
+        assertFalse(identity.getRoles("web").iterator().hasNext());
+        assertTrue(identity.getRoles("web", true).contains("User"));
+    }
+
+    @Test
+    public void testReplacedRoleMapperIsNotMemoized() throws Exception {
+        SecurityIdentity identity = domain.getAnonymousSecurityIdentity().createRunAsIdentity("joe", false)
+                .withRoleMapper("ejb", rolesToMap -> Roles.of("First"));
+
+        assertTrue(identity.getRoles("ejb").contains("First"));
+
+        SecurityIdentity replaced = identity.withRoleMapper("ejb", rolesToMap -> Roles.of("Second"));
+
+        assertTrue(replaced.getRoles("ejb").contains("Second"));
+        assertFalse(replaced.getRoles("ejb").contains("First"));
+        assertTrue(identity.getRoles("ejb").contains("First"));
+        assertSame(identity.getRoles(), replaced.getRoles());
+    }
+
+    private static void addUser(Map<String, SimpleRealmEntry> securityRealm, String userName, String roles) {
+        List<Credential> credentials;
+        try {
+            credentials = Collections.singletonList(
+                    new PasswordCredential(
+                            PasswordFactory.getInstance(ClearPassword.ALGORITHM_CLEAR).generatePassword(
+                                    new ClearPasswordSpec("password".toCharArray()))));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        MapAttributes attributes = new MapAttributes();
+        attributes.addAll(RoleDecoder.KEY_ROLES, Collections.singletonList(roles));
+        securityRealm.put(userName, new SimpleRealmEntry(credentials, attributes));
+    }
+}
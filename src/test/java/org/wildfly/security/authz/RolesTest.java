@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.authz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for materializing {@link Roles} collections.
+ */
+public class RolesTest {
+
+    @Test
+    public void testMaterializeCombinedRoles() {
+        Roles groups = Roles.fromSet(new HashSet<>(Arrays.asList("admin", "user", "guest")));
+        Roles roles = groups.minus(Roles.of("guest"))
+                .or(Roles.of("auditor"))
+                .addPrefix("app-")
+                .addSuffix("-role")
+                .and(Roles.fromSet(new HashSet<>(Arrays.asList("app-admin-role", "app-auditor-role", "app-other-role"))));
+
+        Roles materialized = roles.materialize();
+
+        assertEquals(toSet(roles), toSet(materialized));
+        assertTrue(materialized.contains("app-admin-role"));
+        assertTrue(materialized.contains("app-auditor-role"));
+        assertFalse(materialized.contains("app-user-role"));
+        assertFalse(materialized.contains("app-other-role"));
+        assertSame(materialized, materialized.materialize());
+    }
+
+    @Test
+    public void testMaterializeTrivialRoles() {
+        Roles one = Roles.of("admin");
+
+        assertSame(Roles.NONE, Roles.NONE.materialize());
+        assertSame(one, one.materialize());
+        assertSame(Roles.NONE, Roles.of("admin").minus(Roles.of("other")).minus(Roles.of("admin")).materialize());
+    }
+
+    @Test
+    public void testDeepChainIsMaterialized() {
+        Roles roles = Roles.of("role0");
+
+        for (int i = 1; i < 50; i++) {
+            roles = roles.or(Roles.of("role" + i));
+            assertTrue(CompositeRoles.depthOf(roles) <= 8);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(roles.contains("role" + i));
+        }
+        assertFalse(roles.contains("role50"));
+        assertEquals(50, toSet(roles).size());
+    }
+
+    @Test
+    public void testMaterializeDepthParsing() {
+        assertEquals(8, CompositeRoles.parseDepth(null));
+        assertEquals(3, CompositeRoles.parseDepth("3"));
+        assertEquals(16, CompositeRoles.parseDepth(" 16 "));
+        assertEquals(8, CompositeRoles.parseDepth("deep"));
+        assertEquals(8, CompositeRoles.parseDepth("0"));
+        assertEquals(8, CompositeRoles.parseDepth("-1"));
+    }
+
+    private static Set<String> toSet(Roles roles) {
+        Set<String> set = new HashSet<>();
+        roles.forEach(set::add);
+        return set;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.authz;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.authz.SimplePermissionMapper.MappingMode;
+import org.wildfly.security.permission.PermissionVerifier;
+
+/**
+ * Tests that a compiled {@link SimplePermissionMapper} maps the same permissions as an uncompiled one.
+ */
+public class SimplePermissionMapperTest {
+
+    private static final int PERMISSIONS = 8;
+    private static final int PRINCIPALS = 6;
+    private static final int ROLES = 6;
+
+    @Test
+    public void testCompiledMatchesUncompiled() {
+        Random random = new Random(42);
+
+        for (MappingMode mappingMode : MappingMode.values()) {
+            for (int round = 0; round < 20; round++) {
+                SimplePermissionMapper.Builder uncompiled = SimplePermissionMapper.builder().setMappingMode(mappingMode);
+                SimplePermissionMapper.Builder compiled = SimplePermissionMapper.builder().setMappingMode(mappingMode).setCompiled(true);
+
+                int mappingCount = 1 + random.nextInt(8);
+                for (int i = 0; i < mappingCount; i++) {
+                    PermissionVerifier verifier = randomVerifier(random);
+                    if (random.nextInt(5) == 0) {
+                        uncompiled.addMatchAllPrincipals(verifier);
+                        compiled.addMatchAllPrincipals(verifier);
+                    } else {
+                        Set<String> principals = randomNames(random, "user", PRINCIPALS);
+                        Set<String> roles = randomNames(random, "role", ROLES);
+                        uncompiled.addMapping(principals, roles, verifier);
+                        compiled.addMapping(principals, roles, verifier);
+                    }
+                }
+
+                PermissionMapper uncompiledMapper = uncompiled.build();
+                PermissionMapper compiledMapper = compiled.build();
+
+                for (int user = 0; user < PRINCIPALS + 1; user++) {
+                    PermissionMappable mappable = mappable("user" + user);
+                    for (int i = 0; i < 4; i++) {
+                        Roles roles = Roles.fromSet(randomNames(random, "role", ROLES + 1));
+                        // map twice so that the cached combined verifier is also checked
+                        for (int j = 0; j < 2; j++) {
+                            assertSameImplies(mappingMode, uncompiledMapper.mapPermissions(mappable, roles), compiledMapper.mapPermissions(mappable, roles));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFirstMatchUsesMappingOrder() {
+        PermissionVerifier first = PermissionVerifier.from(new RuntimePermission("first"));
+        PermissionVerifier second = PermissionVerifier.from(new RuntimePermission("second"));
+        PermissionMapper mapper = SimplePermissionMapper.builder()
+                .setCompiled(true)
+                .addMapping(Collections.emptySet(), Collections.singleton("admin"), first)
+                .addMapping(Collections.singleton("joe"), Collections.emptySet(), second)
+                .build();
+
+        assertSame(first, mapper.mapPermissions(mappable("joe"), Roles.of("admin")));
+        assertSame(second, mapper.mapPermissions(mappable("joe"), Roles.of("user")));
+        assertSame(PermissionVerifier.NONE, mapper.mapPermissions(mappable("bob"), Roles.of("user")));
+    }
+
+    @Test
+    public void testCombinedVerifierIsCached() {
+        PermissionMapper mapper = SimplePermissionMapper.builder()
+                .setMappingMode(MappingMode.OR)
+                .setCompiled(true)
+                .addMapping(Collections.emptySet(), Collections.singleton("admin"), PermissionVerifier.from(new RuntimePermission("admin")))
+                .addMatchAllPrincipals(PermissionVerifier.from(new RuntimePermission("login")))
+                .build();
+
+        PermissionVerifier verifier = mapper.mapPermissions(mappable("joe"), Roles.of("admin"));
+
+        assertSame(verifier, mapper.mapPermissions(mappable("bob"), Roles.of("admin")));
+        assertTrue(verifier.implies(new RuntimePermission("admin")));
+        assertTrue(verifier.implies(new RuntimePermission("login")));
+        assertFalse(mapper.mapPermissions(mappable("joe"), Roles.NONE).implies(new RuntimePermission("admin")));
+    }
+
+    private static void assertSameImplies(MappingMode mappingMode, PermissionVerifier expected, PermissionVerifier actual) {
+        for (int i = 0; i < PERMISSIONS; i++) {
+            RuntimePermission permission = new RuntimePermission("permission" + i);
+            assertEquals(mappingMode + " " + permission, expected.implies(permission), actual.implies(permission));
+        }
+    }
+
+    private static PermissionVerifier randomVerifier(Random random) {
+        Set<String> names = randomNames(random, "permission", PERMISSIONS);
+        return permission -> permission instanceof RuntimePermission && names.contains(permission.getName());
+    }
+
+    private static Set<String> randomNames(Random random, String prefix, int count) {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            if (random.nextInt(3) == 0) {
+                names.add(prefix + i);
+            }
+        }
+        return names;
+    }
+
+    private static PermissionMappable mappable(String name) {
+        Principal principal = new NamePrincipal(name);
+        return new PermissionMappable() {
+            @Override
+            public Principal getPrincipal() {
+                return principal;
+            }
+        };
+    }
+}
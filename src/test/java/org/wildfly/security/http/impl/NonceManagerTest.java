@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.http.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.wildfly.security.mechanism.digest.ConcurrentMapNonceStore;
+
+/**
+ * Tests of the single use nonce tracking of {@link NonceManager}.
+ */
+public class NonceManagerTest {
+
+    @Test
+    public void testSingleUse() throws Exception {
+        NonceManager nonceManager = new NonceManager(60000, true, 20, "SHA-256");
+        String nonce = nonceManager.generateNonce();
+
+        assertTrue(nonceManager.useNonce(nonce));
+        assertFalse(nonceManager.useNonce(nonce));
+        assertTrue(nonceManager.useNonce(nonceManager.generateNonce()));
+    }
+
+    @Test
+    public void testMultipleUse() throws Exception {
+        NonceManager nonceManager = new NonceManager(60000, false, 20, "SHA-256");
+        String nonce = nonceManager.generateNonce();
+
+        assertTrue(nonceManager.useNonce(nonce));
+        assertTrue(nonceManager.useNonce(nonce));
+    }
+
+    @Test
+    public void testSharedNonceStore() throws Exception {
+        ConcurrentMap<String, Long> usedNonces = new ConcurrentHashMap<>();
+        byte[] privateKey = "sharedPrivateKey1234".getBytes(StandardCharsets.UTF_8);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            NonceManager first = new NonceManager(60000, 5000, new ConcurrentMapNonceStore(usedNonces, executor, -1), privateKey, "SHA-256");
+            NonceManager second = new NonceManager(60000, 5000, new ConcurrentMapNonceStore(usedNonces, executor, -1), privateKey, "SHA-256");
+            NonceManager other = new NonceManager(60000, true, 20, "SHA-256");
+
+            // a nonce issued by one node can be used once on any node sharing the key and the store
+            String nonce = first.generateNonce();
+            assertTrue(second.useNonce(nonce));
+            assertFalse(first.useNonce(nonce));
+            assertFalse(second.useNonce(nonce));
+            assertEquals(1, usedNonces.size());
+
+            assertFalse(other.useNonce(first.generateNonce()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClockSkew() throws Exception {
+        ConcurrentMap<String, Long> usedNonces = new ConcurrentHashMap<>();
+        byte[] privateKey = "sharedPrivateKey1234".getBytes(StandardCharsets.UTF_8);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            NonceManager node = new NonceManager(60000, 5000, new ConcurrentMapNonceStore(usedNonces, executor, -1), privateKey, "SHA-256");
+            NonceManager slightlyAhead = new NonceManager(60000, 5000, new ConcurrentMapNonceStore(usedNonces, executor, -1), privateKey, "SHA-256",
+                    () -> TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() + 3000));
+            NonceManager farAhead = new NonceManager(60000, 5000, new ConcurrentMapNonceStore(usedNonces, executor, -1), privateKey, "SHA-256",
+                    () -> TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() + 30000));
+
+            assertTrue(node.useNonce(slightlyAhead.generateNonce()));
+            // a nonce from the future would otherwise stay valid for longer than the validity period
+            assertFalse(node.useNonce(farAhead.generateNonce()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        NonceManager nonceManager = new NonceManager(60000, true, 20, "SHA-256");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger accepted = new AtomicInteger();
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 5000; j++) {
+                        String nonce = nonceManager.generateNonce();
+                        if (nonceManager.useNonce(nonce)) {
+                            accepted.incrementAndGet();
+                        }
+                        if (nonceManager.useNonce(nonce)) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8 * 5000, accepted.get());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.security.http.util.sso;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+/**
+ * Tests of the sending of the logout requests to the participants of a single sign-on session by {@link SingleLogoutDispatcher}.
+ */
+public class SingleLogoutDispatcherTest {
+
+    @Test
+    public void testSlowParticipantDoesNotDelayOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch loggedOut = new CountDownLatch(3);
+        ExecutorService serverExecutor = Executors.newCachedThreadPool();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200);
+        });
+        server.createContext("/logout", exchange -> {
+            respond(exchange, 200);
+            loggedOut.countDown();
+        });
+        server.start();
+
+        SingleLogoutDispatcher dispatcher = new SingleLogoutDispatcher(4, 10000, 1, 0);
+        try {
+            long start = System.nanoTime();
+            dispatcher.dispatch(uri(server, "/slow"), SingleLogoutDispatcherTest::post);
+            for (int i = 0; i < 3; i++) {
+                dispatcher.dispatch(uri(server, "/logout"), SingleLogoutDispatcherTest::post);
+            }
+            // dispatching does not wait for the participants
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+            assertTrue(loggedOut.await(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            dispatcher.close();
+            server.stop(0);
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedRequestRetried() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch loggedOut = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/logout", exchange -> {
+            if (requests.incrementAndGet() < 3) {
+                respond(exchange, 503);
+            } else {
+                respond(exchange, 200);
+                loggedOut.countDown();
+            }
+        });
+        server.start();
+
+        SingleLogoutDispatcher dispatcher = new SingleLogoutDispatcher(1, 10000, 3, 10, 10);
+        try {
+            dispatcher.dispatch(uri(server, "/logout"), SingleLogoutDispatcherTest::post);
+
+            assertTrue(loggedOut.await(10, TimeUnit.SECONDS));
+            assertEquals(3, requests.get());
+        } finally {
+            dispatcher.close();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testRetryBudget() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/logout", exchange -> {
+            requests.incrementAndGet();
+            respond(exchange, 503);
+        });
+        server.start();
+
+        // a single failed request can wait to be retried, for long enough that the other one is not retried
+        SingleLogoutDispatcher dispatcher = new SingleLogoutDispatcher(1, 10000, 2, 1, 500);
+        try {
+            dispatcher.dispatch(uri(server, "/logout"), SingleLogoutDispatcherTest::post);
+            dispatcher.dispatch(uri(server, "/logout"), SingleLogoutDispatcherTest::post);
+
+            long start = System.nanoTime();
+            while (requests.get() < 3 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(1000);
+            assertEquals(3, requests.get());
+        } finally {
+            dispatcher.close();
+            server.stop(0);
+        }
+    }
+
+    private static URI uri(HttpServer server, String path) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    private static void post(HttpURLConnection connection) throws IOException {
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write("ely_logout_message=message".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            while (inputStream.read() != -1) {
+                // the request is read, so that the connection is not reset
+            }
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.ModificationItem;
+
+import org.junit.Test;
+import org.wildfly.common.function.ExceptionSupplier;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.realm.CacheableSecurityRealm;
+import org.wildfly.security.auth.realm.ldap.LdapSecurityRealmBuilder;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.auth.server.SecurityRealm;
+import org.wildfly.security.evidence.PasswordGuessEvidence;
+
+/**
+ * Test case performing concurrent logins against an LDAP realm, including one with an identity change listener whose
+ * registration was deferred.
+ *
+ * This test case use {@link DirContextFactoryRule} to ensure running embedded LDAP server.
+ */
+public class ConcurrentLoginSuiteChild {
+
+    private static final int THREADS = 8;
+    private static final int LOGINS = 50;
+
+    @Test
+    public void testConcurrentLogins() throws Exception {
+        SecurityRealm realm = createSecurityRealm(LdapTestSuite.dirContextFactory.create());
+        ((CacheableSecurityRealm) realm).registerIdentityChangeListener(principal -> {});
+
+        assertEquals(THREADS * LOGINS, performConcurrentLogins(realm));
+    }
+
+    @Test
+    public void testDeferredListenerRegistration() throws Exception {
+        ExceptionSupplier<DirContext, NamingException> supplier = LdapTestSuite.dirContextFactory.create();
+        AtomicBoolean available = new AtomicBoolean(false);
+        CountDownLatch notified = new CountDownLatch(1);
+
+        SecurityRealm realm = createSecurityRealm(() -> {
+            if (! available.get()) {
+                throw new ServiceUnavailableException();
+            }
+            return supplier.get();
+        });
+        ((CacheableSecurityRealm) realm).registerIdentityChangeListener(principal -> {
+            if (principal.getName().equals("plainUser")) {
+                notified.countDown();
+            }
+        });
+
+        // the pending listener is registered by one of the logins without blocking the others
+        available.set(true);
+        assertEquals(THREADS * LOGINS, performConcurrentLogins(realm));
+
+        DirContext dirContext = supplier.get();
+        try {
+            ModificationItem[] mods = new ModificationItem[] {
+                new ModificationItem(DirContext.REPLACE_ATTRIBUTE, new BasicAttribute("description", "Concurrent logins"))
+            };
+            dirContext.modifyAttributes("uid=plainUser,dc=elytron,dc=wildfly,dc=org", mods);
+        } finally {
+            dirContext.close();
+        }
+
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+    }
+
+    private static SecurityRealm createSecurityRealm(ExceptionSupplier<DirContext, NamingException> dirContextSupplier) {
+        return LdapSecurityRealmBuilder.builder()
+                .setDirContextSupplier(dirContextSupplier)
+                .identityMapping()
+                    .setSearchDn("dc=elytron,dc=wildfly,dc=org")
+                    .setRdnIdentifier("uid")
+                    .build()
+                .userPasswordCredentialLoader()
+                    .build()
+                .build();
+    }
+
+    private static int performConcurrentLogins(SecurityRealm realm) throws Exception {
+        AtomicInteger successful = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < LOGINS; j++) {
+                        RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal("plainUser"));
+                        try {
+                            if (identity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray()))) {
+                                successful.incrementAndGet();
+                            }
+                        } finally {
+                            identity.dispose();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return successful.get();
+    }
+}
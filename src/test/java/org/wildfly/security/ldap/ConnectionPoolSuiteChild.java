@@ -0,0 +1,169 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.NamingException;
+import javax.naming.directory.DirContext;
+
+import org.junit.Test;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.realm.ldap.DirContextFactory;
+import org.wildfly.security.auth.realm.ldap.LdapSecurityRealmBuilder;
+import org.wildfly.security.auth.realm.ldap.PooledDirContextFactory;
+import org.wildfly.security.auth.realm.ldap.SimpleDirContextFactoryBuilder;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.auth.server.SecurityRealm;
+import org.wildfly.security.evidence.PasswordGuessEvidence;
+
+/**
+ * Test case to test the connection pool of {@link SimpleDirContextFactoryBuilder}.
+ *
+ * This test case use {@link DirContextFactoryRule} to ensure running embedded LDAP server.
+ */
+public class ConnectionPoolSuiteChild {
+
+    @Test
+    public void testContextsAreReused() throws Exception {
+        PooledDirContextFactory factory = createFactory(2, 1000);
+
+        try {
+            DirContext first = factory.obtainDirContext(DirContextFactory.ReferralMode.IGNORE);
+            first.close();
+            // closing twice must not return the context to the pool twice
+            first.close();
+
+            for (int i = 0; i < 10; i++) {
+                DirContext context = factory.obtainDirContext(DirContextFactory.ReferralMode.IGNORE);
+                assertNotSame(first, context);
+                context.getAttributes("uid=plainUser,dc=elytron,dc=wildfly,dc=org");
+                context.close();
+            }
+
+            assertEquals(1, factory.getPoolSize());
+            assertEquals(1, factory.getIdleCount());
+            assertEquals(11, factory.getAcquisitionCount());
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void testEnvironmentResetOnRelease() throws Exception {
+        PooledDirContextFactory factory = createFactory(1, 1000);
+
+        try {
+            DirContext context = factory.obtainDirContext(DirContextFactory.ReferralMode.IGNORE);
+            Object timeout = context.getEnvironment().get("com.sun.jndi.ldap.read.timeout");
+            context.addToEnvironment("java.naming.ldap.attributes.binary", "usercertificate");
+            context.addToEnvironment("com.sun.jndi.ldap.read.timeout", "12345");
+            context.close();
+
+            context = factory.obtainDirContext(DirContextFactory.ReferralMode.IGNORE);
+            assertFalse(context.getEnvironment().containsKey("java.naming.ldap.attributes.binary"));
+            assertEquals(timeout, context.getEnvironment().get("com.sun.jndi.ldap.read.timeout"));
+            context.close();
+
+            assertEquals(1, factory.getPoolSize());
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        PooledDirContextFactory factory = createFactory(1, 100);
+
+        try {
+            DirContext context = factory.obtainDirContext(DirContextFactory.ReferralMode.IGNORE);
+            try {
+                factory.obtainDirContext(DirContextFactory.ReferralMode.IGNORE);
+                fail("Expected exception not thrown.");
+            } catch (NamingException e) {
+                // expected
+            }
+            assertEquals(1, factory.getAcquisitionTimeoutCount());
+            assertTrue(factory.getMaxAcquisitionWaitTime(TimeUnit.MILLISECONDS) >= 100);
+            context.close();
+        } finally {
+            factory.close();
+        }
+        assertEquals(0, factory.getPoolSize());
+    }
+
+    @Test
+    public void testConcurrentLoginsWithPool() throws Exception {
+        PooledDirContextFactory factory = createFactory(4, 10000);
+        SecurityRealm realm = LdapSecurityRealmBuilder.builder()
+                .setDirContextSupplier(() -> factory.obtainDirContext(DirContextFactory.ReferralMode.IGNORE))
+                .identityMapping()
+                    .setSearchDn("dc=elytron,dc=wildfly,dc=org")
+                    .setRdnIdentifier("uid")
+                    .build()
+                .userPasswordCredentialLoader()
+                    .build()
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(executor.submit(() -> {
+                    RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal("plainUser"));
+                    try {
+                        return identity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray()));
+                    } finally {
+                        identity.dispose();
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get(60, TimeUnit.SECONDS));
+            }
+
+            assertTrue(factory.getPoolSize() <= 4);
+            assertEquals(factory.getPoolSize(), factory.getIdleCount());
+        } finally {
+            executor.shutdownNow();
+            factory.close();
+        }
+    }
+
+    private static PooledDirContextFactory createFactory(int maxSize, long maxWait) {
+        return (PooledDirContextFactory) SimpleDirContextFactoryBuilder.builder()
+                .setProviderUrl(String.format("ldap://localhost:%d/", DirContextFactoryRule.LDAP_PORT))
+                .setSecurityPrincipal(DirContextFactoryRule.SERVER_DN)
+                .setSecurityCredential(DirContextFactoryRule.SERVER_CREDENTIAL)
+                .setPoolMaxSize(maxSize)
+                .setPoolMaxWait(maxWait)
+                .build();
+    }
+}
@@ -33,9 +33,12 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.File;
 import java.io.FileInputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.security.KeyStore;
 import java.security.Provider;
 import java.security.Security;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author <a href="mailto:psilva@redhat.com">Pedro Igor</a>
@@ -95,6 +98,29 @@ public class DirContextFactoryRule implements TestRule {
                         .build().obtainDirContext(DirContextFactory.ReferralMode.IGNORE);
     }
 
+    /**
+     * Create a supplier of contexts counting the searches performed using the contexts it supplies.
+     *
+     * @param searches the counter incremented on each search
+     * @return the supplier of contexts
+     */
+    public ExceptionSupplier<DirContext, NamingException> createSearchCounting(AtomicInteger searches) {
+        ExceptionSupplier<DirContext, NamingException> supplier = create();
+        return () -> {
+            DirContext dirContext = supplier.get();
+            return (DirContext) Proxy.newProxyInstance(DirContextFactoryRule.class.getClassLoader(), new Class<?>[] { DirContext.class }, (proxy, method, args) -> {
+                if (method.getName().equals("search")) {
+                    searches.incrementAndGet();
+                }
+                try {
+                    return method.invoke(dirContext, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        };
+    }
+
     private LdapService startEmbeddedServer() {
         try {
             return LdapService.builder()
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.NamingException;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapName;
+
+import org.junit.Test;
+import org.wildfly.common.function.ExceptionSupplier;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.realm.ldap.AttributeMapping;
+import org.wildfly.security.auth.realm.ldap.LdapSecurityRealmBuilder;
+import org.wildfly.security.auth.server.ModifiableRealmIdentity;
+import org.wildfly.security.auth.server.ModifiableSecurityRealm;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.authz.MapAttributes;
+import org.wildfly.security.credential.PasswordCredential;
+import org.wildfly.security.evidence.PasswordGuessEvidence;
+
+/**
+ * Test case checking that an LDAP realm with identity entry caching searches for the entry of an identity once.
+ *
+ * This test case use {@link DirContextFactoryRule} to ensure running embedded LDAP server.
+ */
+public class IdentityEntryCachingSuiteChild {
+
+    @Test
+    public void testSingleSearchPerIdentity() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        ModifiableSecurityRealm realm = createSecurityRealm(LdapTestSuite.dirContextFactory.createSearchCounting(searches), true);
+
+        RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal("plainUser"));
+        try {
+            assertTrue(identity.exists());
+            assertTrue(identity.getCredentialAcquireSupport(PasswordCredential.class, null, null).mayBeSupported());
+            assertTrue(identity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+            assertNotNull(identity.getCredential(PasswordCredential.class));
+            org.wildfly.security.authz.Attributes attributes = identity.getAuthorizationIdentity().getAttributes();
+            assertEquals("plainUserCn", attributes.get("firstName", 0));
+            assertEquals("plainUserSn", attributes.get("lastName", 0));
+        } finally {
+            identity.dispose();
+        }
+
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void testSearchPerOperationWithoutCaching() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        ModifiableSecurityRealm realm = createSecurityRealm(LdapTestSuite.dirContextFactory.createSearchCounting(searches), false);
+
+        RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal("plainUser"));
+        try {
+            assertTrue(identity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+            assertEquals("plainUserCn", identity.getAuthorizationIdentity().getAttributes().get("firstName", 0));
+        } finally {
+            identity.dispose();
+        }
+
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    public void testNonExistentIdentity() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        ModifiableSecurityRealm realm = createSecurityRealm(LdapTestSuite.dirContextFactory.createSearchCounting(searches), true);
+
+        RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal("nonExistentUser"));
+        try {
+            assertFalse(identity.exists());
+            assertFalse(identity.verifyEvidence(new PasswordGuessEvidence("plainPassword".toCharArray())));
+        } finally {
+            identity.dispose();
+        }
+
+        assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void testModificationDiscardsCachedEntry() throws Exception {
+        ModifiableSecurityRealm realm = createSecurityRealm(LdapTestSuite.dirContextFactory.create(), true);
+
+        ModifiableRealmIdentity identity = realm.getRealmIdentityForUpdate(new NamePrincipal("cachedEntryUser"));
+        try {
+            assertFalse(identity.exists());
+            identity.create();
+            assertTrue(identity.exists());
+
+            MapAttributes newAttributes = new MapAttributes();
+            newAttributes.addFirst("firstName", "cachedEntryUserCn");
+            newAttributes.addFirst("lastName", "cachedEntryUserSn");
+            identity.setAttributes(newAttributes);
+            assertEquals("cachedEntryUserCn", identity.getAuthorizationIdentity().getAttributes().get("firstName", 0));
+
+            identity.delete();
+            assertFalse(identity.exists());
+        } finally {
+            identity.dispose();
+        }
+    }
+
+    private static ModifiableSecurityRealm createSecurityRealm(ExceptionSupplier<DirContext, NamingException> dirContextSupplier, boolean identityEntryCaching) throws Exception {
+        Attributes newIdentityAttributes = new BasicAttributes(true);
+        newIdentityAttributes.put("objectClass", "inetOrgPerson");
+        newIdentityAttributes.put("sn", "BlankSurname");
+        newIdentityAttributes.put("cn", "BlankCommonName");
+
+        return LdapSecurityRealmBuilder.builder()
+                .setDirContextSupplier(dirContextSupplier)
+                .setIdentityEntryCaching(identityEntryCaching)
+                .identityMapping()
+                    .setSearchDn("dc=elytron,dc=wildfly,dc=org")
+                    .setRdnIdentifier("uid")
+                    .setNewIdentityParent(new LdapName("dc=elytron,dc=wildfly,dc=org"))
+                    .setNewIdentityAttributes(newIdentityAttributes)
+                    .map(AttributeMapping.fromIdentity().from("cn").to("firstName").build(),
+                         AttributeMapping.fromIdentity().from("sn").to("lastName").build())
+                    .build()
+                .userPasswordCredentialLoader()
+                    .build()
+                .build();
+    }
+}
@@ -26,6 +26,7 @@ import org.wildfly.security.keystore.LdapKeyStore;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.BasicAttribute;
 import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.DirContext;
 import javax.naming.ldap.LdapName;
 import java.math.BigInteger;
 import java.security.Key;
@@ -33,8 +34,11 @@ import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPrivateCrtKey;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Test of LDAP based Keystore
@@ -47,12 +51,16 @@ public class KeyStoreSuiteChild {
 
     @BeforeClass
     public static void createKeyStore() throws Exception {
+        keyStore = keyStoreBuilder().build();
+        keyStore.load(null, null);
+    }
 
+    private static LdapKeyStore.Builder keyStoreBuilder() throws Exception {
         Attributes createAttributes = new BasicAttributes();
         createAttributes.put(new BasicAttribute("objectClass","inetOrgPerson"));
         createAttributes.put(new BasicAttribute("sn","newCert"));
 
-        keyStore = LdapKeyStore.builder()
+        return LdapKeyStore.builder()
                 .setDirContextSupplier(LdapTestSuite.dirContextFactory.create())
                 .setSearchPath("ou=keystore,dc=elytron,dc=wildfly,dc=org")
                 .setFilterAlias("(&(objectClass=inetOrgPerson)(cn={0}))")
@@ -60,10 +68,7 @@ public class KeyStoreSuiteChild {
                 .setFilterIterate("(objectClass=inetOrgPerson)")
                 .setCreatePath(new LdapName("ou=keystore,dc=elytron,dc=wildfly,dc=org"))
                 .setCreateAttributes(createAttributes)
-                .setCreateRdn("cn")
-                .build();
-
-        keyStore.load(null, null);
+                .setCreateRdn("cn");
     }
 
     @Test
@@ -79,6 +84,92 @@ public class KeyStoreSuiteChild {
         Assert.assertTrue(count > 0);
     }
 
+    @Test
+    public void testPagedAliases() throws Exception {
+        KeyStore unpaged = keyStoreBuilder().setPageSize(0).build();
+        unpaged.load(null, null);
+        KeyStore paged = keyStoreBuilder().setPageSize(1).build();
+        paged.load(null, null);
+
+        Set<String> expected = new HashSet<>(Collections.list(unpaged.aliases()));
+        Set<String> aliases = new HashSet<>(Collections.list(paged.aliases()));
+
+        Assert.assertTrue(expected.contains("firefly"));
+        Assert.assertEquals(expected, aliases);
+        Assert.assertEquals(unpaged.size(), paged.size());
+    }
+
+    @Test
+    public void testAliasesOnSeveralPages() throws Exception {
+        KeyStore paged = keyStoreBuilder().setPageSize(2).build();
+        paged.load(null, null);
+
+        Set<String> created = new HashSet<>();
+        DirContext dirContext = LdapTestSuite.dirContextFactory.create().get();
+        try {
+            for (int i = 0; i < 5; i++) {
+                Attributes attributes = new BasicAttributes();
+                attributes.put(new BasicAttribute("objectClass", "inetOrgPerson"));
+                attributes.put(new BasicAttribute("sn", "pagedCert" + i));
+                dirContext.createSubcontext("cn=pagedcert" + i + ",ou=keystore,dc=elytron,dc=wildfly,dc=org", attributes);
+                created.add("pagedcert" + i);
+            }
+
+            Set<String> aliases = new HashSet<>(Collections.list(paged.aliases()));
+            Assert.assertTrue(aliases.contains("firefly"));
+            Assert.assertTrue(aliases.containsAll(created));
+            Assert.assertEquals(aliases.size(), paged.size());
+        } finally {
+            for (String alias : created) {
+                dirContext.destroySubcontext("cn=" + alias + ",ou=keystore,dc=elytron,dc=wildfly,dc=org");
+            }
+            dirContext.close();
+        }
+    }
+
+    @Test
+    public void testAliasIndex() throws Exception {
+        KeyStore indexed = keyStoreBuilder().setAliasIndex(true).build();
+        indexed.load(null, null);
+
+        Assert.assertTrue(indexed.containsAlias("firefly"));
+        Assert.assertEquals(keyStore.size(), indexed.size());
+        X509Certificate cert = (X509Certificate) indexed.getCertificate("firefly");
+        Assert.assertEquals("OU=Elytron, O=Elytron, C=UK, ST=Elytron, CN=Firefly", cert.getSubjectDN().toString());
+
+        indexed.setCertificateEntry("indexedcert", cert);
+        Assert.assertTrue(Collections.list(indexed.aliases()).contains("indexedcert"));
+        Assert.assertEquals(cert, indexed.getCertificate("indexedcert"));
+        indexed.deleteEntry("indexedcert");
+        Assert.assertFalse(indexed.containsAlias("indexedcert"));
+        Assert.assertNull(indexed.getCertificate("indexedcert"));
+
+        // entries changed by others are indexed once the server notifies about them
+        DirContext dirContext = LdapTestSuite.dirContextFactory.create().get();
+        try {
+            Attributes attributes = new BasicAttributes();
+            attributes.put(new BasicAttribute("objectClass", "inetOrgPerson"));
+            attributes.put(new BasicAttribute("sn", "externalCert"));
+            dirContext.createSubcontext("cn=externalcert,ou=keystore,dc=elytron,dc=wildfly,dc=org", attributes);
+            long deadline = System.currentTimeMillis() + 5000;
+            try {
+                while (! Collections.list(indexed.aliases()).contains("externalcert") && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+                Assert.assertTrue(Collections.list(indexed.aliases()).contains("externalcert"));
+            } finally {
+                dirContext.destroySubcontext("cn=externalcert,ou=keystore,dc=elytron,dc=wildfly,dc=org");
+            }
+            deadline = System.currentTimeMillis() + 5000;
+            while (Collections.list(indexed.aliases()).contains("externalcert") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertFalse(Collections.list(indexed.aliases()).contains("externalcert"));
+        } finally {
+            dirContext.close();
+        }
+    }
+
     @Test
     public void testIs() throws Exception {
         Assert.assertTrue(keyStore.isCertificateEntry("firefly"));
@@ -36,7 +36,11 @@ import org.junit.runners.Suite;
         PrincipalMappingSuiteChild.class,
         RoleMappingSuiteChild.class,
         KeyStoreSuiteChild.class,
-        LdapSecurityRealmIdentityCacheSuiteChild.class
+        LdapSecurityRealmIdentityCacheSuiteChild.class,
+        ConcurrentLoginSuiteChild.class,
+        ConnectionPoolSuiteChild.class,
+        IdentityEntryCachingSuiteChild.class,
+        RoleRecursionBatchingSuiteChild.class
 })
 public class LdapTestSuite {
     @ClassRule
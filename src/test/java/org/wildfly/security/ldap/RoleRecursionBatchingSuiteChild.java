@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.ldap;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.wildfly.security.auth.principal.NamePrincipal;
+import org.wildfly.security.auth.realm.ldap.AttributeMapping;
+import org.wildfly.security.auth.realm.ldap.LdapSecurityRealmBuilder;
+import org.wildfly.security.auth.server.RealmIdentity;
+import org.wildfly.security.auth.server.SecurityRealm;
+import org.wildfly.security.authz.Attributes;
+import org.wildfly.security.authz.RoleDecoder;
+
+/**
+ * Test case for the batched role recursion and the group entry cache of an LDAP realm.
+ *
+ * This test case use {@link DirContextFactoryRule} to ensure running embedded LDAP server.
+ */
+public class RoleRecursionBatchingSuiteChild extends AbstractAttributeMappingSuiteChild {
+
+    @Test
+    public void testBatchedRecursiveRolesCycle() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        Attributes attributes = loadAttributes(createBatchingRealm(searches,
+                AttributeMapping.fromFilter("(&(objectClass=groupOfNames)(member={1}))").from("cn").roleRecursion(10).to(RoleDecoder.KEY_ROLES).build()), "jduke");
+
+        assertAttributeValue(attributes.get(RoleDecoder.KEY_ROLES), "R1", "R2", "R3");
+        // the identity, its roles and one search per level until R3 leads back to R1
+        assertEquals(5, searches.get());
+    }
+
+    @Test
+    public void testBatchedRecursiveRolesMoreWaysToOneRole() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        Attributes attributes = loadAttributes(createBatchingRealm(searches,
+                AttributeMapping.fromFilter("(&(objectClass=groupOfNames)(member={1}))").from("cn").roleRecursion(1).to(RoleDecoder.KEY_ROLES).build()), "ranvir");
+
+        assertAttributeValue(attributes.get(RoleDecoder.KEY_ROLES), "MWR1", "MWR2", "MWR3");
+        // the identity, its roles and the roles of both MWR1 and MWR2 in a single search
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void testBatchedRecursiveRolesByName() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        Attributes attributes = loadAttributes(createBatchingRealm(searches,
+                AttributeMapping.fromFilter("description={0}").from("cn").roleRecursionName("cn").roleRecursion(1).to(RoleDecoder.KEY_ROLES).build()), "falith");
+
+        assertAttributeValue(attributes.get(RoleDecoder.KEY_ROLES), "RN1", "RN2");
+        // the identity, its roles and the roles of RN1
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void testGroupEntryCache() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        SecurityRealm realm = LdapSecurityRealmBuilder.builder()
+                .setDirContextSupplier(LdapTestSuite.dirContextFactory.createSearchCounting(searches))
+                .setGroupEntryCache(100, 60000)
+                .identityMapping()
+                    .setSearchDn("dc=elytron,dc=wildfly,dc=org")
+                    .searchRecursive()
+                    .setRdnIdentifier("uid")
+                    .map(AttributeMapping.fromReference("memberOf").roleRecursion(3).from("description").to(RoleDecoder.KEY_ROLES).build())
+                    .build()
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            searches.set(0);
+            Attributes attributes = loadAttributes(realm, "userWithMemberOfRoles");
+            assertAttributeValue(attributes.get(RoleDecoder.KEY_ROLES), "roleByMemberOfDescription", "roleOfRoleByMemberOfDescription");
+        }
+        // once the referenced entries are cached only the identity is searched for
+        assertEquals(1, searches.get());
+    }
+
+    private static Attributes loadAttributes(SecurityRealm realm, String name) throws Exception {
+        RealmIdentity identity = realm.getRealmIdentity(new NamePrincipal(name));
+        try {
+            return identity.getAuthorizationIdentity().getAttributes();
+        } finally {
+            identity.dispose();
+        }
+    }
+
+    private static SecurityRealm createBatchingRealm(AtomicInteger searches, AttributeMapping mapping) {
+        return LdapSecurityRealmBuilder.builder()
+                .setDirContextSupplier(LdapTestSuite.dirContextFactory.createSearchCounting(searches))
+                .setRoleRecursionBatchSize(10)
+                .identityMapping()
+                    .setSearchDn("dc=elytron,dc=wildfly,dc=org")
+                    .searchRecursive()
+                    .setRdnIdentifier("uid")
+                    .map(mapping)
+                    .build()
+                .build();
+    }
+}
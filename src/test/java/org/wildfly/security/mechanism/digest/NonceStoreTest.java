@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.mechanism.digest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link NonceStore} implementations.
+ */
+public class NonceStoreTest {
+
+    private static final long LIFETIME = TimeUnit.SECONDS.toNanos(60);
+
+    @Test
+    public void testInMemoryNoncesExpire() throws Exception {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            InMemoryNonceStore usedNonces = new InMemoryNonceStore(TimeUnit.MILLISECONDS.toNanos(500), executor);
+            long start = System.nanoTime();
+
+            assertTrue(usedNonces.markUsed("nonce", TimeUnit.MILLISECONDS.toNanos(200)));
+            assertFalse(usedNonces.markUsed("nonce", TimeUnit.MILLISECONDS.toNanos(200)));
+            assertEquals(1, usedNonces.size());
+
+            while (usedNonces.size() > 0 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(0, usedNonces.size());
+            // a nonce must not be forgotten while it is still valid
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+            assertTrue(usedNonces.markUsed("nonce", TimeUnit.MILLISECONDS.toNanos(200)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSharedMap() throws Exception {
+        ConcurrentMap<String, Long> nonces = new ConcurrentHashMap<>();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try (ConcurrentMapNonceStore first = new ConcurrentMapNonceStore(nonces, executor, -1);
+             ConcurrentMapNonceStore second = new ConcurrentMapNonceStore(nonces, executor, -1)) {
+
+            assertTrue(first.markUsed("nonce", LIFETIME));
+            assertFalse(second.markUsed("nonce", LIFETIME));
+            assertFalse(first.markUsed("nonce", LIFETIME));
+            assertTrue(second.markUsed("other", LIFETIME));
+            assertEquals(2, nonces.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchedWrites() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        ConcurrentMap<String, Long> nonces = new ConcurrentHashMap<String, Long>() {
+            @Override
+            public void putAll(Map<? extends String, ? extends Long> m) {
+                writes.incrementAndGet();
+                super.putAll(m);
+            }
+
+            @Override
+            public Long putIfAbsent(String key, Long value) {
+                writes.incrementAndGet();
+                return super.putIfAbsent(key, value);
+            }
+        };
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try (ConcurrentMapNonceStore first = new ConcurrentMapNonceStore(nonces, executor, -1, 1000, 60000);
+             ConcurrentMapNonceStore second = new ConcurrentMapNonceStore(nonces, executor, -1, 1000, 60000)) {
+
+            for (int i = 0; i < 10; i++) {
+                assertTrue(first.markUsed("nonce" + i, LIFETIME));
+                // a nonce pending to be written is still rejected by the node which used it
+                assertFalse(first.markUsed("nonce" + i, LIFETIME));
+            }
+            assertEquals(0, nonces.size());
+
+            first.flush();
+            assertEquals(10, nonces.size());
+            // the whole batch is written at once
+            assertEquals(1, writes.get());
+            for (int i = 0; i < 10; i++) {
+                assertFalse(first.markUsed("nonce" + i, LIFETIME));
+                assertFalse(second.markUsed("nonce" + i, LIFETIME));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchWrittenOnceFull() throws Exception {
+        ConcurrentMap<String, Long> nonces = new ConcurrentHashMap<>();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try (ConcurrentMapNonceStore store = new ConcurrentMapNonceStore(nonces, executor, -1, 10, 60000)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(store.markUsed("nonce" + i, LIFETIME));
+            }
+
+            long start = System.nanoTime();
+            while (nonces.size() < 10 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+                Thread.sleep(10);
+            }
+            assertEquals(10, nonces.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExpiredNoncesPurged() throws Exception {
+        ConcurrentMap<String, Long> nonces = new ConcurrentHashMap<>();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try (ConcurrentMapNonceStore store = new ConcurrentMapNonceStore(nonces, executor, 50)) {
+            assertTrue(store.markUsed("expiring", TimeUnit.MILLISECONDS.toNanos(100)));
+            assertTrue(store.markUsed("valid", LIFETIME));
+
+            long start = System.nanoTime();
+            while (nonces.size() > 1 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10)) {
+                Thread.sleep(10);
+            }
+            assertFalse(nonces.containsKey("expiring"));
+            assertTrue(nonces.containsKey("valid"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
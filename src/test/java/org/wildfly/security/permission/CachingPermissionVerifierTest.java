@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.permission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.security.Permission;
+import java.util.PropertyPermission;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CachingPermissionVerifier}.
+ */
+public class CachingPermissionVerifierTest {
+
+    @Test
+    public void testDecisionsAreRemembered() {
+        AtomicInteger checks = new AtomicInteger();
+        CachingPermissionVerifier verifier = new CachingPermissionVerifier(countingVerifier(checks, new PropertyPermission("user.*", "read")), 16);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(verifier.implies(new PropertyPermission("user.home", "read")));
+            assertFalse(verifier.implies(new PropertyPermission("user.home", "write")));
+            assertFalse(verifier.implies(new RuntimePermission("user.home")));
+        }
+
+        assertEquals(3, checks.get());
+        assertEquals(3, verifier.getMissCount());
+        assertEquals(27, verifier.getHitCount());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        AtomicInteger checks = new AtomicInteger();
+        CachingPermissionVerifier verifier = new CachingPermissionVerifier(countingVerifier(checks, new RuntimePermission("*")), 2);
+
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertTrue(verifier.implies(new RuntimePermission("permission" + j)));
+            }
+        }
+
+        // only the first two decisions are remembered
+        assertEquals(6, checks.get());
+        assertEquals(2, verifier.getHitCount());
+        assertEquals(6, verifier.getMissCount());
+    }
+
+    @Test
+    public void testSharedCounters() {
+        LongAdder hits = new LongAdder();
+        LongAdder misses = new LongAdder();
+        CachingPermissionVerifier first = new CachingPermissionVerifier(countingVerifier(new AtomicInteger(), new RuntimePermission("*")), 16, hits, misses);
+        CachingPermissionVerifier second = new CachingPermissionVerifier(countingVerifier(new AtomicInteger(), new RuntimePermission("*")), 16, hits, misses);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(first.implies(new RuntimePermission("permission")));
+            assertTrue(second.implies(new RuntimePermission("permission")));
+        }
+
+        assertEquals(4, hits.sum());
+        assertEquals(2, misses.sum());
+        assertEquals(4, first.getHitCount());
+    }
+
+    private static PermissionVerifier countingVerifier(AtomicInteger checks, Permission granted) {
+        return permission -> {
+            checks.incrementAndGet();
+            return granted.implies(permission);
+        };
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.security.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.wildfly.security.util._private.SegmentedLRUCache;
+
+/**
+ * Tests of org.wildfly.security.util._private.SegmentedLRUCache
+ */
+public class SegmentedLRUCacheTest {
+
+    @Test
+    public void testSegmentCount() {
+        assertEquals(1, SegmentedLRUCache.segmentCount(100, 1));
+        assertEquals(4, SegmentedLRUCache.segmentCount(100, 3));
+        assertEquals(8, SegmentedLRUCache.segmentCount(100, 8));
+        assertEquals(4, SegmentedLRUCache.segmentCount(5, 8));
+        assertEquals(1, SegmentedLRUCache.segmentCount(1, 8));
+    }
+
+    @Test
+    public void testSegmentCapacity() {
+        int total = 0;
+        for (int i = 0; i < 4; i++) {
+            total += SegmentedLRUCache.segmentCapacity(10, 4, i);
+        }
+        assertEquals(10, total);
+        assertEquals(3, SegmentedLRUCache.segmentCapacity(10, 4, 0));
+        assertEquals(2, SegmentedLRUCache.segmentCapacity(10, 4, 3));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<>(3, 1);
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        // touch the eldest entry so it is not the next to be evicted
+        assertEquals("A", cache.get("a", v -> true));
+        cache.put("d", "D");
+
+        assertEquals("A", cache.get("a", v -> true));
+        assertNull(cache.get("b", v -> true));
+        assertEquals("C", cache.get("c", v -> true));
+        assertEquals("D", cache.get("d", v -> true));
+    }
+
+    @Test
+    public void testInvalidValueRemoved() {
+        SegmentedLRUCache<String, String> cache = new SegmentedLRUCache<>(3, 1);
+
+        cache.put("a", "A");
+
+        assertNull(cache.get("a", v -> false));
+        assertNull(cache.get("a", v -> true));
+    }
+}